@@ -0,0 +1,442 @@
+package javagym;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * A game engine that keeps the mines, the revealed cells and the flags as bitboards, 64 cells per long.
+ * <p>
+ * Row {@code y} of a layer is {@code words} longs starting at {@code (y - 1) * words}, and cell (x, y) is bit
+ * {@code (x - 1) % 64} of word {@code (x - 1) / 64}, with the coordinates of {@link MineSweeper}. The numbers of
+ * all cells are computed once per board, by adding the eight shifted mine layers with carry-save adders into
+ * four bit planes. The zero cascade grows the revealed zeros with a bitwise dilation until nothing changes.
+ * <p>
+ * Moves behave like turn, chord and flag of MineSweeper followed by detect and the cascade, which the
+ * {@link BoardView} shows as the same states.
+ */
+class BitBoard implements BoardView {
+
+	private final int width;
+	private final int height;
+	private final int words;
+	// Mask of the cells on the board in the last word of a row.
+	private final long lastMask;
+
+	private final long[] mines;
+	private final long[] revealed;
+	private final long[] flagged;
+	// The number of every cell as four bit planes, and the cells with a 0 that are not mines.
+	private final long[][] counts = new long[4][];
+	private final long[] zeros;
+
+	// Cascade frontiers, swapped every step, and the rows and words the current one has bits in.
+	private long[] frontier;
+	private long[] next;
+	private int frontierLow = Integer.MAX_VALUE;
+	private int frontierHigh = -1;
+	private int frontierLeft = Integer.MAX_VALUE;
+	private int frontierRight = -1;
+
+	private int[] changeLog = new int[256];
+	private int changeCount = 0;
+
+	private long safeCells;
+	private long revealedCount;
+	private boolean isDone = false;
+	private boolean isWin = false;
+
+	BitBoard(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.words = (width + 63) >>> 6;
+		this.lastMask = -1L >>> (words * 64 - width);
+		int size = words * height;
+		mines = new long[size];
+		revealed = new long[size];
+		flagged = new long[size];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new long[size];
+		}
+		zeros = new long[size];
+		frontier = new long[size];
+		next = new long[size];
+	}
+
+	// Starts a game on the board. It must have the size of this engine.
+	void load(BoardLayout layout) {
+		if (layout.width != width || layout.height != height) {
+			throw new IllegalArgumentException("Board is " + layout.width + "x" + layout.height
+					+ ", engine is " + width + "x" + height);
+		}
+		Arrays.fill(mines, 0);
+		Arrays.fill(revealed, 0);
+		Arrays.fill(flagged, 0);
+		for (int i = layout.mines.nextSetBit(0); i >= 0; i = layout.mines.nextSetBit(i + 1)) {
+			int x = i % width;
+			int y = i / width;
+			mines[y * words + (x >>> 6)] |= 1L << x;
+		}
+		countNeighbours();
+		safeCells = (long) width * height - layout.mineCount();
+		revealedCount = 0;
+		changeCount = 0;
+		isDone = false;
+		isWin = false;
+	}
+
+	// The word of a layer, 0 outside the board.
+	private long word(long[] layer, int row, int w) {
+		if (row < 0 || row >= height || w < 0 || w >= words) {
+			return 0;
+		}
+		return layer[row * words + w];
+	}
+
+	// For every cell, the value of its left neighbour.
+	private long west(long[] layer, int row, int w) {
+		return word(layer, row, w) << 1 | word(layer, row, w - 1) >>> 63;
+	}
+
+	// For every cell, the value of its right neighbour.
+	private long east(long[] layer, int row, int w) {
+		return word(layer, row, w) >>> 1 | word(layer, row, w + 1) << 63;
+	}
+
+	private long validMask(int w) {
+		return w == words - 1 ? lastMask : -1L;
+	}
+
+	// Adds the eight neighbour layers of every word into the bit planes of 'counts'.
+	private void countNeighbours() {
+		for (int row = 0; row < height; row++) {
+			for (int w = 0; w < words; w++) {
+				long n0 = west(mines, row - 1, w);
+				long n1 = word(mines, row - 1, w);
+				long n2 = east(mines, row - 1, w);
+				long n3 = west(mines, row, w);
+				long n4 = east(mines, row, w);
+				long n5 = west(mines, row + 1, w);
+				long n6 = word(mines, row + 1, w);
+				long n7 = east(mines, row + 1, w);
+
+				// Three carry-save adders bring the ones down to one bit and four carries of weight 2.
+				long xA = n0 ^ n1;
+				long sA = xA ^ n2;
+				long cA = n0 & n1 | n2 & xA;
+				long xB = n3 ^ n4;
+				long sB = xB ^ n5;
+				long cB = n3 & n4 | n5 & xB;
+				long xC = sA ^ sB;
+				long sC = xC ^ n6;
+				long cC = sA & sB | n6 & xC;
+				long ones = sC ^ n7;
+				long cD = sC & n7;
+				// The same for the twos, giving the fours and the eights.
+				long xE = cA ^ cB;
+				long sE = xE ^ cC;
+				long cE = cA & cB | cC & xE;
+				long twos = sE ^ cD;
+				long cF = sE & cD;
+				long fours = cE ^ cF;
+				long eights = cE & cF;
+
+				int i = row * words + w;
+				counts[0][i] = ones;
+				counts[1][i] = twos;
+				counts[2][i] = fours;
+				counts[3][i] = eights;
+				zeros[i] = ~(ones | twos | fours | eights) & ~mines[i] & validMask(w);
+			}
+		}
+	}
+
+	private int count(int i, int bit) {
+		return (int) ((counts[0][i] >>> bit & 1) | (counts[1][i] >>> bit & 1) << 1
+				| (counts[2][i] >>> bit & 1) << 2 | (counts[3][i] >>> bit & 1) << 3);
+	}
+
+	private void logChanges(int row, int w, long cells) {
+		while (cells != 0) {
+			int bit = Long.numberOfTrailingZeros(cells);
+			cells &= cells - 1;
+			if (changeCount == changeLog.length) {
+				changeLog = Arrays.copyOf(changeLog, 2 * changeCount);
+			}
+			changeLog[changeCount++] = index((w << 6) + bit + 1, row + 1);
+		}
+	}
+
+	// Reveals the given cells of a word, which must be safe, and adds the zeros among them to the frontier.
+	private void revealWord(int row, int w, long cells) {
+		int i = row * words + w;
+		cells &= ~revealed[i];
+		if (cells == 0) {
+			return;
+		}
+		revealed[i] |= cells;
+		flagged[i] &= ~cells;
+		revealedCount += Long.bitCount(cells);
+		if ((cells & zeros[i]) != 0) {
+			frontier[i] |= cells & zeros[i];
+			frontierLow = Math.min(frontierLow, row);
+			frontierHigh = Math.max(frontierHigh, row);
+			frontierLeft = Math.min(frontierLeft, w);
+			frontierRight = Math.max(frontierRight, w);
+		}
+		logChanges(row, w, cells);
+	}
+
+	// Reveals the unflagged cells next to the frontier until no new zeros are found.
+	// Every step only looks at the rows and words around the bounds of the frontier.
+	private void cascade() {
+		while (frontierLow <= frontierHigh) {
+			int nextLow = Integer.MAX_VALUE;
+			int nextHigh = -1;
+			int nextLeft = Integer.MAX_VALUE;
+			int nextRight = -1;
+			int fromRow = Math.max(0, frontierLow - 1);
+			int toRow = Math.min(height - 1, frontierHigh + 1);
+			int fromWord = Math.max(0, frontierLeft - 1);
+			int toWord = Math.min(words - 1, frontierRight + 1);
+			for (int row = fromRow; row <= toRow; row++) {
+				for (int w = fromWord; w <= toWord; w++) {
+					long grown = word(frontier, row - 1, w) | word(frontier, row, w) | word(frontier, row + 1, w);
+					long left = word(frontier, row - 1, w - 1) | word(frontier, row, w - 1) | word(frontier, row + 1, w - 1);
+					long right = word(frontier, row - 1, w + 1) | word(frontier, row, w + 1) | word(frontier, row + 1, w + 1);
+					grown |= grown << 1 | left >>> 63 | grown >>> 1 | right << 63;
+					int i = row * words + w;
+					long added = grown & ~revealed[i] & ~flagged[i] & validMask(w);
+					next[i] = added & zeros[i];
+					if (added != 0) {
+						revealed[i] |= added;
+						revealedCount += Long.bitCount(added);
+						logChanges(row, w, added);
+						if (next[i] != 0) {
+							nextLow = Math.min(nextLow, row);
+							nextHigh = row;
+							nextLeft = Math.min(nextLeft, w);
+							nextRight = Math.max(nextRight, w);
+						}
+					}
+				}
+			}
+			// The old frontier lies within the words just scanned, which were all overwritten in 'next'.
+			for (int row = frontierLow; row <= frontierHigh; row++) {
+				Arrays.fill(frontier, row * words + frontierLeft, row * words + frontierRight + 1, 0);
+			}
+			long[] swap = frontier;
+			frontier = next;
+			next = swap;
+			frontierLow = nextLow;
+			frontierHigh = nextHigh;
+			frontierLeft = nextLeft;
+			frontierRight = nextRight;
+		}
+	}
+
+	private void checkVictory() {
+		if (!isDone && revealedCount == safeCells) {
+			isDone = true;
+			isWin = true;
+		}
+	}
+
+	private boolean isMine(int x, int y) {
+		return (mines[(y - 1) * words + ((x - 1) >>> 6)] >>> (x - 1) & 1) != 0;
+	}
+
+	private boolean isRevealed(int x, int y) {
+		return (revealed[(y - 1) * words + ((x - 1) >>> 6)] >>> (x - 1) & 1) != 0;
+	}
+
+	private boolean onBoard(int x, int y) {
+		return x >= 1 && x <= width && y >= 1 && y <= height;
+	}
+
+	// Reveals the safe cells around the first pick, like MineSweeper.clear, followed by the cascade.
+	void clear(int x, int y) {
+		for (int j = Math.max(1, y - 1); j <= Math.min(height, y + 1); j++) {
+			int row = j - 1;
+			for (int i = Math.max(1, x - 1); i <= Math.min(width, x + 1); i++) {
+				if (!isMine(i, j)) {
+					revealWord(row, (i - 1) >>> 6, 1L << (i - 1));
+				}
+			}
+		}
+		cascade();
+		checkVictory();
+	}
+
+	// Reveals a cell, like MineSweeper.turn followed by detect and the cascade.
+	void turn(int x, int y) {
+		turnWithoutCascade(x, y);
+		cascade();
+		checkVictory();
+	}
+
+	private void turnWithoutCascade(int x, int y) {
+		if (isDone || isRevealed(x, y)) {
+			return;
+		}
+		if (isMine(x, y)) {
+			isDone = true;
+			isWin = false;
+			return;
+		}
+		revealWord(y - 1, (x - 1) >>> 6, 1L << (x - 1));
+	}
+
+	// Reveals the unknown neighbours of a number with as many flags around it, like MineSweeper.chord.
+	void chord(int x, int y) {
+		int number = state(x, y);
+		int flags = 0;
+		for (int j = y - 1; j <= y + 1; j++) {
+			for (int i = x - 1; i <= x + 1; i++) {
+				if (state(i, j) == FLAG) {
+					flags++;
+				}
+			}
+		}
+		if (number < 0 || number > 8 || flags != number) {
+			return;
+		}
+		for (int j = y - 1; j <= y + 1; j++) {
+			for (int i = x - 1; i <= x + 1; i++) {
+				if (state(i, j) == UNKNOWN) {
+					turnWithoutCascade(i, j);
+					if (isDone) {
+						return;
+					}
+				}
+			}
+		}
+		cascade();
+		checkVictory();
+	}
+
+	void flag(int x, int y) {
+		if (state(x, y) == UNKNOWN) {
+			flagged[(y - 1) * words + ((x - 1) >>> 6)] |= 1L << (x - 1);
+			logChanges(y - 1, (x - 1) >>> 6, 1L << (x - 1));
+		}
+	}
+
+	void unflag(int x, int y) {
+		if (state(x, y) == FLAG) {
+			flagged[(y - 1) * words + ((x - 1) >>> 6)] &= ~(1L << (x - 1));
+			logChanges(y - 1, (x - 1) >>> 6, 1L << (x - 1));
+		}
+	}
+
+	boolean getDone() {
+		return isDone;
+	}
+
+	boolean getWin() {
+		return isWin;
+	}
+
+	// Tiles that are neither a mine nor revealed, like MineSweeper.getUnknownTiles.
+	long getUnknownTiles() {
+		return safeCells - revealedCount;
+	}
+
+	@Override
+	public int state(int x, int y) {
+		if (!onBoard(x, y)) {
+			return OUTSIDE;
+		}
+		int i = (y - 1) * words + ((x - 1) >>> 6);
+		int bit = (x - 1) & 63;
+		if ((revealed[i] >>> bit & 1) != 0) {
+			return count(i, bit);
+		}
+		return (flagged[i] >>> bit & 1) != 0 ? FLAG : UNKNOWN;
+	}
+
+	@Override
+	public int width() {
+		return width;
+	}
+
+	@Override
+	public int height() {
+		return height;
+	}
+
+	@Override
+	public int stride() {
+		return width + 2;
+	}
+
+	@Override
+	public int cellCount() {
+		return (width + 2) * (height + 2);
+	}
+
+	@Override
+	public int state(int cell) {
+		return state(cell % (width + 2), cell / (width + 2));
+	}
+
+	@Override
+	public int[] neighbourOffsets() {
+		int stride = stride();
+		return new int[]{-stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1};
+	}
+
+	@Override
+	public PrimitiveIterator.OfInt changedCells() {
+		int[] cells = Arrays.copyOf(changeLog, changeCount);
+		changeCount = 0;
+		return Arrays.stream(cells).iterator();
+	}
+
+	// Times counting the numbers and opening every safe cell in a random order, on both engines.
+	// Usage: BitBoard [size...]
+	public static void main(String[] args) {
+		int[] sizes = args.length == 0 ? new int[]{100, 300, 1000} : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+		int rounds = 5;
+		for (int size : sizes) {
+			BoardLayout layout = BoardLayout.random(size, size, size * size * 15 / 100, 42);
+			int[] order = new int[size * size];
+			Random random = new Random(42);
+			for (int i = 0; i < order.length; i++) {
+				int j = random.nextInt(i + 1);
+				order[i] = order[j];
+				order[j] = i;
+			}
+			long arrayNanos = Long.MAX_VALUE;
+			long bitNanos = Long.MAX_VALUE;
+			BitBoard bitBoard = new BitBoard(size, size);
+			// Only the engine of the strategy is used, its moves are made here.
+			MineSweeper game = new YourStrategy(size, size);
+			game.verbose = false;
+			for (int round = 0; round < rounds; round++) {
+				game.reset(size, size, 1);
+				long start = System.nanoTime();
+				game.loadBoard(layout);
+				for (int cell : order) {
+					if (!layout.mines.get(cell)) {
+						game.turn(cell % size + 1, cell / size + 1);
+						game.detect();
+						game.revealNeighboursOfZeros();
+					}
+				}
+				arrayNanos = Math.min(arrayNanos, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				bitBoard.load(layout);
+				for (int cell : order) {
+					if (!layout.mines.get(cell)) {
+						bitBoard.turn(cell % size + 1, cell / size + 1);
+					}
+				}
+				bitNanos = Math.min(bitNanos, System.nanoTime() - start);
+			}
+			System.out.println(size + "x" + size + ": array engine " + arrayNanos / 1000 + " us, bitboard "
+					+ bitNanos / 1000 + " us");
+		}
+	}
+}
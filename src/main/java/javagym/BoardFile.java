@@ -0,0 +1,153 @@
+package javagym;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Binary board format, read and written through memory-mapped files.
+ * <p>
+ * A board record is a header followed by the mine layout, one bit per cell in the order of
+ * {@link BoardLayout}, lowest bit first within each byte:
+ * <pre>
+ *   int  magic      'JGMB'
+ *   int  version
+ *   int  width
+ *   int  height
+ *   long seed       0 if unknown
+ *   int  mineCount
+ *   byte mines[(width * height + 7) / 8]
+ * </pre>
+ * A board file holds a single record. The text format of {@code mineField.txt} can be converted
+ * with {@link #main(String[])}.
+ */
+final class BoardFile {
+
+	static final int MAGIC = 0x4A474D42;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 28;
+
+	private BoardFile() {
+	}
+
+	static int recordBytes(BoardLayout layout) {
+		return HEADER_BYTES + (layout.width * layout.height + 7) / 8;
+	}
+
+	// Writes the record at the position of the buffer and moves past it.
+	static void put(ByteBuffer buffer, BoardLayout layout) {
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(layout.width);
+		buffer.putInt(layout.height);
+		buffer.putLong(layout.seed);
+		buffer.putInt(layout.mineCount());
+		byte[] bits = layout.mines.toByteArray();
+		buffer.put(bits);
+		for (int i = bits.length; i < (layout.width * layout.height + 7) / 8; i++) {
+			buffer.put((byte) 0);
+		}
+	}
+
+	// Reads the record at the position of the buffer and moves past it.
+	static BoardLayout get(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a board record");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported board version " + version);
+			}
+			int width = buffer.getInt();
+			int height = buffer.getInt();
+			long seed = buffer.getLong();
+			int mineCount = buffer.getInt();
+			if (width <= 0 || height <= 0) {
+				throw new IOException("Invalid board size " + width + "x" + height);
+			}
+			byte[] bits = new byte[(width * height + 7) / 8];
+			buffer.get(bits);
+			BoardLayout layout = new BoardLayout(width, height, seed, BitSet.valueOf(bits));
+			if (layout.mineCount() != mineCount) {
+				throw new IOException("Board has " + layout.mineCount() + " mines, header says " + mineCount);
+			}
+			return layout;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated board record", e);
+		}
+	}
+
+	static void write(Path path, BoardLayout layout) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			put(channel.map(FileChannel.MapMode.READ_WRITE, 0, recordBytes(layout)), layout);
+		}
+	}
+
+	static BoardLayout read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return get(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	// Reads a board in either the binary or the text format.
+	static BoardLayout load(Path path) throws IOException {
+		byte[] magic = new byte[4];
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			channel.read(ByteBuffer.wrap(magic));
+		}
+		return ByteBuffer.wrap(magic).getInt() == MAGIC ? read(path) : fromText(path);
+	}
+
+	// Parses the text format, one line per row like "|*| | |". The size follows from the text.
+	static BoardLayout fromText(Path path) throws IOException {
+		List<String> rows = new ArrayList<>();
+		for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+			if (line.indexOf('|') != -1) {
+				rows.add(line);
+			}
+		}
+		if (rows.isEmpty()) {
+			throw new IOException("No board in " + path);
+		}
+		int width = 0;
+		for (int i = 0; i < rows.get(0).length(); i++) {
+			if (rows.get(0).charAt(i) == '|') {
+				width++;
+			}
+		}
+		width--;
+		BitSet mines = new BitSet();
+		for (int y = 0; y < rows.size(); y++) {
+			String row = rows.get(y);
+			for (int x = 0; x < width && 2 * x + 1 < row.length(); x++) {
+				if (row.charAt(2 * x + 1) == '*') {
+					mines.set(y * width + x);
+				}
+			}
+		}
+		return new BoardLayout(width, rows.size(), 0, mines);
+	}
+
+	// Converts a text board to the binary format: BoardFile <input.txt> <output.board>
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("usage: BoardFile <input.txt> <output.board>");
+			return;
+		}
+		BoardLayout layout = fromText(Paths.get(args[0]));
+		write(Paths.get(args[1]), layout);
+		System.out.println("wrote " + layout.width + "x" + layout.height + " board with "
+				+ layout.mineCount() + " mines to " + args[1]);
+	}
+}
@@ -0,0 +1,50 @@
+package javagym;
+
+/**
+ * Whole-board scans over the byte layout of {@link BoardView}: a row of {@code stride} cells per line,
+ * with a ring of {@link BoardView#OUTSIDE} cells around the board.
+ * <p>
+ * {@link #get()} returns the kernels built on the incubating Vector API when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} and the build included them ({@code mvn -P vector}), and
+ * plain loops otherwise. Both give the same results. {@code -Djavagym.kernels=scalar} forces the loops.
+ */
+interface BoardKernels {
+
+	// The number of cells from 'from' up to 'to' with the given state.
+	int count(byte[] states, int from, int to, int state);
+
+	// Writes the revealed cells with an unknown neighbour to 'out', in increasing order, and returns how many.
+	default int frontier(byte[] states, int stride, int rows, int[] out) {
+		return frontier(states, stride, 1, rows - 1, out);
+	}
+
+	// The same for the rows from 'fromRow' up to 'toRow'.
+	int frontier(byte[] states, int stride, int fromRow, int toRow, int[] out);
+
+	// For every cell inside the ring, the number of neighbours with the given value.
+	void neighbourCounts(byte[] values, int stride, int rows, int value, byte[] counts);
+
+	static BoardKernels get() {
+		return Holder.KERNELS;
+	}
+
+	final class Holder {
+
+		private static final BoardKernels KERNELS = load();
+
+		private Holder() {
+		}
+
+		private static BoardKernels load() {
+			if (!"scalar".equals(System.getProperty("javagym.kernels"))
+					&& ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+				try {
+					return (BoardKernels) Class.forName("javagym.VectorKernels").getDeclaredConstructor().newInstance();
+				} catch (ReflectiveOperationException | LinkageError e) {
+					// Built without the vector profile.
+				}
+			}
+			return new ScalarKernels();
+		}
+	}
+}
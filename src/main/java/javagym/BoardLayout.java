@@ -0,0 +1,54 @@
+package javagym;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * The mines of one board, independent of any game. Cells are numbered {@code y * width + x} with
+ * 0-based coordinates; the seed is the one the board was generated with, or 0 if it is unknown.
+ */
+final class BoardLayout {
+
+	final int width;
+	final int height;
+	final long seed;
+	final BitSet mines;
+
+	BoardLayout(int width, int height, long seed, BitSet mines) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Invalid board size " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.seed = seed;
+		this.mines = mines;
+	}
+
+	int mineCount() {
+		return mines.cardinality();
+	}
+
+	boolean isMine(int x, int y) {
+		return mines.get(y * width + x);
+	}
+
+	// Places the mines exactly like MineSweeper.generateMinesRandom does for the same seed.
+	static BoardLayout random(int width, int height, int mineCount, int seed) {
+		if (mineCount > width * height) {
+			throw new IllegalArgumentException("Too many mines: " + mineCount);
+		}
+		Random rand = new Random(seed);
+		BitSet mines = new BitSet(width * height);
+		for (int m = 0; m < mineCount; m++) {
+			while (true) {
+				int x = rand.nextInt(width);
+				int y = rand.nextInt(height);
+				if (!mines.get(y * width + x)) {
+					mines.set(y * width + x);
+					break;
+				}
+			}
+		}
+		return new BoardLayout(width, height, seed, mines);
+	}
+}
@@ -0,0 +1,134 @@
+package javagym;
+
+import java.util.Arrays;
+
+/**
+ * How hard a board is, independent of any strategy.
+ * <ul>
+ *   <li>3BV: the clicks a player who knows the mines needs, one per opening and one per isolated number.</li>
+ *   <li>Openings: the areas of connected 0 cells, which open up at once.</li>
+ *   <li>Isolated numbers: safe cells that are not a 0 and not next to one, so no opening reveals them.</li>
+ *   <li>Forced guesses: how often a {@link DeductionSolver} that plays from the first click like the game
+ *   does gets stuck, with the pair rule and all islands of up to {@link #ISLAND_UNKNOWNS} unknown cells,
+ *   and has to open a cell it can not prove safe. It guesses right, the lowest safe cell next to an open one.
+ *   It does not reason about the number of mines left beyond all of them being flagged, so on a few boards
+ *   it guesses where a perfect player would not.</li>
+ * </ul>
+ */
+final class BoardMetrics {
+
+	static final int ISLAND_UNKNOWNS = 24;
+
+	final int threeBV;
+	final int openings;
+	final int isolated;
+	final int guesses;
+
+	private BoardMetrics(int threeBV, int openings, int isolated, int guesses) {
+		this.threeBV = threeBV;
+		this.openings = openings;
+		this.isolated = isolated;
+		this.guesses = guesses;
+	}
+
+	/**
+	 * @param firstX 0-based, like firstY; the first click opens the safe cells around it, like in the game
+	 */
+	static BoardMetrics of(BoardLayout layout, int firstX, int firstY) {
+		return of(Topology.grid(layout.width, layout.height), layout, firstY * layout.width + firstX);
+	}
+
+	// The metrics of a layout with the cell numbers of the topology.
+	static BoardMetrics of(Topology topology, BoardLayout layout, int first) {
+		DeductionSolver solver = new DeductionSolver(topology);
+		solver.setMines(layout);
+		int cells = topology.cells();
+
+		// Openings are counted by opening the 0 cells one area at a time.
+		solver.restart();
+		int openings = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			if (!solver.mine[cell] && solver.number[cell] == 0 && solver.state[cell] == DeductionSolver.UNKNOWN) {
+				solver.open(cell);
+				openings++;
+			}
+		}
+		// What is left unknown are the mines and the safe cells that no opening reaches.
+		int isolated = BoardKernels.get().count(solver.state, 0, cells, DeductionSolver.UNKNOWN) - solver.mineCount();
+
+		solver.restart();
+		if (!solver.mine[first]) {
+			solver.open(first);
+		}
+		for (int i = topology.start[first]; i < topology.start[first + 1]; i++) {
+			if (!solver.mine[topology.neighbours[i]]) {
+				solver.open(topology.neighbours[i]);
+			}
+		}
+		int guesses = 0;
+		while (true) {
+			solver.deduce();
+			if (solver.solved()) {
+				break;
+			}
+			if (solver.deduceIslands(ISLAND_UNKNOWNS)) {
+				continue;
+			}
+			solver.open(safeGuess(solver));
+			guesses++;
+		}
+		return new BoardMetrics(openings + isolated, openings, isolated, guesses);
+	}
+
+	// The first safe unknown cell next to an open cell, or else the first safe unknown cell.
+	private static int safeGuess(DeductionSolver solver) {
+		int any = -1;
+		for (int cell = 0; cell < solver.state.length; cell++) {
+			if (solver.state[cell] != DeductionSolver.UNKNOWN || solver.mine[cell]) {
+				continue;
+			}
+			if (solver.nearOpen(cell)) {
+				return cell;
+			}
+			if (any == -1) {
+				any = cell;
+			}
+		}
+		return any;
+	}
+
+	/**
+	 * Wins and time per slice of one metric, for the games of a tournament or a corpus. A slice is a range
+	 * of values from 'bounds', or a quarter of the games when bounds is null.
+	 *
+	 * @return one line per slice
+	 */
+	static String slices(String name, int[] metric, boolean[] won, long[] nanos, int[] bounds) {
+		if (bounds == null) {
+			int[] sorted = metric.clone();
+			Arrays.sort(sorted);
+			bounds = sorted.length == 0 ? new int[]{0}
+					: Arrays.stream(new int[]{0, sorted.length / 4, sorted.length / 2, 3 * sorted.length / 4})
+					.map(i -> sorted[i]).distinct().toArray();
+		}
+		StringBuilder lines = new StringBuilder();
+		for (int b = 0; b < bounds.length; b++) {
+			int from = bounds[b];
+			int to = b + 1 < bounds.length ? bounds[b + 1] : Integer.MAX_VALUE;
+			int games = 0;
+			int wins = 0;
+			long time = 0;
+			for (int game = 0; game < metric.length; game++) {
+				if (metric[game] >= from && metric[game] < to) {
+					games++;
+					wins += won[game] ? 1 : 0;
+					time += nanos[game];
+				}
+			}
+			String range = to == Integer.MAX_VALUE ? from + "+" : to == from + 1 ? "" + from : from + "-" + (to - 1);
+			lines.append(String.format("  %-9s %-9s %6d games %6.1f%% won %8.2f ms%n", name, range, games,
+					games == 0 ? 0 : 100.0 * wins / games, games == 0 ? 0 : time / 1e6 / games));
+		}
+		return lines.toString();
+	}
+}
@@ -0,0 +1,200 @@
+package javagym;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * An immutable copy of a visible board, for strategies that simulate moves.
+ * <p>
+ * The cells are kept in tiles of 256 that are shared between snapshots and forks. {@link #fork()} gives a
+ * board that can be changed, and only copies a tile the first time a cell in it is set, so taking a
+ * snapshot or a fork costs a copy of the tile references rather than of the cells. A snapshot never
+ * changes, so any number of threads can fork the same one and each play on their own fork.
+ */
+final class BoardSnapshot implements BoardView {
+
+	private static final int TILE_SHIFT = 8;
+	private static final int TILE_SIZE = 1 << TILE_SHIFT;
+	private static final int TILE_MASK = TILE_SIZE - 1;
+
+	private final int width;
+	private final int height;
+	private final byte[][] tiles;
+
+	private BoardSnapshot(int width, int height, byte[][] tiles) {
+		this.width = width;
+		this.height = height;
+		this.tiles = tiles;
+	}
+
+	// Copies a board cell by cell. MineSweeper boards give cheaper snapshots through snapshot().
+	static BoardSnapshot copyOf(BoardView board) {
+		return Fork.copyOf(board).snapshot();
+	}
+
+	@Override
+	public BoardSnapshot snapshot() {
+		return this;
+	}
+
+	Fork fork() {
+		return new Fork(width, height, tiles.clone(), true);
+	}
+
+	@Override
+	public int width() {
+		return width;
+	}
+
+	@Override
+	public int height() {
+		return height;
+	}
+
+	@Override
+	public int stride() {
+		return width + 2;
+	}
+
+	@Override
+	public int cellCount() {
+		return (width + 2) * (height + 2);
+	}
+
+	@Override
+	public int state(int cell) {
+		return tiles[cell >>> TILE_SHIFT][cell & TILE_MASK];
+	}
+
+	@Override
+	public int[] neighbourOffsets() {
+		return offsets(stride());
+	}
+
+	private static int[] offsets(int stride) {
+		return new int[]{-stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1};
+	}
+
+	// A snapshot does not change.
+	@Override
+	public PrimitiveIterator.OfInt changedCells() {
+		return Arrays.stream(new int[0]).iterator();
+	}
+
+	/**
+	 * A board that starts as a copy of a snapshot and can be changed without affecting it.
+	 * A fork is not thread-safe; give every thread its own.
+	 */
+	static final class Fork implements BoardView {
+
+		private final int width;
+		private final int height;
+		private final byte[][] tiles;
+		// The tiles this fork has copied, which are not shared and can be written in place.
+		private final boolean[] owned;
+
+		// Null for a mirror, which nobody asks for its changes.
+		private int[] changeLog;
+		private int changeCount = 0;
+
+		private Fork(int width, int height, byte[][] tiles, boolean logChanges) {
+			this.width = width;
+			this.height = height;
+			this.tiles = tiles;
+			this.owned = new boolean[tiles.length];
+			this.changeLog = logChanges ? new int[64] : null;
+		}
+
+		// A fork of its own with the states of the board.
+		static Fork copyOf(BoardView board) {
+			return copyOf(board, true);
+		}
+
+		// A copy that the board keeps up to date with set() to hand out snapshots, like MineSweeper does.
+		// It does not log the changes, so changedCells() is always empty.
+		static Fork mirrorOf(BoardView board) {
+			return copyOf(board, false);
+		}
+
+		private static Fork copyOf(BoardView board, boolean logChanges) {
+			int cellCount = board.cellCount();
+			Fork fork = new Fork(board.width(), board.height(), new byte[(cellCount + TILE_MASK) >>> TILE_SHIFT][],
+					logChanges);
+			for (int tile = 0; tile < fork.tiles.length; tile++) {
+				fork.tiles[tile] = new byte[TILE_SIZE];
+				fork.owned[tile] = true;
+			}
+			for (int cell = 0; cell < cellCount; cell++) {
+				fork.tiles[cell >>> TILE_SHIFT][cell & TILE_MASK] = (byte) board.state(cell);
+			}
+			return fork;
+		}
+
+		void set(int cell, int state) {
+			int tile = cell >>> TILE_SHIFT;
+			if (tiles[tile][cell & TILE_MASK] == state) {
+				return;
+			}
+			if (!owned[tile]) {
+				tiles[tile] = tiles[tile].clone();
+				owned[tile] = true;
+			}
+			tiles[tile][cell & TILE_MASK] = (byte) state;
+			if (changeLog == null) {
+				return;
+			}
+			if (changeCount == changeLog.length) {
+				changeLog = Arrays.copyOf(changeLog, 2 * changeCount);
+			}
+			changeLog[changeCount++] = cell;
+		}
+
+		// The board as it is now. Later changes to this fork copy the tiles they touch first.
+		@Override
+		public BoardSnapshot snapshot() {
+			Arrays.fill(owned, false);
+			return new BoardSnapshot(width, height, tiles.clone());
+		}
+
+		@Override
+		public int width() {
+			return width;
+		}
+
+		@Override
+		public int height() {
+			return height;
+		}
+
+		@Override
+		public int stride() {
+			return width + 2;
+		}
+
+		@Override
+		public int cellCount() {
+			return (width + 2) * (height + 2);
+		}
+
+		@Override
+		public int state(int cell) {
+			return tiles[cell >>> TILE_SHIFT][cell & TILE_MASK];
+		}
+
+		@Override
+		public int[] neighbourOffsets() {
+			return offsets(stride());
+		}
+
+		// The cells set since the previous call. A cell that was set several times is listed that often.
+		@Override
+		public PrimitiveIterator.OfInt changedCells() {
+			if (changeLog == null) {
+				return Arrays.stream(new int[0]).iterator();
+			}
+			int[] cells = Arrays.copyOf(changeLog, changeCount);
+			changeCount = 0;
+			return Arrays.stream(cells).iterator();
+		}
+	}
+}
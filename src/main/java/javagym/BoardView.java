@@ -0,0 +1,84 @@
+package javagym;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * Read-only view of the visible board for strategies.
+ * <p>
+ * Cells are numbered {@code x + y * stride()}, using the same coordinates as the game: the board runs
+ * from (1, 1) to (width, height) and is surrounded by a ring of {@link #OUTSIDE} cells. Because of
+ * that ring, adding any of the {@link #neighbourOffsets()} to a cell on the board gives a valid cell
+ * without bounds checks.
+ * <p>
+ * A state is the number of mines around a revealed cell (0 to 8), or one of the negative codes below.
+ */
+interface BoardView {
+
+	int UNKNOWN = -1;
+	int FLAG = -2;
+	int OUTSIDE = -3;
+	// Revealed, but its number is only known after the board is updated at the end of the turn.
+	int REVEALED = 9;
+
+	int width();
+
+	int height();
+
+	int stride();
+
+	// Total number of cells, including the ring around the board.
+	int cellCount();
+
+	default int index(int x, int y) {
+		return x + y * stride();
+	}
+
+	default int x(int cell) {
+		return cell % stride();
+	}
+
+	default int y(int cell) {
+		return cell / stride();
+	}
+
+	int state(int cell);
+
+	default int state(int x, int y) {
+		return state(index(x, y));
+	}
+
+	// The 8 index offsets from a cell to its neighbours on the grid. A game on another topology has its
+	// neighbours in MineSweeper.getTopology().
+	int[] neighbourOffsets();
+
+	// Writes the revealed cells with an unknown neighbour to 'out', in increasing order, and returns how many.
+	// 'out' must have room for every cell on the board.
+	default int frontierCells(int[] out) {
+		int[] offsets = neighbourOffsets();
+		int count = 0;
+		for (int y = 1; y <= height(); y++) {
+			for (int x = 1; x <= width(); x++) {
+				int cell = index(x, y);
+				if (state(cell) < 0) {
+					continue;
+				}
+				for (int offset : offsets) {
+					if (state(cell + offset) == UNKNOWN) {
+						out[count++] = cell;
+						break;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	// An immutable copy of the board as it is now, see BoardSnapshot.
+	default BoardSnapshot snapshot() {
+		return BoardSnapshot.copyOf(this);
+	}
+
+	// Iterates over the cells whose state changed since the previous call, each cell once.
+	// The iterator is only valid until the next call.
+	PrimitiveIterator.OfInt changedCells();
+}
@@ -0,0 +1,165 @@
+package javagym;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One value per cell of a board, as used by {@link MineSweeper} for the hidden and the visible board.
+ * <p>
+ * The on-heap layer is a plain byte array. The off-heap layer packs 1, 2 or 4 bits per cell into a direct
+ * buffer outside the Java heap, so boards of hundreds of millions of cells do not weigh on the garbage
+ * collector. Its memory is freed by {@link #close()}, not by the collector.
+ */
+interface CellLayer {
+
+	int get(int cell);
+
+	void set(int cell, int value);
+
+	// Sets the first 'cells' cells to the value.
+	void fill(int cells, int value);
+
+	// The number of cells that fit.
+	int capacity();
+
+	// Frees the memory. The layer can not be used after this.
+	void close();
+
+	// The values as an array, for the kernels of BoardKernels, or null if the layer is not on the heap.
+	default byte[] array() {
+		return null;
+	}
+
+	static CellLayer onHeap(int cells) {
+		return new Heap(cells);
+	}
+
+	// A layer for values from 'min' up to min + 2^bits - 1.
+	static CellLayer offHeap(int cells, int bits, int min) {
+		return new OffHeap(cells, bits, min);
+	}
+
+	final class Heap implements CellLayer {
+
+		private byte[] values;
+
+		private Heap(int cells) {
+			values = new byte[cells];
+		}
+
+		@Override
+		public int get(int cell) {
+			return values[cell];
+		}
+
+		@Override
+		public void set(int cell, int value) {
+			values[cell] = (byte) value;
+		}
+
+		@Override
+		public void fill(int cells, int value) {
+			Arrays.fill(values, 0, cells, (byte) value);
+		}
+
+		@Override
+		public int capacity() {
+			return values.length;
+		}
+
+		@Override
+		public void close() {
+			values = null;
+		}
+
+		@Override
+		public byte[] array() {
+			return values;
+		}
+	}
+
+	final class OffHeap implements CellLayer {
+
+		private final int shift;
+		private final int bits;
+		private final int mask;
+		private final int min;
+		private final int capacity;
+		private ByteBuffer buffer;
+
+		private OffHeap(int cells, int bits, int min) {
+			if (bits != 1 && bits != 2 && bits != 4) {
+				throw new IllegalArgumentException("Bits per cell must be 1, 2 or 4: " + bits);
+			}
+			this.bits = bits;
+			this.shift = Integer.numberOfTrailingZeros(8 / bits);
+			this.mask = (1 << bits) - 1;
+			this.min = min;
+			this.capacity = cells;
+			this.buffer = ByteBuffer.allocateDirect((int) (((long) cells * bits + 7) / 8));
+		}
+
+		@Override
+		public int get(int cell) {
+			int bit = (cell & ((1 << shift) - 1)) * bits;
+			return ((buffer.get(cell >>> shift) >>> bit) & mask) + min;
+		}
+
+		@Override
+		public void set(int cell, int value) {
+			int index = cell >>> shift;
+			int bit = (cell & ((1 << shift) - 1)) * bits;
+			int packed = buffer.get(index) & ~(mask << bit) | ((value - min) & mask) << bit;
+			buffer.put(index, (byte) packed);
+		}
+
+		@Override
+		public void fill(int cells, int value) {
+			int pattern = (value - min) & mask;
+			for (int width = bits; width < 8; width *= 2) {
+				pattern |= pattern << width;
+			}
+			int whole = cells >>> shift;
+			long longPattern = (pattern & 0xFFL) * 0x0101010101010101L;
+			int i = 0;
+			for (; i + 8 <= whole; i += 8) {
+				buffer.putLong(i, longPattern);
+			}
+			for (; i < whole; i++) {
+				buffer.put(i, (byte) pattern);
+			}
+			for (int cell = whole << shift; cell < cells; cell++) {
+				set(cell, value);
+			}
+		}
+
+		@Override
+		public int capacity() {
+			return capacity;
+		}
+
+		@Override
+		public void close() {
+			ByteBuffer freed = buffer;
+			buffer = null;
+			if (freed != null) {
+				free(freed);
+			}
+		}
+
+		// Frees a direct buffer right away where the JDK allows it, else the collector does it eventually.
+		private static void free(ByteBuffer buffer) {
+			try {
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// Left to the garbage collector.
+			}
+		}
+	}
+}
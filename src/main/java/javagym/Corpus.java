@@ -0,0 +1,339 @@
+package javagym;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Board corpora on disk, generated and played in a streaming way so they can be much larger than the heap.
+ * <p>
+ * A corpus {@code name} consists of {@code name.boards}, the {@link BoardFile} records one after the other,
+ * and {@code name.index}, a long per board with the offset where its record ends. Board {@code i} is derived
+ * from the master seed and {@code i} alone, so generation can stop at any point and be continued later.
+ * A corpus holds at most {@link #MAX_BOARDS} boards, because the boards with a result are kept in a BitSet.
+ * <p>
+ * Playing hands out chunks of boards to worker threads from a shared cursor. Every worker maps only the
+ * part of the corpus of its current chunk, and appends one fixed-size record per board to the results file:
+ * <pre>
+ *   long board
+ *   long nanos
+ *   int  mineCount
+ *   int  won        1 or 0
+ * </pre>
+ * When the results file already exists, the boards in it are skipped, so an interrupted run resumes. A
+ * worker that fails, on a bad record or in the strategy, fails the run once the others are done; the boards
+ * of its chunk get no result, so the next run plays them again.
+ * <p>
+ * Analyzing works the same way and writes the {@link BoardMetrics} of every board, for the first click of
+ * YourStrategy, in records of the same size:
+ * <pre>
+ *   long board
+ *   int  threeBV
+ *   int  openings
+ *   int  isolated
+ *   int  guesses
+ * </pre>
+ * Usage:
+ * <pre>
+ *   Corpus generate name count masterSeed minSize maxSize minDensity maxDensity
+ *   Corpus play name results [threads]
+ *   Corpus analyze name metrics [threads]
+ * </pre>
+ */
+final class Corpus {
+
+	static final int RESULT_BYTES = 24;
+	static final long MAX_BOARDS = Integer.MAX_VALUE;
+	private static final int CHUNK_BOARDS = 64;
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private Corpus() {
+	}
+
+	static Path boardsPath(String name) {
+		return Paths.get(name + ".boards");
+	}
+
+	static Path indexPath(String name) {
+		return Paths.get(name + ".index");
+	}
+
+	// The board with the given number; sizes and densities are uniform in the given ranges.
+	static BoardLayout board(long masterSeed, long board, int minSize, int maxSize,
+			double minDensity, double maxDensity) {
+		SplittableRandom random = new SplittableRandom(masterSeed + board * 0x9E3779B97F4A7C15L);
+		int width = minSize + random.nextInt(maxSize - minSize + 1);
+		int height = minSize + random.nextInt(maxSize - minSize + 1);
+		double density = minDensity + (maxDensity - minDensity) * random.nextDouble();
+		int mineCount = Math.max(1, Math.min(width * height - 9, (int) Math.round(density * width * height)));
+		int seed = random.nextInt(Integer.MAX_VALUE - 1) + 1;
+		return BoardLayout.random(width, height, mineCount, seed);
+	}
+
+	// Writes boards until the corpus holds 'count' of them, continuing after the boards already there.
+	static void generate(String name, long count, long masterSeed, int minSize, int maxSize,
+			double minDensity, double maxDensity) throws IOException {
+		if (count > MAX_BOARDS) {
+			throw new IllegalArgumentException("A corpus holds at most " + MAX_BOARDS + " boards");
+		}
+		try (FileChannel boards = FileChannel.open(boardsPath(name),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				FileChannel index = FileChannel.open(indexPath(name),
+						StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// Drop whatever an interrupted run wrote after the last complete board.
+			long done = index.size() / 8;
+			long end = 0;
+			if (done > 0) {
+				ByteBuffer last = ByteBuffer.allocate(8);
+				index.read(last, (done - 1) * 8);
+				end = last.getLong(0);
+			}
+			index.truncate(done * 8);
+			boards.truncate(end);
+			boards.position(end);
+			index.position(done * 8);
+
+			ByteBuffer boardBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+			ByteBuffer indexBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+			for (long board = done; board < count; board++) {
+				BoardLayout layout = board(masterSeed, board, minSize, maxSize, minDensity, maxDensity);
+				int bytes = BoardFile.recordBytes(layout);
+				if (boardBuffer.remaining() < bytes || indexBuffer.remaining() < 8) {
+					flush(boards, boardBuffer, index, indexBuffer);
+				}
+				if (boardBuffer.remaining() < bytes) {
+					ByteBuffer record = ByteBuffer.allocate(bytes);
+					BoardFile.put(record, layout);
+					record.flip();
+					writeFully(boards, record);
+				} else {
+					BoardFile.put(boardBuffer, layout);
+				}
+				end += bytes;
+				indexBuffer.putLong(end);
+			}
+			flush(boards, boardBuffer, index, indexBuffer);
+		}
+	}
+
+	// The boards go to disk before their index entries, so the index never points past the data.
+	private static void flush(FileChannel boards, ByteBuffer boardBuffer,
+			FileChannel index, ByteBuffer indexBuffer) throws IOException {
+		boardBuffer.flip();
+		writeFully(boards, boardBuffer);
+		boardBuffer.clear();
+		indexBuffer.flip();
+		writeFully(index, indexBuffer);
+		indexBuffer.clear();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	// Maps the records of boards first to last.
+	private static MappedByteBuffer mapChunk(FileChannel boards, FileChannel index, long first, long last)
+			throws IOException {
+		// Offsets of the end of the board before the chunk up to the end of the last board.
+		long indexStart = Math.max(0, first - 1) * 8;
+		MappedByteBuffer offsets = index.map(FileChannel.MapMode.READ_ONLY, indexStart, (last + 1) * 8 - indexStart);
+		long start = first == 0 ? 0 : offsets.getLong(0);
+		long end = offsets.getLong(offsets.limit() - 8);
+		return boards.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+	}
+
+	private static long boardCount(FileChannel index) throws IOException {
+		long count = index.size() / 8;
+		if (count > MAX_BOARDS) {
+			throw new IOException("Corpus has " + count + " boards, at most " + MAX_BOARDS + " can be played");
+		}
+		return count;
+	}
+
+	private interface Worker {
+		void run() throws IOException;
+	}
+
+	// Runs the worker on the given number of threads and waits for all of them. When any failed, this
+	// throws with the first failure as the cause and the others suppressed.
+	private static void runWorkers(int threads, Worker worker) throws IOException, InterruptedException {
+		Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				try {
+					worker.run();
+				} catch (IOException | RuntimeException e) {
+					failures.add(e);
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread thread : workers) {
+			thread.join();
+		}
+		if (!failures.isEmpty()) {
+			IOException failed = new IOException(failures.size() + " workers failed, run again to resume",
+					failures.poll());
+			failures.forEach(failed::addSuppressed);
+			throw failed;
+		}
+	}
+
+	// The boards that already have a result, after cutting off a partly written last record.
+	static BitSet playedBoards(Path results) throws IOException {
+		BitSet played = new BitSet();
+		if (!Files.exists(results)) {
+			return played;
+		}
+		try (FileChannel channel = FileChannel.open(results, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long records = channel.size() / RESULT_BYTES;
+			channel.truncate(records * RESULT_BYTES);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(RESULT_BYTES * 4096);
+			long position = 0;
+			while (position < records * RESULT_BYTES) {
+				buffer.clear();
+				channel.read(buffer, position);
+				buffer.flip();
+				while (buffer.remaining() >= RESULT_BYTES) {
+					played.set(Math.toIntExact(buffer.getLong(buffer.position())));
+					buffer.position(buffer.position() + RESULT_BYTES);
+					position += RESULT_BYTES;
+				}
+			}
+		}
+		return played;
+	}
+
+	// Plays all boards without a result yet and returns the number of boards played and won now.
+	static long[] play(String name, Path results, int threads) throws IOException, InterruptedException {
+		BitSet played = playedBoards(results);
+		AtomicLong nextChunk = new AtomicLong();
+		AtomicLong games = new AtomicLong();
+		AtomicLong wins = new AtomicLong();
+
+		try (FileChannel boards = FileChannel.open(boardsPath(name), StandardOpenOption.READ);
+				FileChannel index = FileChannel.open(indexPath(name), StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(results, StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			long count = boardCount(index);
+			runWorkers(threads, () -> {
+				GameRunner gameRunner = new GameRunner(new YourStrategy(10, 10));
+				gameRunner.setVerbose(false);
+				ByteBuffer chunkResults = ByteBuffer.allocateDirect(RESULT_BYTES * CHUNK_BOARDS);
+				for (long chunk = nextChunk.getAndIncrement(); chunk * CHUNK_BOARDS < count;
+						chunk = nextChunk.getAndIncrement()) {
+					long first = chunk * CHUNK_BOARDS;
+					long last = Math.min(count, first + CHUNK_BOARDS) - 1;
+					if (played.nextClearBit(Math.toIntExact(first)) > last) {
+						continue;
+					}
+					MappedByteBuffer data = mapChunk(boards, index, first, last);
+
+					chunkResults.clear();
+					for (long board = first; board <= last; board++) {
+						BoardLayout layout = BoardFile.get(data);
+						if (played.get(Math.toIntExact(board))) {
+							continue;
+						}
+						long startGame = System.nanoTime();
+						gameRunner.initBoard(layout);
+						boolean won = gameRunner.run(false);
+						chunkResults.putLong(board);
+						chunkResults.putLong(System.nanoTime() - startGame);
+						chunkResults.putInt(layout.mineCount());
+						chunkResults.putInt(won ? 1 : 0);
+						games.incrementAndGet();
+						if (won) {
+							wins.incrementAndGet();
+						}
+					}
+					chunkResults.flip();
+					writeFully(out, chunkResults);
+				}
+			});
+		}
+		return new long[]{games.get(), wins.get()};
+	}
+
+	// Writes the metrics of all boards that have none yet and returns how many that were.
+	static long analyze(String name, Path metrics, int threads) throws IOException, InterruptedException {
+		BitSet analyzed = playedBoards(metrics);
+		AtomicLong nextChunk = new AtomicLong();
+		AtomicLong boardsDone = new AtomicLong();
+
+		try (FileChannel boards = FileChannel.open(boardsPath(name), StandardOpenOption.READ);
+				FileChannel index = FileChannel.open(indexPath(name), StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(metrics, StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			long count = boardCount(index);
+			runWorkers(threads, () -> {
+				ByteBuffer chunkResults = ByteBuffer.allocateDirect(RESULT_BYTES * CHUNK_BOARDS);
+				for (long chunk = nextChunk.getAndIncrement(); chunk * CHUNK_BOARDS < count;
+						chunk = nextChunk.getAndIncrement()) {
+					long first = chunk * CHUNK_BOARDS;
+					long last = Math.min(count, first + CHUNK_BOARDS) - 1;
+					if (analyzed.nextClearBit(Math.toIntExact(first)) > last) {
+						continue;
+					}
+					MappedByteBuffer data = mapChunk(boards, index, first, last);
+
+					chunkResults.clear();
+					for (long board = first; board <= last; board++) {
+						BoardLayout layout = BoardFile.get(data);
+						if (analyzed.get(Math.toIntExact(board))) {
+							continue;
+						}
+						BoardMetrics boardMetrics = BoardMetrics.of(layout, 1, 1);
+						chunkResults.putLong(board);
+						chunkResults.putInt(boardMetrics.threeBV);
+						chunkResults.putInt(boardMetrics.openings);
+						chunkResults.putInt(boardMetrics.isolated);
+						chunkResults.putInt(boardMetrics.guesses);
+						boardsDone.incrementAndGet();
+					}
+					chunkResults.flip();
+					writeFully(out, chunkResults);
+				}
+			});
+		}
+		return boardsDone.get();
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 8 && args[0].equals("generate")) {
+			long start = System.nanoTime();
+			generate(args[1], Long.parseLong(args[2]), Long.parseLong(args[3]),
+					Integer.parseInt(args[4]), Integer.parseInt(args[5]),
+					Double.parseDouble(args[6]), Double.parseDouble(args[7]));
+			System.out.println("generated " + args[2] + " boards in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+		} else if ((args.length == 3 || args.length == 4) && args[0].equals("play")) {
+			int threads = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+			long start = System.nanoTime();
+			long[] played = play(args[1], Paths.get(args[2]), threads);
+			System.out.println("played " + played[0] + " boards, won " + played[1] + ", in "
+					+ (System.nanoTime() - start) / 1_000_000 + " ms");
+		} else if ((args.length == 3 || args.length == 4) && args[0].equals("analyze")) {
+			int threads = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+			long start = System.nanoTime();
+			long analyzed = analyze(args[1], Paths.get(args[2]), threads);
+			System.out.println("analyzed " + analyzed + " boards in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+		} else {
+			System.out.println("usage: Corpus generate name count masterSeed minSize maxSize minDensity maxDensity");
+			System.out.println("       Corpus play name results [threads]");
+			System.out.println("       Corpus analyze name metrics [threads]");
+		}
+	}
+}
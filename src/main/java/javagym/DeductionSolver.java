@@ -0,0 +1,492 @@
+package javagym;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Plays a board whose mines it knows by deduction alone, for tools that judge boards rather than play them.
+ * <p>
+ * The board can have any {@link Topology}. Opening a cell or flagging one queues the open numbers around it,
+ * and {@link #deduce()} works through the queue with two rules: a number whose unknown neighbours are all
+ * mines or all safe, and a pair of numbers close together where one has so many more mines left than the
+ * other that the cells only it sees must all be mines, and the cells only the other one sees safe. The pair
+ * rule only runs once the single rule has nothing left to do. {@link #deduceIslands} goes further and decides
+ * what the numbers of a whole island decide, see {@link IslandCache}.
+ */
+class DeductionSolver {
+
+	static final byte UNKNOWN = 0;
+	static final byte OPEN = 1;
+	static final byte FLAG = 2;
+
+	final Topology topology;
+	final int width;
+	final int height;
+	final boolean[] mine;
+	final byte[] number;
+	final byte[] state;
+	private final int[] start;
+	private final int[] neighbours;
+	private int mineCount = 0;
+	private int opened = 0;
+	private int flags = 0;
+
+	// Open numbers to look at again, and whether they are queued.
+	private final int[] queue;
+	private final boolean[] queued;
+	private int queueSize = 0;
+	private final int[] pairQueue;
+	private final boolean[] pairQueued;
+	private int pairQueueSize = 0;
+	private final int[] stack;
+	// The cells already looked at as the other one of a pair, marked with the current pass.
+	private final int[] pairPass;
+	private int pass = 0;
+
+	private final int[] around;
+	private final int[] aroundOther;
+	// On the grid, the mines and the numbers with a ring around the board, for the BoardKernels.
+	private byte[] minePlane;
+	private byte[] numberPlane;
+
+	DeductionSolver(int width, int height) {
+		this(Topology.grid(width, height));
+	}
+
+	DeductionSolver(Topology topology) {
+		this.topology = topology;
+		width = topology.width;
+		height = topology.cells() / topology.width;
+		start = topology.start;
+		neighbours = topology.neighbours;
+		int cells = topology.cells();
+		mine = new boolean[cells];
+		number = new byte[cells];
+		state = new byte[cells];
+		queue = new int[cells];
+		queued = new boolean[cells];
+		pairQueue = new int[cells];
+		pairQueued = new boolean[cells];
+		stack = new int[cells];
+		pairPass = new int[cells];
+		around = new int[topology.maxDegree];
+		aroundOther = new int[topology.maxDegree];
+	}
+
+	// The cell of 0-based coordinates.
+	int cell(int x, int y) {
+		return topology.cell(x, y);
+	}
+
+	// The mines of a layout with the same cell numbers, so with the layers of a cube below each other.
+	void setMines(BoardLayout layout) {
+		Arrays.fill(mine, false);
+		for (int i = layout.mines.nextSetBit(0); i >= 0; i = layout.mines.nextSetBit(i + 1)) {
+			mine[i] = true;
+		}
+		countNumbers();
+	}
+
+	// Puts mines on the first 'count' of 'cells' and nowhere else.
+	void setMines(int[] cells, int count) {
+		Arrays.fill(mine, false);
+		for (int i = 0; i < count; i++) {
+			mine[cells[i]] = true;
+		}
+		countNumbers();
+	}
+
+	// The numbers and the mine count of the mines as they are, in one pass over the board.
+	private void countNumbers() {
+		if (!topology.isGrid()) {
+			Arrays.fill(number, (byte) 0);
+			mineCount = 0;
+			for (int cell = 0; cell < mine.length; cell++) {
+				if (mine[cell]) {
+					mineCount++;
+					for (int i = start[cell]; i < start[cell + 1]; i++) {
+						number[neighbours[i]]++;
+					}
+				}
+			}
+			return;
+		}
+		int stride = width + 2;
+		if (minePlane == null) {
+			minePlane = new byte[stride * (height + 2)];
+			numberPlane = new byte[minePlane.length];
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				minePlane[x + 1 + (y + 1) * stride] = (byte) (mine[x + y * width] ? 1 : 0);
+			}
+		}
+		BoardKernels kernels = BoardKernels.get();
+		kernels.neighbourCounts(minePlane, stride, height + 2, 1, numberPlane);
+		for (int y = 0; y < height; y++) {
+			System.arraycopy(numberPlane, 1 + (y + 1) * stride, number, y * width, width);
+		}
+		mineCount = kernels.count(minePlane, 0, minePlane.length, 1);
+	}
+
+	int mineCount() {
+		return mineCount;
+	}
+
+	void setMine(int cell, boolean isMine) {
+		if (mine[cell] == isMine) {
+			return;
+		}
+		mine[cell] = isMine;
+		mineCount += isMine ? 1 : -1;
+		for (int i = start[cell]; i < start[cell + 1]; i++) {
+			number[neighbours[i]] += isMine ? 1 : -1;
+		}
+	}
+
+	BoardLayout layout(long seed) {
+		BitSet mines = new BitSet(mine.length);
+		for (int cell = 0; cell < mine.length; cell++) {
+			if (mine[cell]) {
+				mines.set(cell);
+			}
+		}
+		return new BoardLayout(width, height, seed, mines);
+	}
+
+	// Every cell unknown again, keeping the mines.
+	void restart() {
+		Arrays.fill(state, UNKNOWN);
+		Arrays.fill(queued, false);
+		queueSize = 0;
+		Arrays.fill(pairQueued, false);
+		pairQueueSize = 0;
+		opened = 0;
+		flags = 0;
+	}
+
+	int opened() {
+		return opened;
+	}
+
+	// All safe cells are open, or all mines flagged, so the mine counter tells the rest is safe.
+	boolean solved() {
+		return opened == mine.length - mineCount || flags == mineCount;
+	}
+
+	boolean nearOpen(int cell) {
+		for (int i = start[cell]; i < start[cell + 1]; i++) {
+			if (state[neighbours[i]] == OPEN) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	void deduce() {
+		while (queueSize > 0 || pairQueueSize > 0) {
+			if (queueSize > 0) {
+				int cell = queue[--queueSize];
+				queued[cell] = false;
+				if (!single(cell) && !pairQueued[cell]) {
+					pairQueued[cell] = true;
+					pairQueue[pairQueueSize++] = cell;
+				}
+			} else {
+				int cell = pairQueue[--pairQueueSize];
+				pairQueued[cell] = false;
+				if (state[cell] == OPEN) {
+					pairs(cell);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decides the cells that all layouts of an island agree on, for every island of at most 'maxUnknowns'
+	 * unknown cells. An island is a set of numbers and unknown cells joined by being neighbours. The islands
+	 * are all found before any cell is decided, as opening cells can join them. On other topologies than the
+	 * grid, islands are not cached but asked of a {@link SatSolver}.
+	 *
+	 * @return whether any cell was decided
+	 */
+	boolean deduceIslands(int maxUnknowns) {
+		IslandCache cache = IslandCache.shared();
+		boolean[] seen = new boolean[state.length];
+		int[] knowns = new int[state.length];
+		int[] unknowns = new int[state.length];
+		int[] decided = new int[state.length];
+		int decidedCount = 0;
+		for (int first = 0; first < state.length; first++) {
+			if (seen[first] || state[first] != OPEN || unknowns(first, around) == 0) {
+				continue;
+			}
+			// Alternate between numbers and their unknown neighbours, like YourStrategy does.
+			int knownCount = 0;
+			int unknownCount = 0;
+			int top = 0;
+			stack[top++] = first;
+			seen[first] = true;
+			while (top > 0) {
+				int cell = stack[--top];
+				if (state[cell] == OPEN) {
+					knowns[knownCount++] = cell;
+				} else {
+					unknowns[unknownCount++] = cell;
+				}
+				for (int i = start[cell]; i < start[cell + 1]; i++) {
+					int next = neighbours[i];
+					boolean joins = state[cell] == OPEN ? state[next] == UNKNOWN
+							: state[next] == OPEN && number[next] > 0;
+					if (joins && !seen[next]) {
+						seen[next] = true;
+						stack[top++] = next;
+					}
+				}
+			}
+			if (unknownCount > maxUnknowns) {
+				continue;
+			}
+			int[] states = topology.isGrid() ? islandFromCache(cache, knowns, knownCount, unknowns, unknownCount)
+					: islandFromSat(knowns, knownCount, unknowns, unknownCount);
+			// Mines as the complement of their cell.
+			for (int i = 0; i < unknownCount; i++) {
+				if (states[i] == IslandCache.Entry.SAFE) {
+					decided[decidedCount++] = unknowns[i];
+				} else if (states[i] == IslandCache.Entry.MINE) {
+					decided[decidedCount++] = ~unknowns[i];
+				}
+			}
+		}
+		for (int i = 0; i < decidedCount; i++) {
+			if (decided[i] >= 0) {
+				open(decided[i]);
+			} else {
+				flag(~decided[i]);
+			}
+		}
+		return decidedCount > 0;
+	}
+
+	// The IslandCache states of the unknowns of an island on the grid.
+	private int[] islandFromCache(IslandCache cache, int[] knowns, int knownCount, int[] unknowns, int unknownCount) {
+		int[] knownX = new int[knownCount];
+		int[] knownY = new int[knownCount];
+		int[] knownMines = new int[knownCount];
+		for (int i = 0; i < knownCount; i++) {
+			knownX[i] = topology.x(knowns[i]);
+			knownY[i] = topology.y(knowns[i]);
+			knownMines[i] = minesLeft(knowns[i]);
+		}
+		int[] unknownX = new int[unknownCount];
+		int[] unknownY = new int[unknownCount];
+		for (int i = 0; i < unknownCount; i++) {
+			unknownX[i] = topology.x(unknowns[i]);
+			unknownY[i] = topology.y(unknowns[i]);
+		}
+		IslandCache.Shape shape = IslandCache.Shape.of(knownX, knownY, knownMines, unknownX, unknownY);
+		IslandCache.Entry entry = cache == null ? null : cache.get(shape);
+		if (entry == null) {
+			entry = IslandCache.solve(shape, Long.MAX_VALUE);
+			if (cache != null) {
+				cache.put(shape, entry);
+			}
+		}
+		int[] states = new int[unknownCount];
+		for (int i = 0; i < unknownCount; i++) {
+			states[i] = entry.state(shape.unknownIndex(i));
+		}
+		return states;
+	}
+
+	// The same states from a SatSolver over the island: a cell that can not be a mine is safe and the other
+	// way around. A layout found for one cell also shows what the others can be.
+	private int[] islandFromSat(int[] knowns, int knownCount, int[] unknowns, int unknownCount) {
+		int[] variable = new int[state.length];
+		for (int i = 0; i < unknownCount; i++) {
+			variable[unknowns[i]] = i;
+		}
+		SatSolver sat = new SatSolver(unknownCount);
+		for (int i = 0; i < knownCount; i++) {
+			int count = unknowns(knowns[i], around);
+			int[] variables = new int[count];
+			for (int j = 0; j < count; j++) {
+				variables[j] = variable[around[j]];
+			}
+			sat.addExactly(variables, minesLeft(knowns[i]));
+		}
+		int[] states = new int[unknownCount];
+		boolean[] canBeMine = new boolean[unknownCount];
+		boolean[] canBeSafe = new boolean[unknownCount];
+		for (int i = 0; i < unknownCount; i++) {
+			states[i] = IslandCache.Entry.OPEN;
+			for (int isMine = 1; isMine >= 0 && states[i] == IslandCache.Entry.OPEN; isMine--) {
+				if (isMine == 1 ? canBeMine[i] : canBeSafe[i]) {
+					continue;
+				}
+				int result = sat.solve(SatSolver.literal(i, isMine == 1), Integer.MAX_VALUE, Long.MAX_VALUE);
+				if (result == SatSolver.UNSAT) {
+					states[i] = isMine == 1 ? IslandCache.Entry.SAFE : IslandCache.Entry.MINE;
+				} else if (result == SatSolver.SAT) {
+					for (int j = 0; j < unknownCount; j++) {
+						if (sat.value(j)) {
+							canBeMine[j] = true;
+						} else {
+							canBeSafe[j] = true;
+						}
+					}
+				}
+			}
+		}
+		return states;
+	}
+
+	// The unknown neighbours of an open cell into 'into', returning how many.
+	private int unknowns(int cell, int[] into) {
+		int count = 0;
+		for (int i = start[cell]; i < start[cell + 1]; i++) {
+			if (state[neighbours[i]] == UNKNOWN) {
+				into[count++] = neighbours[i];
+			}
+		}
+		return count;
+	}
+
+	private int minesLeft(int cell) {
+		int left = number[cell];
+		for (int i = start[cell]; i < start[cell + 1]; i++) {
+			if (state[neighbours[i]] == FLAG) {
+				left--;
+			}
+		}
+		return left;
+	}
+
+	private boolean single(int cell) {
+		int count = unknowns(cell, around);
+		if (count == 0) {
+			return false;
+		}
+		int left = minesLeft(cell);
+		if (left == 0) {
+			for (int i = 0; i < count; i++) {
+				open(around[i]);
+			}
+			return true;
+		}
+		if (left == count) {
+			for (int i = 0; i < count; i++) {
+				flag(around[i]);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private void pairs(int cell) {
+		int count = unknowns(cell, around);
+		if (count == 0) {
+			return;
+		}
+		int left = minesLeft(cell);
+		// The other numbers that share an unknown cell with this one are the open cells around those.
+		pass++;
+		pairPass[cell] = pass;
+		for (int i = 0; i < count; i++) {
+			int unknown = around[i];
+			for (int j = start[unknown]; j < start[unknown + 1]; j++) {
+				int other = neighbours[j];
+				if (pairPass[other] == pass || state[other] != OPEN) {
+					continue;
+				}
+				pairPass[other] = pass;
+				int otherCount = unknowns(other, aroundOther);
+				int shared = 0;
+				for (int k = 0; k < count; k++) {
+					if (topology.adjacent(around[k], other)) {
+						shared++;
+					}
+				}
+				if (count + otherCount == 2 * shared) {
+					continue;
+				}
+				int otherLeft = minesLeft(other);
+				// Only this one sees count - shared cells; if it needs that many more mines, they are all
+				// mines and the cells only the other one sees are safe. And the other way around.
+				if (left - otherLeft == count - shared) {
+					settle(cell, around, count, other, aroundOther, otherCount);
+					return;
+				}
+				if (otherLeft - left == otherCount - shared) {
+					settle(other, aroundOther, otherCount, cell, around, count);
+					return;
+				}
+			}
+		}
+	}
+
+	// Flags the unknowns only 'mines' sees and opens the ones only 'safe' sees.
+	private void settle(int mines, int[] minesAround, int minesCount, int safe, int[] safeAround, int safeCount) {
+		for (int i = 0; i < minesCount; i++) {
+			if (!topology.adjacent(minesAround[i], safe)) {
+				flag(minesAround[i]);
+			}
+		}
+		for (int i = 0; i < safeCount; i++) {
+			if (!topology.adjacent(safeAround[i], mines)) {
+				open(safeAround[i]);
+			}
+		}
+	}
+
+	// Opens a safe cell, and the cells around it while it is a 0.
+	void open(int cell) {
+		if (state[cell] != UNKNOWN) {
+			return;
+		}
+		int top = 0;
+		stack[top++] = cell;
+		state[cell] = OPEN;
+		while (top > 0) {
+			int open = stack[--top];
+			opened++;
+			touch(open);
+			if (number[open] == 0) {
+				for (int i = start[open]; i < start[open + 1]; i++) {
+					if (state[neighbours[i]] == UNKNOWN) {
+						state[neighbours[i]] = OPEN;
+						stack[top++] = neighbours[i];
+					}
+				}
+			}
+		}
+	}
+
+	void flag(int cell) {
+		if (state[cell] != UNKNOWN) {
+			return;
+		}
+		state[cell] = FLAG;
+		flags++;
+		touch(cell);
+	}
+
+	// Queues the open cell and the open cells around it, their unknown neighbours changed.
+	void touch(int cell) {
+		if (state[cell] == OPEN) {
+			enqueue(cell);
+		}
+		for (int i = start[cell]; i < start[cell + 1]; i++) {
+			if (state[neighbours[i]] == OPEN) {
+				enqueue(neighbours[i]);
+			}
+		}
+	}
+
+	private void enqueue(int cell) {
+		if (!queued[cell]) {
+			queued[cell] = true;
+			queue[queueSize++] = cell;
+		}
+	}
+}
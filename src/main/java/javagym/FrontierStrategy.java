@@ -0,0 +1,151 @@
+package javagym;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * A strategy for a {@link TiledBoard}, played by {@link TiledBoard#play}.
+ * <p>
+ * {@link YourStrategy} keeps several values per cell of the board and scans all of it every move, which does
+ * not fit a board of a hundred million cells. This one only keeps queues of the numbers it still has to look
+ * at, filled from {@link BoardView#changedCells()}, so its memory grows with the explored area like the tiles
+ * of the board. It flags the unknown neighbours of a number that needs all of them and chords a number with all
+ * its mines flagged; without such a number it guesses.
+ */
+final class FrontierStrategy extends MineSweeper {
+
+	// Random cells tried for a guess before it is taken next to a number.
+	private static final int GUESS_TRIES = 64;
+
+	private final BoardView board;
+	private final int stride;
+	private boolean started = false;
+
+	// Board cells of numbers next to a cell that changed, to look at again.
+	private final ArrayDeque<Integer> pending = new ArrayDeque<>();
+	// The last number that had unknown neighbours but decided none of them, -1 if none, for guesses.
+	private int undecided = -1;
+	// Every cell before this one is known, flags are never taken back.
+	private int scanFrom;
+
+	FrontierStrategy(TiledBoard board) {
+		super(board);
+		verbose = false;
+		this.board = getBoard();
+		this.stride = this.board.stride();
+		this.scanFrom = this.board.index(1, 1);
+	}
+
+	@Override
+	int[] pickSquare() {
+		return pickSquares()[0];
+	}
+
+	// All chords that the flags allow in one batch, with the flags set right away, or else one guess.
+	@Override
+	int[][] pickSquares() {
+		if (!started) {
+			started = true;
+			return new int[][]{{fieldWidth / 2 + 1, fieldHeight / 2 + 1}};
+		}
+		List<int[]> picks = new ArrayList<>();
+		// Flags change the board at once, so the numbers next to them are looked at again in this batch.
+		for (queueChanged(); !pending.isEmpty(); queueChanged()) {
+			while (!pending.isEmpty() && !pastDeadline()) {
+				int cell = pending.poll();
+				int[] pick = decide(cell);
+				if (pick != null) {
+					picks.add(pick);
+				}
+			}
+			if (pastDeadline()) {
+				break;
+			}
+		}
+		if (picks.isEmpty()) {
+			picks.add(guess());
+		}
+		return picks.toArray(new int[0][]);
+	}
+
+	// A chord on the number, or null after flagging its unknown neighbours or when it decides nothing.
+	private int[] decide(int cell) {
+		int x = cell % stride;
+		int y = cell / stride;
+		int number = board.state(x, y);
+		if (number < 1 || number > 8) {
+			return null;
+		}
+		int flags = 0;
+		int unknowns = 0;
+		for (int j = y - 1; j <= y + 1; j++) {
+			for (int i = x - 1; i <= x + 1; i++) {
+				int state = board.state(i, j);
+				flags += state == BoardView.FLAG ? 1 : 0;
+				unknowns += state == BoardView.UNKNOWN ? 1 : 0;
+			}
+		}
+		if (unknowns == 0) {
+			return null;
+		}
+		if (flags == number) {
+			return new int[]{x, y, CHORD};
+		}
+		if (flags + unknowns == number) {
+			for (int j = y - 1; j <= y + 1; j++) {
+				for (int i = x - 1; i <= x + 1; i++) {
+					flag(i, j);
+				}
+			}
+		} else {
+			undecided = cell;
+		}
+		return null;
+	}
+
+	// Queues the numbers on and next to the cells that changed since the last call.
+	private void queueChanged() {
+		for (PrimitiveIterator.OfInt cells = board.changedCells(); cells.hasNext(); ) {
+			int cell = cells.nextInt();
+			for (int j = -1; j <= 1; j++) {
+				for (int i = -1; i <= 1; i++) {
+					int state = board.state(cell + i + j * stride);
+					if (state >= 1 && state <= 8) {
+						pending.add(cell + i + j * stride);
+					}
+				}
+			}
+		}
+	}
+
+	// A random unknown cell, which on a big board is most likely far from the numbers, else an unknown cell
+	// next to the last number that was undecided, else the first unknown cell.
+	private int[] guess() {
+		for (int i = 0; i < GUESS_TRIES; i++) {
+			int x = getRandom().nextInt(fieldWidth) + 1;
+			int y = getRandom().nextInt(fieldHeight) + 1;
+			if (board.state(x, y) == BoardView.UNKNOWN) {
+				return new int[]{x, y};
+			}
+		}
+		if (undecided != -1) {
+			int cell = undecided;
+			undecided = -1;
+			for (int j = -1; j <= 1; j++) {
+				for (int i = -1; i <= 1; i++) {
+					if (board.state(cell + i + j * stride) == BoardView.UNKNOWN) {
+						return new int[]{cell % stride + i, cell / stride + j};
+					}
+				}
+			}
+		}
+		for (; scanFrom < board.cellCount(); scanFrom++) {
+			if (board.state(scanFrom) == BoardView.UNKNOWN) {
+				return new int[]{board.x(scanFrom), board.y(scanFrom)};
+			}
+		}
+		throw new IllegalStateException("No unknown cell left");
+	}
+}
@@ -0,0 +1,283 @@
+package javagym;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only binary log of played games, and a replayer that checks whether a strategy still plays them the same way.
+ * <p>
+ * The log starts with the int magic 'JGML' and a version, followed by one block per game:
+ * <pre>
+ *   byte GAME    followed by the BoardFile record of the board after the first pick, with the game seed
+ *   byte BATCH   long nanos, int unknownTiles, int count, count * (int x, int y, byte action)
+ *   ...          one BATCH per pickSquare(s) call, with its time and the unknown tiles left after it
+ *   byte END     byte won
+ * </pre>
+ * The game seed also seeds the strategy's getRandom(), so replaying a game with the same strategy makes
+ * the same moves. A game is written in one go when it ends, so several recorders can share a log.
+ */
+final class GameLog {
+
+	static final int MAGIC = 0x4A474D4C;
+	static final int VERSION = 1;
+	private static final byte GAME = 1;
+	private static final byte BATCH = 2;
+	private static final byte END = 3;
+
+	private GameLog() {
+	}
+
+	// Receives the events of a game from GameRunner.
+	interface Listener {
+
+		// The board as it is played, after the first pick was made safe.
+		void start(BoardLayout layout);
+
+		// One call per pickSquare(s), after the board was updated.
+		void batch(int[][] picks, long nanos, int unknownTiles);
+
+		void end(boolean won);
+	}
+
+	// Opens a log to append to, writing the header when it is new.
+	static FileChannel open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		if (channel.size() == 0) {
+			channel.write(ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip());
+		}
+		return channel;
+	}
+
+	// Writes games to a log opened with open(). Use one recorder per GameRunner.
+	static final class Recorder implements Listener {
+
+		private final FileChannel out;
+		private final boolean lostOnly;
+		private ByteBuffer game = ByteBuffer.allocate(1 << 16);
+
+		// With lostOnly set, only the games that are lost get written.
+		Recorder(FileChannel out, boolean lostOnly) {
+			this.out = out;
+			this.lostOnly = lostOnly;
+		}
+
+		private void ensure(int bytes) {
+			if (game.remaining() < bytes) {
+				ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * game.capacity(), game.position() + bytes));
+				game.flip();
+				bigger.put(game);
+				game = bigger;
+			}
+		}
+
+		@Override
+		public void start(BoardLayout layout) {
+			game.clear();
+			ensure(1 + BoardFile.recordBytes(layout));
+			game.put(GAME);
+			BoardFile.put(game, layout);
+		}
+
+		@Override
+		public void batch(int[][] picks, long nanos, int unknownTiles) {
+			ensure(17 + 9 * picks.length);
+			game.put(BATCH);
+			game.putLong(nanos);
+			game.putInt(unknownTiles);
+			game.putInt(picks.length);
+			for (int[] pick : picks) {
+				game.putInt(pick[0]);
+				game.putInt(pick[1]);
+				game.put((byte) (pick.length > 2 ? pick[2] : MineSweeper.REVEAL));
+			}
+		}
+
+		@Override
+		public void end(boolean won) {
+			ensure(2);
+			game.put(END);
+			game.put((byte) (won ? 1 : 0));
+			if (lostOnly && won) {
+				return;
+			}
+			game.flip();
+			try {
+				while (game.hasRemaining()) {
+					out.write(game);
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not write game log", e);
+			}
+		}
+	}
+
+	// A game as read from the log.
+	private static final class Game {
+		BoardLayout layout;
+		final List<int[][]> picks = new ArrayList<>();
+		final List<Long> nanos = new ArrayList<>();
+		final List<Integer> unknownTiles = new ArrayList<>();
+		boolean won;
+	}
+
+	// Compares a replayed game with the logged one and remembers the first move where they differ.
+	private static final class Verifier implements Listener {
+
+		private final Game expected;
+		private int batch = 0;
+		private String divergence;
+
+		Verifier(Game expected) {
+			this.expected = expected;
+		}
+
+		private void diverge(String reason) {
+			if (divergence == null) {
+				divergence = "move " + batch + ": " + reason;
+			}
+		}
+
+		@Override
+		public void start(BoardLayout layout) {
+			if (!layout.mines.equals(expected.layout.mines)) {
+				diverge("different board after the first pick");
+			}
+		}
+
+		@Override
+		public void batch(int[][] picks, long nanos, int unknownTiles) {
+			if (batch >= expected.picks.size()) {
+				diverge("game continues after the logged end");
+			} else if (!Arrays.deepEquals(normalize(picks), expected.picks.get(batch))) {
+				diverge("picked " + Arrays.deepToString(picks)
+						+ " instead of " + Arrays.deepToString(expected.picks.get(batch)));
+			} else if (unknownTiles != expected.unknownTiles.get(batch)) {
+				diverge(unknownTiles + " unknown tiles instead of " + expected.unknownTiles.get(batch));
+			}
+			batch++;
+		}
+
+		@Override
+		public void end(boolean won) {
+			if (batch < expected.picks.size()) {
+				diverge("game ended before the logged end");
+			} else if (won != expected.won) {
+				diverge(won ? "won instead of lost" : "lost instead of won");
+			}
+		}
+	}
+
+	private static int[][] normalize(int[][] picks) {
+		int[][] normalized = new int[picks.length][];
+		for (int i = 0; i < picks.length; i++) {
+			normalized[i] = new int[]{picks[i][0], picks[i][1], picks[i].length > 2 ? picks[i][2] : MineSweeper.REVEAL};
+		}
+		return normalized;
+	}
+
+	// Reads the next game, or returns null at the end of the log.
+	private static Game read(DataInputStream in) throws IOException {
+		int type = in.read();
+		if (type == -1) {
+			return null;
+		}
+		if (type != GAME) {
+			throw new IOException("Expected a game in the log, found " + type);
+		}
+		Game game = new Game();
+		byte[] header = new byte[BoardFile.HEADER_BYTES];
+		in.readFully(header);
+		ByteBuffer size = ByteBuffer.wrap(header);
+		int cells = size.getInt(8) * size.getInt(12);
+		ByteBuffer record = ByteBuffer.allocate(BoardFile.HEADER_BYTES + (cells + 7) / 8);
+		record.put(header);
+		in.readFully(record.array(), BoardFile.HEADER_BYTES, record.remaining());
+		game.layout = BoardFile.get(record.rewind());
+
+		while (true) {
+			type = in.readByte();
+			if (type == END) {
+				game.won = in.readByte() == 1;
+				return game;
+			}
+			if (type != BATCH) {
+				throw new IOException("Expected a move in the log, found " + type);
+			}
+			game.nanos.add(in.readLong());
+			game.unknownTiles.add(in.readInt());
+			int[][] picks = new int[in.readInt()][];
+			for (int i = 0; i < picks.length; i++) {
+				picks[i] = new int[]{in.readInt(), in.readInt(), in.readByte()};
+			}
+			game.picks.add(picks);
+		}
+	}
+
+	/**
+	 * Replays every game in the log with YourStrategy and prints the games that went differently.
+	 *
+	 * @return the number of games replayed and the number that diverged
+	 */
+	static int[] replay(Path path) throws IOException {
+		int games = 0;
+		int diverged = 0;
+		long loggedNanos = 0;
+		long replayNanos = 0;
+		GameRunner gameRunner = new GameRunner(new YourStrategy(10, 10));
+		gameRunner.setVerbose(false);
+		try (InputStream file = Files.newInputStream(path);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a game log: " + path);
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported game log version " + version);
+			}
+			for (Game game = read(in); game != null; game = read(in)) {
+				Verifier verifier = new Verifier(game);
+				gameRunner.setListener(verifier);
+				long start = System.nanoTime();
+				gameRunner.initBoard(game.layout);
+				gameRunner.run(false);
+				replayNanos += System.nanoTime() - start;
+				for (long nanos : game.nanos) {
+					loggedNanos += nanos;
+				}
+				if (verifier.divergence != null) {
+					diverged++;
+					System.out.println("game " + games + " (seed " + game.layout.seed + ") diverged at "
+							+ verifier.divergence);
+				}
+				games++;
+			}
+		} catch (EOFException e) {
+			throw new IOException("Game log ends in the middle of game " + games, e);
+		}
+		System.out.println("replayed " + games + " games, " + diverged + " diverged, picks took "
+				+ loggedNanos / 1_000_000 + " ms when logged, replay took " + replayNanos / 1_000_000 + " ms");
+		return new int[]{games, diverged};
+	}
+
+	// Usage: GameLog <log>
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.out.println("usage: GameLog <log>");
+			return;
+		}
+		replay(Paths.get(args[0]));
+	}
+}
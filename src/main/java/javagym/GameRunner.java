@@ -1,21 +1,117 @@
 package javagym;
 
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 class GameRunner {
 
     private MineSweeper mineSweeper;
 
+    // When set, every game is played on this instance after a reset instead of on a new one.
+    private final MineSweeper pooled;
+
+    GameRunner() {
+        this(null);
+    }
+
+    GameRunner(MineSweeper pooled) {
+        this.pooled = pooled;
+    }
+
+    // Per move time budget in microseconds for pickSquare, 0 means unlimited.
+    private long moveBudgetMicros = 0;
+    private boolean verbose = true;
+    private boolean offHeap = false;
+    private String topology = "grid";
+    private GameLog.Listener listener;
+
+    void setMoveBudgetMicros(long micros) {
+        moveBudgetMicros = micros;
+    }
+
+    void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    // Plays the next games on a board outside the Java heap, see MineSweeper.setOffHeap.
+    // Call close() when done with the runner to free it.
+    void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    // Plays the next games on boards of this topology, see Topology.of and MineSweeper.setTopology.
+    void setTopology(String topology) {
+        this.topology = topology;
+    }
+
+    // Frees the board of the last game.
+    void close() {
+        if (mineSweeper != null) {
+            mineSweeper.close();
+        }
+    }
+
+    // Receives every game played from now on, e.g. to record it.
+    void setListener(GameLog.Listener listener) {
+        this.listener = listener;
+    }
+
+    int getDeadlineHits() {
+        return mineSweeper.getDeadlineHits();
+    }
+
+    private void init(int width, int height, int seed) {
+        if (pooled == null) {
+            close();
+            // An off-heap game starts small, so the board is only allocated by the reset.
+            mineSweeper = offHeap ? new YourStrategy(1, 1) : new YourStrategy(width, height);
+        } else {
+            mineSweeper = pooled;
+        }
+        mineSweeper.setOffHeap(offHeap);
+        // The grid needs no table, which keeps huge boards small.
+        mineSweeper.setTopology(topology.equals("grid") ? null : Topology.of(topology, width, height, 1));
+        mineSweeper.reset(width, height, seed);
+        mineSweeper.setMoveBudgetMicros(moveBudgetMicros);
+        mineSweeper.verbose = verbose;
+    }
+
     // Displays rules at beginning of game.
     void initRandom(int numberOfMines, int width, int height, int seed) {
-        mineSweeper = new YourStrategy(width, height);
+        init(width, height, seed);
         mineSweeper.generateMinesRandom(numberOfMines, seed);
         mineSweeper.print();
     }
 
+    // Load a board in the text or the binary format from a file. The size is read from the file.
+    void initInput(String fileName) {
+        BoardLayout layout;
+        try {
+            layout = BoardFile.load(Paths.get(fileName));
+        } catch (Exception e) {
+            System.out.println("error reading file: " + e);
+            System.exit(0);
+            return;
+        }
+        initBoard(layout);
+    }
+
+    // Games on a board without a seed, like the text files, use this one, so they play the same every time.
+    static final int FILE_SEED = 7;
+
+    // Plays a board with its own seed. Seeds are ints in the game, so longer ones cannot be replayed.
+    void initBoard(BoardLayout layout) {
+        if (layout.seed < 0 || layout.seed > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Seed " + layout.seed + " does not fit in an int");
+        }
+        init(layout.width, layout.height, layout.seed == 0 ? FILE_SEED : (int) layout.seed);
+        mineSweeper.loadBoard(layout);
+        mineSweeper.print();
+    }
+
     void initInput(String fileName, int width, int height) {
         // Load from a file. You need to give the correct width and height yourself.
-        mineSweeper = new YourStrategy(width, height);
+        init(width, height, FILE_SEED);
         try {
             mineSweeper.loadFile(fileName);
         } catch (Exception e) {
@@ -26,7 +122,7 @@ class GameRunner {
     }
 
     boolean run(boolean playManually) {
-        Scanner scan = new Scanner(System.in);
+        Scanner scan = playManually ? new Scanner(System.in) : null;
         int x, y;
         if (playManually) {
             System.out.print("Enter an x coordinate.");
@@ -35,16 +131,21 @@ class GameRunner {
             y = scan.nextInt();
         } else {
             // this is for automatic play
+            mineSweeper.startMove();
             int[] pick = mineSweeper.pickSquare();
             x = pick[0];
             y = pick[1];
         }
+        long pickNanos = System.nanoTime() - mineSweeper.getMoveStart();
 
         // If the first tile that is selected is a mine. We remove the mine and place it somewhere else.
         if (mineSweeper.getTile(x, y).equals(" * ")) {
             mineSweeper.generateMinesRandom(1, -1);
             mineSweeper.doNotCall_RemoveMine(x, y);
         }
+        if (listener != null) {
+            listener.start(mineSweeper.layout());
+        }
         // The first pick will clear the adjacent tiles that are safe.
         mineSweeper.clear(x, y);
         // The mineSweeper will detect the numbers that need to be shown in the field.
@@ -52,38 +153,58 @@ class GameRunner {
         mineSweeper.revealNeighboursOfZeros();
         mineSweeper.isVictory();
         mineSweeper.print();
+        if (listener != null) {
+            listener.batch(new int[][]{{x, y}}, pickNanos, mineSweeper.getUnknownTiles());
+        }
 
         //After first move, loops until the mineSweeper ends.
         while (true) {
             if(mineSweeper.getDone() && mineSweeper.getWin()) {
                 // The player has won
-                System.out.println("You win!");
+                if (verbose) {
+                    System.out.println("You win!");
+                }
                 mineSweeper.onEnd();
+                if (listener != null) {
+                    listener.end(true);
+                }
                 return true;
             } else if(mineSweeper.getDone()) {
                 // The player has lost
                 mineSweeper.onEnd();
+                if (listener != null) {
+                    listener.end(false);
+                }
                 return false;
             } else if(!mineSweeper.getDone()) {
                 // The player has to select another square
-                x = -1;
-                y = -1;
+                int[][] picks;
                 if (playManually) {
                     System.out.print("Enter an x coordinate.");
                     y = scan.nextInt();
                     System.out.print("Enter a y coordinate.");
                     x = scan.nextInt();
+                    picks = new int[][]{{x, y}};
                 } else {
                     // this is for automatic play
-                    int[] pick = mineSweeper.pickSquare();
-                    x = pick[0];
-                    y = pick[1];
+                    mineSweeper.startMove();
+                    picks = mineSweeper.pickSquares();
+                }
+                pickNanos = System.nanoTime() - mineSweeper.getMoveStart();
+                // All picks are played before the numbers, the zero cascade and the victory are updated.
+                for (int[] pick : picks) {
+                    mineSweeper.move(pick);
+                    if (mineSweeper.getDone()) {
+                        break;
+                    }
                 }
-                mineSweeper.turn(x, y);
                 mineSweeper.detect();
                 mineSweeper.revealNeighboursOfZeros();
                 mineSweeper.isVictory();
                 mineSweeper.print();
+                if (listener != null) {
+                    listener.batch(picks, pickNanos, mineSweeper.getUnknownTiles());
+                }
             }
         }
     }
@@ -29,6 +29,7 @@ public class GaussianElimination {
 	private final int n;            // number of columns
 	private int[][] a;            	// m-by-(n+1) augmented matrix
 	private Integer[] x;
+	private final long deadline;	// System.nanoTime() after which to stop, Long.MAX_VALUE for none
 
 	/**
 	 * Solves the linear system of equations <em>Ax</em> = <em>b</em>,
@@ -41,6 +42,20 @@ public class GaussianElimination {
 	 *                                  the length of {@code b} does not equal {@code m}
 	 */
 	public GaussianElimination(int[][] A, int[] b) {
+		this(A, b, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Solves the linear system like {@link #GaussianElimination(int[][], int[])}, but stops
+	 * eliminating once {@code deadline} (a {@link System#nanoTime()} value) has passed.
+	 * The values found up to then are still correct, the rest of the solution is {@code null}.
+	 *
+	 * @param A the <em>m</em>-by-<em>n</em> constraint matrix
+	 * @param b the length <em>m</em> right-hand-side vector
+	 * @param deadline the time to give up at, {@code Long.MAX_VALUE} for no limit
+	 */
+	public GaussianElimination(int[][] A, int[] b, long deadline) {
+		this.deadline = deadline;
 		m = A.length;
 		n = A[0].length;
 
@@ -62,6 +77,9 @@ public class GaussianElimination {
 	// forward elimination
 	private void forwardElimination() {
 		for (int p = 0; p < Math.min(m, n); p++) {
+			if (pastDeadline()) {
+				return;
+			}
 
 			// find pivot row using partial pivoting
 			int max = p;
@@ -84,6 +102,10 @@ public class GaussianElimination {
 		}
 	}
 
+	private boolean pastDeadline() {
+		return deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0;
+	}
+
 	// swap row1 and row2
 	private void swap(int row1, int row2) {
 		int[] temp = a[row1];
@@ -113,7 +135,7 @@ public class GaussianElimination {
 		Integer[] x = new Integer[n];
 		boolean allSolved = false;
 		boolean[] rowSolved = new boolean[m];
-		CHECK: while (!allSolved) {
+		CHECK: while (!allSolved && !pastDeadline()) {
 			for (int i = 0; i < x.length; i++) {
 				if (x[i] == null) {
 					continue;
@@ -0,0 +1,371 @@
+package javagym;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solved islands, shared by all games and threads, so an island that was seen before in any position,
+ * rotation or reflection is not solved again.
+ * <p>
+ * An island is the numbers on a part of the border, less the flags around them, and the unknown cells next
+ * to them. Its {@link Shape} lists those cells relative to each other, turned into whichever of the 8
+ * symmetries of the square sorts first. An {@link Entry} is found by counting all mine layouts of the island
+ * on its own: per number of mines the layouts, and per cell the layouts where it is a mine. A cell that is a
+ * mine in all or none of them is decided, the counts are there for guessing.
+ * <p>
+ * The cache holds a fixed number of entries and evicts with CLOCK: entries get a mark when used, and the
+ * clock hand clears marks until it finds an unmarked entry to replace. Lookups do not lock, adding an entry
+ * locks the clock.
+ */
+final class IslandCache {
+
+	// Islands in the shared cache, set with -Djavagym.islands=<count>; 0 turns it off.
+	private static final int SHARED_CAPACITY = Integer.getInteger("javagym.islands", 1 << 14);
+	private static final IslandCache SHARED = SHARED_CAPACITY > 0 ? new IslandCache(SHARED_CAPACITY) : null;
+
+	private static final int UNKNOWN_TAG = 15;
+
+	private final ConcurrentHashMap<Shape, Entry> entries = new ConcurrentHashMap<>();
+	private final Shape[] clock;
+	private int hand = 0;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final AtomicLong bytes = new AtomicLong();
+
+	IslandCache(int capacity) {
+		clock = new Shape[capacity];
+	}
+
+	// The cache shared by all games in this JVM, or null when it is turned off.
+	static IslandCache shared() {
+		return SHARED;
+	}
+
+	Entry get(Shape shape) {
+		Entry entry = entries.get(shape);
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		entry.used = true;
+		hits.increment();
+		return entry;
+	}
+
+	void put(Shape shape, Entry entry) {
+		synchronized (clock) {
+			if (entries.putIfAbsent(shape, entry) != null) {
+				return;
+			}
+			while (clock[hand] != null) {
+				Entry old = entries.get(clock[hand]);
+				if (old.used) {
+					old.used = false;
+					hand = (hand + 1) % clock.length;
+					continue;
+				}
+				entries.remove(clock[hand]);
+				bytes.addAndGet(-old.bytes);
+				evictions.increment();
+				break;
+			}
+			clock[hand] = shape;
+			hand = (hand + 1) % clock.length;
+			bytes.addAndGet(entry.bytes);
+		}
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	long hits() {
+		return hits.sum();
+	}
+
+	long misses() {
+		return misses.sum();
+	}
+
+	// Roughly what the entries take on the heap.
+	long bytes() {
+		return bytes.get();
+	}
+
+	double hitRate() {
+		long hits = hits();
+		long lookups = hits + misses();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	String stats() {
+		return String.format("%d islands, %.1f%% hits of %d lookups, %d evicted, %d KiB",
+				size(), 100 * hitRate(), hits() + misses(), evictions.sum(), bytes() / 1024);
+	}
+
+	/**
+	 * The cells of an island in canonical form: per cell y << 32 | x << 4 | tag, with tag the remaining mines
+	 * of a number or 15 for an unknown cell, sorted, for the symmetry that gives the smallest such list.
+	 */
+	static final class Shape {
+
+		private final long[] cells;
+		// The cells with the unknown tag, the order in which Entry numbers them.
+		private final long[] unknownCells;
+		// Per unknown of the island as given, its number in unknownCells.
+		private final int[] unknownIndex;
+		private final int hash;
+
+		private Shape(long[] cells, long[] unknownCells, int[] unknownIndex) {
+			this.cells = cells;
+			this.unknownCells = unknownCells;
+			this.unknownIndex = unknownIndex;
+			this.hash = Arrays.hashCode(cells);
+		}
+
+		/**
+		 * @param knownMines per number, its mines that are not flagged yet
+		 */
+		static Shape of(int[] knownX, int[] knownY, int[] knownMines, int[] unknownX, int[] unknownY) {
+			long[] best = null;
+			int bestSymmetry = 0;
+			for (int symmetry = 0; symmetry < 8; symmetry++) {
+				long[] cells = encode(symmetry, knownX, knownY, knownMines, unknownX, unknownY);
+				Arrays.sort(cells);
+				if (best == null || Arrays.compare(cells, best) < 0) {
+					best = cells;
+					bestSymmetry = symmetry;
+				}
+			}
+			long[] cells = encode(bestSymmetry, knownX, knownY, knownMines, unknownX, unknownY);
+			long[] unknownCells = Arrays.copyOfRange(cells, knownX.length, cells.length);
+			long[] sorted = unknownCells.clone();
+			Arrays.sort(sorted);
+			int[] unknownIndex = new int[unknownX.length];
+			for (int i = 0; i < unknownIndex.length; i++) {
+				unknownIndex[i] = Arrays.binarySearch(sorted, unknownCells[i]);
+			}
+			return new Shape(best, sorted, unknownIndex);
+		}
+
+		// The cells turned by the symmetry and moved to start at (0, 0), knowns first, not sorted.
+		private static long[] encode(int symmetry, int[] knownX, int[] knownY, int[] knownMines,
+				int[] unknownX, int[] unknownY) {
+			int count = knownX.length + unknownX.length;
+			int[] xs = new int[count];
+			int[] ys = new int[count];
+			int minX = Integer.MAX_VALUE;
+			int minY = Integer.MAX_VALUE;
+			for (int i = 0; i < count; i++) {
+				int x = i < knownX.length ? knownX[i] : unknownX[i - knownX.length];
+				int y = i < knownX.length ? knownY[i] : unknownY[i - knownX.length];
+				if ((symmetry & 4) != 0) {
+					int swap = x;
+					x = y;
+					y = swap;
+				}
+				xs[i] = (symmetry & 1) != 0 ? -x : x;
+				ys[i] = (symmetry & 2) != 0 ? -y : y;
+				minX = Math.min(minX, xs[i]);
+				minY = Math.min(minY, ys[i]);
+			}
+			long[] cells = new long[count];
+			for (int i = 0; i < count; i++) {
+				int tag = i < knownX.length ? knownMines[i] : UNKNOWN_TAG;
+				cells[i] = (long) (ys[i] - minY) << 32 | (long) (xs[i] - minX) << 4 | tag;
+			}
+			return cells;
+		}
+
+		int unknowns() {
+			return unknownCells.length;
+		}
+
+		// The number in the entry of the i-th unknown of the island this shape was made from.
+		int unknownIndex(int i) {
+			return unknownIndex[i];
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Shape && Arrays.equals(cells, ((Shape) other).cells);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * The mine layouts of a shape: solutions[k] layouts have fewest + k mines, and in mines[k][u] of those
+	 * unknown u is a mine.
+	 */
+	static final class Entry {
+
+		static final int SAFE = 0;
+		static final int MINE = 1;
+		static final int OPEN = -1;
+
+		final int fewest;
+		final long[] solutions;
+		final long[][] mines;
+		private final long bytes;
+		private volatile boolean used = false;
+
+		private Entry(Shape shape, int fewest, long[] solutions, long[][] mines) {
+			this.fewest = fewest;
+			this.solutions = solutions;
+			this.mines = mines;
+			// Object headers, the arrays of the shape and of the counts.
+			long size = 64 + 8 * (shape.cells.length + shape.unknownCells.length) + 4 * shape.unknownIndex.length;
+			size += 16 + 8 * solutions.length;
+			for (long[] row : mines) {
+				size += 16 + 8 * row.length;
+			}
+			this.bytes = size;
+		}
+
+		// SAFE or MINE when unknown u is one in every layout, otherwise OPEN.
+		int state(int u) {
+			long total = 0;
+			long mine = 0;
+			for (int k = 0; k < solutions.length; k++) {
+				total += solutions[k];
+				mine += mines[k][u];
+			}
+			if (total == 0) {
+				return OPEN;
+			}
+			return mine == 0 ? SAFE : mine == total ? MINE : OPEN;
+		}
+	}
+
+	/**
+	 * Counts the mine layouts of the shape by trying both values for every unknown, in the order of the
+	 * shape, and backing off as soon as a number can no longer be met.
+	 *
+	 * @return the entry, or null if the deadline (System.nanoTime(), Long.MAX_VALUE for none) passed first
+	 */
+	static Entry solve(Shape shape, long deadline) {
+		int n = shape.unknowns();
+		int[][] constraints = new int[shape.cells.length - n][];
+		int[] need = new int[constraints.length];
+		int c = 0;
+		for (long cell : shape.cells) {
+			int tag = (int) (cell & 15);
+			if (tag == UNKNOWN_TAG) {
+				continue;
+			}
+			int[] around = new int[8];
+			int found = 0;
+			long y = cell >>> 32;
+			long x = cell >>> 4 & 0xFFFFFFFL;
+			for (long dy = -1; dy <= 1; dy++) {
+				for (long dx = -1; dx <= 1; dx++) {
+					if (y + dy < 0 || x + dx < 0) {
+						continue;
+					}
+					int u = Arrays.binarySearch(shape.unknownCells, (y + dy) << 32 | (x + dx) << 4 | UNKNOWN_TAG);
+					if (u >= 0) {
+						around[found++] = u;
+					}
+				}
+			}
+			constraints[c] = Arrays.copyOf(around, found);
+			need[c++] = tag;
+		}
+		Counter counter = new Counter(n, constraints, need, deadline);
+		if (!counter.count(0, 0)) {
+			return null;
+		}
+		// Only the numbers of mines that have layouts are kept.
+		int fewest = 0;
+		int most = n;
+		while (fewest < most && counter.solutions[fewest] == 0) {
+			fewest++;
+		}
+		while (most > fewest && counter.solutions[most] == 0) {
+			most--;
+		}
+		return new Entry(shape, fewest, Arrays.copyOfRange(counter.solutions, fewest, most + 1),
+				Arrays.copyOfRange(counter.mines, fewest, most + 1));
+	}
+
+	private static final class Counter {
+
+		private final int n;
+		private final int[][] unknownConstraints;
+		private final int[] need;
+		private final int[] free;
+		private final boolean[] mine;
+		private final long deadline;
+		private final long[] solutions;
+		private final long[][] mines;
+		private int nodes = 0;
+
+		Counter(int n, int[][] constraints, int[] need, long deadline) {
+			this.n = n;
+			this.need = need;
+			this.deadline = deadline;
+			this.free = new int[constraints.length];
+			this.mine = new boolean[n];
+			this.solutions = new long[n + 1];
+			this.mines = new long[n + 1][n];
+			int[] degree = new int[n];
+			for (int c = 0; c < constraints.length; c++) {
+				free[c] = constraints[c].length;
+				for (int u : constraints[c]) {
+					degree[u]++;
+				}
+			}
+			unknownConstraints = new int[n][];
+			for (int u = 0; u < n; u++) {
+				unknownConstraints[u] = new int[degree[u]];
+			}
+			for (int c = 0; c < constraints.length; c++) {
+				for (int u : constraints[c]) {
+					unknownConstraints[u][--degree[u]] = c;
+				}
+			}
+		}
+
+		// False when out of time.
+		boolean count(int u, int placed) {
+			if ((++nodes & 0xFFF) == 0 && deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+			if (u == n) {
+				solutions[placed]++;
+				for (int v = 0; v < n; v++) {
+					if (mine[v]) {
+						mines[placed][v]++;
+					}
+				}
+				return true;
+			}
+			for (int value = 0; value <= 1; value++) {
+				boolean possible = true;
+				for (int c : unknownConstraints[u]) {
+					free[c]--;
+					need[c] -= value;
+					possible &= need[c] >= 0 && need[c] <= free[c];
+				}
+				mine[u] = value == 1;
+				boolean inTime = !possible || count(u + 1, placed + value);
+				for (int c : unknownConstraints[u]) {
+					free[c]++;
+					need[c] += value;
+				}
+				if (!inTime) {
+					return false;
+				}
+			}
+			mine[u] = false;
+			return true;
+		}
+	}
+}
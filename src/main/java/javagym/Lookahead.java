@@ -0,0 +1,221 @@
+package javagym;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Chooses a guess by looking ahead at the numbers it may reveal, using the layouts of {@link MineSampler}.
+ * <p>
+ * A position is the set of sampled layouts that agree with the guesses made so far and the numbers they
+ * showed. A position is worth 1 when some cell is safe in all of its layouts, so the game goes on without
+ * another guess. Otherwise it is worth the best over the candidate guesses of the chance that the guess is
+ * safe, times the worth of the position it leads to, for each number it can show, down to a given depth.
+ * <p>
+ * Positions are keyed by the XOR of a random Zobrist key per (cell, number) guessed, so the same guesses made
+ * in another order are evaluated once and looked up after that. The search stops expanding when it runs out
+ * of nodes or time; positions it did not expand count as worth 0.
+ */
+final class Lookahead {
+
+	// With fewer layouts left than this, a cell that is safe in all of them does not count as safe.
+	private static final int MIN_LAYOUTS = 5;
+	// Guesses tried in every position, the safest first.
+	private static final int CANDIDATES = 6;
+
+	private final int variables;
+	private final int layoutCount;
+	private final int words;
+	// Per variable, the layouts where it is a mine.
+	private final long[][] mineLayouts;
+	// Per candidate variable, the number it shows in every layout, or null if it is no candidate.
+	private final byte[][] numbers;
+	private final long[][] zobrist;
+	private final Map<Long, Double> table = new HashMap<>();
+	private final boolean[] guessed;
+
+	private final int nodeBudget;
+	private final long deadline;
+	private int nodes = 0;
+	private int hits = 0;
+
+	/**
+	 * @param layouts    the sampled layouts, bit v set when variable v is a mine
+	 * @param neighbours per variable that can be guessed, its neighbouring variables, or null; all its
+	 *                   unknown neighbours must be variables
+	 * @param flags      per variable, the flags around it
+	 * @param deadline   System.nanoTime() to stop at, Long.MAX_VALUE for none
+	 */
+	Lookahead(int variables, List<long[]> layouts, int[][] neighbours, int[] flags, int nodeBudget, long deadline) {
+		this.variables = variables;
+		this.layoutCount = layouts.size();
+		this.words = (layoutCount + 63) >>> 6;
+		this.nodeBudget = nodeBudget;
+		this.deadline = deadline;
+		this.guessed = new boolean[variables];
+		mineLayouts = new long[variables][words];
+		for (int l = 0; l < layoutCount; l++) {
+			long[] layout = layouts.get(l);
+			for (int v = 0; v < variables; v++) {
+				if ((layout[v >>> 6] >>> v & 1) != 0) {
+					mineLayouts[v][l >>> 6] |= 1L << l;
+				}
+			}
+		}
+		numbers = new byte[variables][];
+		for (int v = 0; v < variables; v++) {
+			if (neighbours[v] == null) {
+				continue;
+			}
+			numbers[v] = new byte[layoutCount];
+			for (int l = 0; l < layoutCount; l++) {
+				int number = flags[v];
+				for (int neighbour : neighbours[v]) {
+					number += (int) (mineLayouts[neighbour][l >>> 6] >>> l & 1);
+				}
+				numbers[v][l] = (byte) number;
+			}
+		}
+		// The keys only need to be distinct within this search, so a fixed seed keeps it reproducible.
+		SplittableRandom random = new SplittableRandom(0x5EED);
+		zobrist = new long[variables][9];
+		for (long[] keys : zobrist) {
+			for (int n = 0; n < keys.length; n++) {
+				keys[n] = random.nextLong();
+			}
+		}
+	}
+
+	int nodes() {
+		return nodes;
+	}
+
+	int hits() {
+		return hits;
+	}
+
+	/**
+	 * The candidate with the best chance of progress, among the candidates whose mine probability is at
+	 * most 'slack' above the lowest one. Ties go to the safest. Returns -1 if every candidate is a mine.
+	 */
+	int best(double slack, int depth) {
+		long[] all = new long[words];
+		for (int l = 0; l < layoutCount; l++) {
+			all[l >>> 6] |= 1L << l;
+		}
+		int[] candidates = candidates(all, layoutCount);
+		if (candidates.length == 0) {
+			return -1;
+		}
+		int safest = candidates[0];
+		double lowest = mines(all, safest) / (double) layoutCount;
+		int best = safest;
+		double bestValue = -1;
+		for (int candidate : candidates) {
+			double risk = mines(all, candidate) / (double) layoutCount;
+			if (risk > lowest + slack) {
+				continue;
+			}
+			double value = guess(all, layoutCount, 0, candidate, depth);
+			if (value > bestValue + 1e-9) {
+				best = candidate;
+				bestValue = value;
+			}
+		}
+		return best;
+	}
+
+	private int mines(long[] layouts, int v) {
+		int count = 0;
+		for (int w = 0; w < words; w++) {
+			count += Long.bitCount(layouts[w] & mineLayouts[v][w]);
+		}
+		return count;
+	}
+
+	// The CANDIDATES safest variables that can be guessed and were not guessed yet, safest first.
+	private int[] candidates(long[] layouts, int count) {
+		long[] sorted = new long[variables];
+		int found = 0;
+		for (int v = 0; v < variables; v++) {
+			if (numbers[v] == null || guessed[v]) {
+				continue;
+			}
+			int mines = mines(layouts, v);
+			if (mines < count) {
+				sorted[found++] = (long) mines << 32 | v;
+			}
+		}
+		Arrays.sort(sorted, 0, found);
+		int[] candidates = new int[Math.min(found, CANDIDATES)];
+		for (int i = 0; i < candidates.length; i++) {
+			candidates[i] = (int) sorted[i];
+		}
+		return candidates;
+	}
+
+	// The chance that guessing v is safe and leads to a position worth 1.
+	private double guess(long[] layouts, int count, long key, int v, int depth) {
+		guessed[v] = true;
+		double value = 0;
+		long[] outcome = new long[words];
+		for (int n = 0; n <= 8; n++) {
+			int outcomeCount = 0;
+			for (int w = 0; w < words; w++) {
+				long match = layouts[w] & ~mineLayouts[v][w];
+				long bits = 0;
+				for (long rest = match; rest != 0; rest &= rest - 1) {
+					int l = (w << 6) + Long.numberOfTrailingZeros(rest);
+					if (numbers[v][l] == n) {
+						bits |= rest & -rest;
+					}
+				}
+				outcome[w] = bits;
+				outcomeCount += Long.bitCount(bits);
+			}
+			if (outcomeCount > 0) {
+				value += outcomeCount / (double) count * position(outcome, outcomeCount, key ^ zobrist[v][n], depth - 1);
+			}
+		}
+		guessed[v] = false;
+		return value;
+	}
+
+	private double position(long[] layouts, int count, long key, int depth) {
+		Double known = table.get(key);
+		if (known != null) {
+			hits++;
+			return known;
+		}
+		nodes++;
+		double value = 0;
+		if (count >= MIN_LAYOUTS && hasSafeCell(layouts)) {
+			value = 1;
+		} else if (depth > 0 && nodes < nodeBudget
+				&& (deadline == Long.MAX_VALUE || System.nanoTime() - deadline < 0)) {
+			for (int candidate : candidates(layouts, count)) {
+				value = Math.max(value, guess(layouts, count, key, candidate, depth));
+			}
+		}
+		table.put(key, value);
+		return value;
+	}
+
+	private boolean hasSafeCell(long[] layouts) {
+		for (int v = 0; v < variables; v++) {
+			if (guessed[v]) {
+				continue;
+			}
+			boolean safe = true;
+			for (int w = 0; w < words && safe; w++) {
+				safe = (layouts[w] & mineLayouts[v][w]) == 0;
+			}
+			if (safe) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
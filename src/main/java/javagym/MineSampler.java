@@ -0,0 +1,279 @@
+package javagym;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Estimates mine probabilities by sampling mine layouts that agree with the numbers on the board and the
+ * number of mines left.
+ * <p>
+ * The variables are the unknown cells next to a number; every number is a constraint that a set of them
+ * holds exactly so many mines. The other unknown cells, the interior, are only counted: a layout with
+ * {@code k} mines among the variables stands for C(interior, mines - k) full layouts.
+ * <p>
+ * Each chain is a Metropolis walk over assignments of the variables that flips one variable at a time. It
+ * also walks through assignments that break constraints, at a cost per missing or extra mine, which lets it
+ * move between different numbers of mines; only the assignments that break nothing are counted. Those are
+ * then drawn in proportion to the number of full layouts they stand for, as they should be.
+ * <p>
+ * The chains get their own SplittableRandom, split from the seed in chain order, and are added up in chain
+ * order, so the result for a seed does not depend on how many threads run them. Only a deadline that cuts
+ * chains short makes it depend on timing. The confidence intervals come from the spread between the chains.
+ */
+final class MineSampler {
+
+	// Cost of a constraint that is off by one mine, as a factor exp(-PENALTY) on the weight.
+	private static final double PENALTY = 2.0;
+	private static final double Z_95 = 1.96;
+
+	private final int variables;
+	private final int interior;
+	private final int mines;
+	private final List<int[]> constraintVariables = new ArrayList<>();
+	private final List<Integer> constraintCounts = new ArrayList<>();
+	private boolean keepLayouts = false;
+
+	MineSampler(int variables, int interior, int mines) {
+		this.variables = variables;
+		this.interior = interior;
+		this.mines = mines;
+	}
+
+	// The given variables hold exactly 'count' mines.
+	void addConstraint(int[] constraint, int count) {
+		constraintVariables.add(constraint);
+		constraintCounts.add(count);
+	}
+
+	// Also return the sampled layouts themselves, see Result.layouts.
+	void keepLayouts(boolean keepLayouts) {
+		this.keepLayouts = keepLayouts;
+	}
+
+	static final class Result {
+		// Per variable, and for any interior cell.
+		final double[] probability;
+		final double[] halfWidth;
+		final double interiorProbability;
+		final double interiorHalfWidth;
+		// Consistent assignments counted over all chains.
+		final long samples;
+		// With keepLayouts, every counted assignment in chain order, bit v set when variable v is a mine.
+		final List<long[]> layouts;
+
+		private Result(double[] probability, double[] halfWidth, double interiorProbability,
+				double interiorHalfWidth, long samples, List<long[]> layouts) {
+			this.probability = probability;
+			this.halfWidth = halfWidth;
+			this.interiorProbability = interiorProbability;
+			this.interiorHalfWidth = interiorHalfWidth;
+			this.samples = samples;
+			this.layouts = layouts;
+		}
+	}
+
+	/**
+	 * Runs the chains, each for the given number of sweeps (a sweep is one proposal per variable) after as
+	 * many sweeps of burn-in, or until the deadline (System.nanoTime(), Long.MAX_VALUE for none).
+	 *
+	 * @param executor runs the chains, or null to run them on this thread
+	 * @return the estimates, or null when no chain found a consistent assignment
+	 */
+	Result sample(long seed, int chains, int sweeps, long deadline, Executor executor) {
+		int[][] constraints = constraintVariables.toArray(new int[0][]);
+		int[] counts = constraintCounts.stream().mapToInt(Integer::intValue).toArray();
+		int[][] variableConstraints = invert(constraints);
+
+		SplittableRandom root = new SplittableRandom(seed);
+		List<CompletableFuture<long[]>> results = new ArrayList<>();
+		List<Chain> chainList = new ArrayList<>();
+		for (int c = 0; c < chains; c++) {
+			SplittableRandom random = root.split();
+			Chain chain = new Chain(constraints, counts, variableConstraints, random);
+			chainList.add(chain);
+			if (executor == null) {
+				results.add(CompletableFuture.completedFuture(chain.run(sweeps, deadline)));
+			} else {
+				results.add(CompletableFuture.supplyAsync(() -> chain.run(sweeps, deadline), executor));
+			}
+		}
+
+		// Per chain: the mines of every variable, then those of the interior, then the number of samples.
+		long samples = 0;
+		double[] sums = new double[variables + 1];
+		double[] squares = new double[variables + 1];
+		int chainsWithSamples = 0;
+		long[][] chainCounts = new long[chains][];
+		for (int c = 0; c < chains; c++) {
+			chainCounts[c] = results.get(c).join();
+			samples += chainCounts[c][variables + 1];
+		}
+		if (samples == 0) {
+			return null;
+		}
+		double[] probability = new double[variables];
+		long[] total = new long[variables + 1];
+		for (long[] chainCount : chainCounts) {
+			long chainSamples = chainCount[variables + 1];
+			for (int v = 0; v <= variables; v++) {
+				total[v] += chainCount[v];
+			}
+			if (chainSamples == 0) {
+				continue;
+			}
+			chainsWithSamples++;
+			for (int v = 0; v <= variables; v++) {
+				double estimate = (double) chainCount[v] / chainSamples;
+				sums[v] += estimate;
+				squares[v] += estimate * estimate;
+			}
+		}
+		double[] halfWidth = new double[variables + 1];
+		for (int v = 0; v <= variables; v++) {
+			if (chainsWithSamples > 1) {
+				double mean = sums[v] / chainsWithSamples;
+				double variance = Math.max(0, (squares[v] - chainsWithSamples * mean * mean) / (chainsWithSamples - 1));
+				halfWidth[v] = Z_95 * Math.sqrt(variance / chainsWithSamples);
+			} else {
+				halfWidth[v] = 1.0;
+			}
+		}
+		for (int v = 0; v < variables; v++) {
+			probability[v] = (double) total[v] / samples;
+		}
+		double interiorProbability = interior == 0 ? 0 : (double) total[variables] / samples / interior;
+		List<long[]> layouts = new ArrayList<>();
+		for (Chain chain : chainList) {
+			layouts.addAll(chain.layouts);
+		}
+		return new Result(probability, Arrays.copyOf(halfWidth, variables), interiorProbability,
+				interior == 0 ? 0 : halfWidth[variables] / interior, samples, layouts);
+	}
+
+	private int[][] invert(int[][] constraints) {
+		int[] degree = new int[variables];
+		for (int[] constraint : constraints) {
+			for (int v : constraint) {
+				degree[v]++;
+			}
+		}
+		int[][] inverted = new int[variables][];
+		for (int v = 0; v < variables; v++) {
+			inverted[v] = new int[degree[v]];
+		}
+		for (int c = 0; c < constraints.length; c++) {
+			for (int v : constraints[c]) {
+				inverted[v][--degree[v]] = c;
+			}
+		}
+		return inverted;
+	}
+
+	private final class Chain {
+
+		private final int[][] constraints;
+		private final int[] counts;
+		private final int[][] variableConstraints;
+		private final SplittableRandom random;
+
+		private final boolean[] mine = new boolean[variables];
+		private final int[] sums;
+		private int placed = 0;
+		private int violations = 0;
+		private final List<long[]> layouts = new ArrayList<>();
+
+		Chain(int[][] constraints, int[] counts, int[][] variableConstraints, SplittableRandom random) {
+			this.constraints = constraints;
+			this.counts = counts;
+			this.variableConstraints = variableConstraints;
+			this.random = random;
+			this.sums = new int[constraints.length];
+		}
+
+		// Mine counts per variable, interior mines, and the number of samples.
+		long[] run(int sweeps, long deadline) {
+			long[] result = new long[variables + 2];
+			// Start with as few mines as the interior allows, at random places.
+			int start = Math.max(0, mines - interior);
+			if (start > variables) {
+				return result;
+			}
+			for (int v = 0; v < start; v++) {
+				flip(v);
+			}
+			for (int v = variables - 1; v > 0; v--) {
+				int j = random.nextInt(v + 1);
+				if (mine[v] != mine[j]) {
+					flip(v);
+					flip(j);
+				}
+			}
+			violations = 0;
+			for (int c = 0; c < constraints.length; c++) {
+				violations += Math.abs(sums[c] - counts[c]);
+			}
+
+			for (int sweep = 0; sweep < 2 * sweeps; sweep++) {
+				if (System.nanoTime() - deadline > 0 && deadline != Long.MAX_VALUE) {
+					break;
+				}
+				for (int step = 0; step < variables; step++) {
+					propose(random.nextInt(variables));
+				}
+				if (sweep >= sweeps && violations == 0) {
+					for (int v = 0; v < variables; v++) {
+						if (mine[v]) {
+							result[v]++;
+						}
+					}
+					// Interior mines, to be divided by the interior size.
+					result[variables] += mines - placed;
+					result[variables + 1]++;
+					if (keepLayouts) {
+						long[] layout = new long[(variables + 63) >>> 6];
+						for (int v = 0; v < variables; v++) {
+							if (mine[v]) {
+								layout[v >>> 6] |= 1L << v;
+							}
+						}
+						layouts.add(layout);
+					}
+				}
+			}
+			return result;
+		}
+
+		private void flip(int v) {
+			int delta = mine[v] ? -1 : 1;
+			mine[v] = !mine[v];
+			placed += delta;
+			for (int c : variableConstraints[v]) {
+				sums[c] += delta;
+			}
+		}
+
+		private void propose(int v) {
+			int delta = mine[v] ? -1 : 1;
+			int left = mines - placed;
+			// The interior must be able to hold the mines that are left.
+			if (left - delta < 0 || left - delta > interior) {
+				return;
+			}
+			int change = 0;
+			for (int c : variableConstraints[v]) {
+				change += Math.abs(sums[c] + delta - counts[c]) - Math.abs(sums[c] - counts[c]);
+			}
+			// C(interior, left - 1) / C(interior, left) = left / (interior - left + 1), and the inverse.
+			double ratio = delta > 0 ? (double) left / (interior - left + 1) : (double) (interior - left) / (left + 1);
+			double accept = ratio * Math.exp(-PENALTY * change);
+			if (accept >= 1 || random.nextDouble() < accept) {
+				flip(v);
+				violations += change;
+			}
+		}
+	}
+}
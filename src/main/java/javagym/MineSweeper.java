@@ -1,17 +1,55 @@
 package javagym;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
 import java.util.Random;
 
 abstract class MineSweeper {
 
     // Do NOT use 'field'
-    private String[][] field;
-
-    // Use 'display' to check the visible board state
-    public String[][] display;
+    private CellLayer field;
+    private static final byte HIDDEN = 0;
+    private static final byte MINE = 1;
+    private static final byte CLEARED = 2;
+
+    // The visible board state per cell, see BoardView. Strategies read it through getBoard().
+    private CellLayer display;
+    private int stride;
+    private final int[] neighbourOffsets = new int[8];
+    // The board when it is not the classic grid, where the neighbours are the neighbourOffsets, else null.
+    // Per cell of the topology, the board cells of its neighbours.
+    private Topology topology;
+    private int[] topologyNeighbours;
+    // Neighbours of the cell being counted, and of the cell being opened or chorded.
+    private final int[] counted = new int[8];
+    private final int[] around = new int[8];
+    private final BoardView board = new View();
+    // Copy-on-write copy of 'display', kept up to date once a strategy took a snapshot in this game.
+    private BoardSnapshot.Fork snapshots;
+    // The frontier per tile of rows on large on-heap boards, kept up to date by setDisplay.
+    private TileScan tiles;
+
+    // The game when it is played on a TiledBoard, see MineSweeper(TiledBoard), else null.
+    private TiledBoard tiled;
+
+    // Keeps the board layers outside the Java heap from the next reset on, see setOffHeap.
+    private boolean offHeap = false;
+
+    // Cells revealed since the last detect, and the zeros found by it for the cascade.
+    // These grow as needed rather than holding every cell, so they stay small on huge boards.
+    private int[] revealed;
+    private int revealedCount = 0;
+    private int[] zeros;
+    private int zeroCount = 0;
+
+    // Cells whose state changed since the last BoardView.changedCells call.
+    private int[] changeLog;
+    private int[] spareChangeLog;
+    private int changeCount = 0;
+    private CellLayer changed;
 
     public int fieldWidth;
     public int fieldHeight;
@@ -19,9 +57,17 @@ abstract class MineSweeper {
     private Boolean isDone = false;
     private Boolean isWin = false;
 
+    // Number of tiles that are neither a mine nor revealed.
+    private int unknownTiles;
+
+    // Actions that pickSquare can put in the third element of its result. Without one the tile is revealed.
+    static final int REVEAL = 0;
+    static final int CHORD = 1;
+
     public String unknown = " ? ";
     public String mine = " * ";
     public String empty = "   ";
+    public String flag = " F ";
     public String[] neighbourCount = new String[]{
             " 0 ",
             " 1 ",
@@ -34,67 +80,433 @@ abstract class MineSweeper {
             " 8 ",
     };
     private Random rand;
+    private int seed;
+
+    // Randomness for strategies, seeded per game so that games can be replayed.
+    private final Random strategyRandom = new Random();
+
+    // Time each pickSquare call may take, 0 means unlimited. Strategies check pastDeadline() cooperatively.
+    private long moveBudgetNanos = 0;
+    private long moveStart;
+    private long moveDeadline;
+    private boolean moveDeadlineHit;
+    private int deadlineHits = 0;
+
+    boolean verbose = true;
 
     //Constructor places empty spaces in tiles.
     MineSweeper(int width, int height) {
+        init(width, height);
+    }
+
+    // A strategy for a board that is too big for the layers here. It gets no board of its own: getBoard()
+    // is the tiled board and the moves go to it. The game is played by TiledBoard.play, not by a GameRunner.
+    MineSweeper(TiledBoard tiled) {
+        this.tiled = tiled;
+        fieldWidth = tiled.width();
+        fieldHeight = tiled.height();
+        stride = fieldWidth + 2;
+        strategyRandom.setSeed(tiled.seed());
+    }
+
+    // Starts a new game on this instance. The buffers are reused when the new board fits in them.
+    // A seed above 0 makes generateMinesRandom place the same mines as a new instance with that seed.
+    // The seed also seeds getRandom().
+    void reset(int width, int height, int seed) {
+        if (tiled != null) {
+            throw new UnsupportedOperationException("A game on a TiledBoard can not be reset");
+        }
+        init(width, height);
+        if (seed <= 0) {
+            seed = (int) (1e9 * Math.random());
+        }
+        this.seed = seed;
+        if (rand == null) {
+            rand = new Random(seed);
+        } else {
+            rand.setSeed(seed);
+        }
+        strategyRandom.setSeed(seed);
+        isDone = false;
+        isWin = false;
+        deadlineHits = 0;
+    }
+
+    private void init(int width, int height) {
+        if (topology != null && (topology.width != width || topology.height != height)) {
+            setTopology(Topology.of(topology.name, width, height, 1));
+        }
         fieldWidth = width;
         fieldHeight = height;
-        field = new String[fieldWidth+2][fieldHeight+2];
-        display = new String[fieldWidth+2][fieldHeight+2];
-        for (int x = 0; x < field.length; x++) {
-            for (int y = 0; y < field[0].length; y++) {
-                //Places blank spaces in the outer lines of the map
-                if ((x == 0 || x == field.length - 1) || (y == 0 || y == field[0].length - 1)) {
-                    field[x][y] = empty;
-                    display[x][y] = empty;
+        unknownTiles = width * height;
+        stride = fieldWidth + 2;
+        int cells = stride * (fieldHeight + 2);
+        if (display == null || display.capacity() < cells) {
+            close();
+            if (offHeap) {
+                field = CellLayer.offHeap(cells, 2, 0);
+                display = CellLayer.offHeap(cells, 4, BoardView.OUTSIDE);
+                changed = CellLayer.offHeap(cells, 1, 0);
+            } else {
+                field = CellLayer.onHeap(cells);
+                display = CellLayer.onHeap(cells);
+                changed = CellLayer.onHeap(cells);
+            }
+            int lists = Math.min(cells, 1024);
+            revealed = new int[lists];
+            zeros = new int[lists];
+            changeLog = new int[lists];
+            spareChangeLog = new int[lists];
+        }
+        changed.fill(cells, 0);
+        field.fill(cells, HIDDEN);
+        display.fill(cells, BoardView.UNKNOWN);
+        revealedCount = 0;
+        zeroCount = 0;
+        changeCount = 0;
+        snapshots = null;
+        tiles = topology == null && !offHeap && TileScan.tiled(cells) ? new TileScan(stride, fieldHeight + 2) : null;
+        int i = 0;
+        for (int yOffset = -1; yOffset <= 1; yOffset++) {
+            for (int xOffset = -1; xOffset <= 1; xOffset++) {
+                if (xOffset != 0 || yOffset != 0) {
+                    neighbourOffsets[i++] = xOffset + yOffset * stride;
+                }
+            }
+        }
+        //Places blank spaces in the outer lines of the map, the game field stays ?.
+        for (int x = 0; x < stride; x++) {
+            setBorder(x);
+            setBorder(x + (fieldHeight + 1) * stride);
+        }
+        for (int y = 1; y <= fieldHeight; y++) {
+            setBorder(y * stride);
+            setBorder(stride - 1 + y * stride);
+        }
+    }
+
+    private void setBorder(int cell) {
+        field.set(cell, CLEARED);
+        display.set(cell, BoardView.OUTSIDE);
+    }
+
+    // Selects where the board of the next reset lives. Off-heap takes less than a byte per cell outside the
+    // Java heap and must be released with close(); it plays exactly like the on-heap board.
+    void setOffHeap(boolean offHeap) {
+        if (this.offHeap != offHeap) {
+            this.offHeap = offHeap;
+            close();
+        }
+    }
+
+    boolean isOffHeap() {
+        return offHeap;
+    }
+
+    // Plays the next reset on this topology, null for the classic grid; a reset to another size keeps the kind.
+    // Cubes can not be played: a cell can have up to 26 neighbours, and the visible board only holds 0 to 8.
+    void setTopology(Topology topology) {
+        if (topology == null || topology.isGrid()) {
+            this.topology = null;
+            topologyNeighbours = null;
+            return;
+        }
+        if (topology.depth != 1 || topology.maxDegree > neighbourOffsets.length) {
+            throw new IllegalArgumentException("Can not play on a " + topology);
+        }
+        int stride = topology.width + 2;
+        int[] neighbours = new int[topology.neighbours.length];
+        for (int i = 0; i < neighbours.length; i++) {
+            int neighbour = topology.neighbours[i];
+            neighbours[i] = topology.x(neighbour) + 1 + (topology.y(neighbour) + 1) * stride;
+        }
+        this.topology = topology;
+        topologyNeighbours = neighbours;
+    }
+
+    // The topology of this game, null on the classic grid.
+    Topology getTopology() {
+        return topology;
+    }
+
+    // Writes the board cells next to a cell on the board to 'out' and returns how many there are.
+    private int neighbours(int cell, int[] out) {
+        if (topology == null) {
+            for (int i = 0; i < neighbourOffsets.length; i++) {
+                out[i] = cell + neighbourOffsets[i];
+            }
+            return neighbourOffsets.length;
+        }
+        int at = cell % stride - 1 + (cell / stride - 1) * fieldWidth;
+        int count = 0;
+        for (int i = topology.start[at]; i < topology.start[at + 1]; i++) {
+            out[count++] = topologyNeighbours[i];
+        }
+        return count;
+    }
+
+    // Frees the board. The instance gets a new board on the next reset.
+    void close() {
+        if (display != null) {
+            field.close();
+            display.close();
+            changed.close();
+            field = null;
+            display = null;
+            changed = null;
+        }
+    }
+
+    private static int[] push(int[] list, int count, int cell) {
+        if (count == list.length) {
+            list = Arrays.copyOf(list, 2 * count);
+        }
+        list[count] = cell;
+        return list;
+    }
+
+    // The visible board, for strategies.
+    BoardView getBoard() {
+        return tiled != null ? tiled : board;
+    }
+
+    private class View implements BoardView {
+
+        @Override
+        public int width() {
+            return fieldWidth;
+        }
+
+        @Override
+        public int height() {
+            return fieldHeight;
+        }
+
+        @Override
+        public int stride() {
+            return stride;
+        }
+
+        @Override
+        public int cellCount() {
+            return stride * (fieldHeight + 2);
+        }
+
+        @Override
+        public int state(int cell) {
+            return display.get(cell);
+        }
+
+        @Override
+        public int[] neighbourOffsets() {
+            return neighbourOffsets.clone();
+        }
+
+        // The first snapshot of a game copies the board, later ones only the references to its tiles.
+        @Override
+        public BoardSnapshot snapshot() {
+            if (snapshots == null) {
+                snapshots = BoardSnapshot.Fork.mirrorOf(this);
+            }
+            return snapshots.snapshot();
+        }
+
+        @Override
+        public int frontierCells(int[] out) {
+            if (topology != null) {
+                return topologyFrontier(out);
+            }
+            byte[] states = display.array();
+            if (states == null) {
+                return BoardView.super.frontierCells(out);
+            }
+            if (tiles != null) {
+                return tiles.frontier(BoardKernels.get(), states, out);
+            }
+            return BoardKernels.get().frontier(states, stride, fieldHeight + 2, out);
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt changedCells() {
+            final int[] cells = changeLog;
+            final int count = changeCount;
+            changeLog = spareChangeLog;
+            spareChangeLog = cells;
+            changeCount = 0;
+            for (int i = 0; i < count; i++) {
+                changed.set(cells[i], 0);
+            }
+            return new PrimitiveIterator.OfInt() {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < count;
                 }
-                //Places ? in game field.
-                else {
-                    field[x][y] = unknown;
-                    display[x][y] = unknown;
+
+                @Override
+                public int nextInt() {
+                    return cells[i++];
+                }
+            };
+        }
+    }
+
+    // The frontier of a board that is not the grid, in increasing order like the kernels give it.
+    private int topologyFrontier(int[] out) {
+        int[] neighbours = new int[neighbourOffsets.length];
+        int count = 0;
+        for (int y = 1; y <= fieldHeight; y++) {
+            for (int x = 1; x <= fieldWidth; x++) {
+                int cell = x + y * stride;
+                if (display.get(cell) < 0) {
+                    continue;
+                }
+                int n = neighbours(cell, neighbours);
+                for (int i = 0; i < n; i++) {
+                    if (display.get(neighbours[i]) == BoardView.UNKNOWN) {
+                        out[count++] = cell;
+                        break;
+                    }
                 }
             }
         }
+        return count;
+    }
+
+    private void setDisplay(int cell, int state) {
+        display.set(cell, state);
+        if (tiles != null) {
+            tiles.changed(cell);
+        }
+        if (snapshots != null) {
+            snapshots.set(cell, state);
+        }
+        if (changed.get(cell) == 0) {
+            changed.set(cell, 1);
+            changeLog = push(changeLog, changeCount++, cell);
+        }
+    }
+
+    // Reveals a tile that is not a mine. Its number is filled in by the next detect.
+    private void reveal(int x, int y) {
+        uncover(x, y, BoardView.REVEALED);
+        revealed = push(revealed, revealedCount++, x + y * stride);
+    }
+
+    private void uncover(int x, int y, int state) {
+        setDisplay(x + y * stride, state);
+        field.set(x + y * stride, CLEARED);
+        unknownTiles--;
+    }
+
+    private int countMines(int x, int y) {
+        int count = neighbours(x + y * stride, counted);
+        int nums = 0;
+        for (int i = 0; i < count; i++) {
+            if (field.get(counted[i]) == MINE) {
+                nums++;
+            }
+        }
+        return nums;
+    }
+
+    // The hidden board as text, for printing.
+    private String[][] fieldStrings() {
+        String[][] strings = new String[fieldWidth + 2][fieldHeight + 2];
+        for (int x = 0; x < strings.length; x++) {
+            for (int y = 0; y < strings[0].length; y++) {
+                strings[x][y] = getTile(x, y);
+            }
+        }
+        return strings;
+    }
+
+    // The visible board as text, for printing.
+    String[][] displayStrings() {
+        String[][] strings = new String[fieldWidth + 2][fieldHeight + 2];
+        for (int x = 0; x < strings.length; x++) {
+            for (int y = 0; y < strings[0].length; y++) {
+                int state = display.get(x + y * stride);
+                if (state == BoardView.UNKNOWN) {
+                    strings[x][y] = unknown;
+                } else if (state == BoardView.FLAG) {
+                    strings[x][y] = flag;
+                } else if (state >= 0 && state < neighbourCount.length) {
+                    strings[x][y] = neighbourCount[state];
+                } else {
+                    strings[x][y] = empty;
+                }
+            }
+        }
+        return strings;
     }
 
     abstract int[] pickSquare();
 
-    private void autoReveal(int x, int y) {
-        turn(x, y);
-        detect();
+    // Picks any number of moves that are all played before the board is updated. Strategies that
+    // know several safe tiles at once can override this, by default it is a single pickSquare.
+    int[][] pickSquares() {
+        return new int[][]{pickSquare()};
     }
 
-    void revealNeighboursOfZeros() {
+    void setMoveBudgetMicros(long micros) {
+        moveBudgetNanos = micros * 1000;
+    }
 
-        final int X = field.length;
-        final int Y = field[0].length;
-        final String zero = " 0 ";
+    long getMoveBudgetMicros() {
+        return moveBudgetNanos / 1000;
+    }
 
-        int changeCount;
-        do {
-            changeCount = 0;
-            for (int x = 0; x < X; x++) {
-                for (int y = 0; y < Y; y++) {
-                    if (unknown.equals(display[x][y])) {
-                        boolean changed = true;
-                        if (x < X - 1 && y < Y - 1 && zero.equals(display[x + 1][y + 1])) autoReveal(x, y);
-                        else if (x < X - 1 && zero.equals(display[x + 1][y])) autoReveal(x, y);
-                        else if (x < X - 1 && y > 0 && zero.equals(display[x + 1][y - 1])) autoReveal(x, y);
+    int getDeadlineHits() {
+        return deadlineHits;
+    }
 
-                        else if (y < Y - 1 && zero.equals(display[x][y + 1])) autoReveal(x, y);
-                        else if (y > 0 && zero.equals(display[x][y - 1])) autoReveal(x, y);
+    // Starts the clock for the next pickSquare call.
+    void startMove() {
+        moveStart = System.nanoTime();
+        moveDeadline = moveStart + moveBudgetNanos;
+        moveDeadlineHit = false;
+    }
 
-                        else if (x > 0 && y < Y - 1 && zero.equals(display[x - 1][y + 1])) autoReveal(x, y);
-                        else if (x > 0 && zero.equals(display[x - 1][y])) autoReveal(x, y);
-                        else if (x > 0 && y > 0 && zero.equals(display[x - 1][y - 1])) autoReveal(x, y);
+    long getMoveStart() {
+        return moveStart;
+    }
 
-                        else changed = false;
+    long getMoveDeadline() {
+        return moveBudgetNanos == 0 ? Long.MAX_VALUE : moveDeadline;
+    }
 
-                        if (changed) changeCount++;
+    // Returns true (and counts the hit once per move) when the current move is out of time.
+    protected boolean pastDeadline() {
+        if (moveBudgetNanos == 0 || System.nanoTime() - moveDeadline < 0) {
+            return false;
+        }
+        if (!moveDeadlineHit) {
+            deadlineHits++;
+            moveDeadlineHit = true;
+        }
+        return true;
+    }
+
+    // Reveals the neighbours of the zeros found by the last detect, and of the zeros that uncovers.
+    void revealNeighboursOfZeros() {
+        while (zeroCount > 0) {
+            int cell = zeros[--zeroCount];
+            int count = neighbours(cell, around);
+            for (int i = 0; i < count; i++) {
+                int neighbour = around[i];
+                if (display.get(neighbour) == BoardView.UNKNOWN) {
+                    int x = neighbour % stride;
+                    int y = neighbour / stride;
+                    int nums = countMines(x, y);
+                    uncover(x, y, nums);
+                    if (nums == 0) {
+                        zeros = push(zeros, zeroCount++, neighbour);
                     }
                 }
             }
-        } while (changeCount > 0);
+        }
     }
 
     protected void printGame(String[][] str) {
@@ -112,7 +524,7 @@ abstract class MineSweeper {
 
     // Shows the field after every square selection.
     void print() {
-        printGame(display);
+        printGame(displayStrings());
     }
 
     // Places n mines at random on the field.
@@ -121,7 +533,9 @@ abstract class MineSweeper {
             if (seed <= 0) {
                 seed = (int) (1e9 * Math.random());
             }
+            this.seed = seed;
             rand = new Random(seed);
+            strategyRandom.setSeed(seed);
         }
         for (int m = 0; m < mineCount; m++) {
             //Loops until a mine is placed.
@@ -133,8 +547,11 @@ abstract class MineSweeper {
                 if (x >= 1 && x <= fieldWidth) {
                     if (y >= 1 && y <= fieldHeight){
                         // Checks if a mine is present in a spot.
-                        if (!field[x][y].equals(mine)) {
-                            field[x][y] = mine;
+                        if (field.get(x + y * stride) != MINE) {
+                            if (field.get(x + y * stride) == HIDDEN) {
+                                unknownTiles--;
+                            }
+                            field.set(x + y * stride, MINE);
                             break;
                         }
                     }
@@ -144,26 +561,21 @@ abstract class MineSweeper {
     }
 
     void loadFile(String fileName) throws IOException {
-        BufferedReader br = new BufferedReader(new FileReader(fileName));
-        try {
-            String line = br.readLine();
-
-            int index = 0;
-            while (line != null) {
-                index ++;
-                String[] squares = line.split("|");
-
-                for (int i = 0; i < squares.length; i++ ) {
-                    String square = squares[i];
-                    if (square.equals("*")) {
-                        field[((int)(i/2)+1)][index] = mine;
-                    }
-                }
+        loadBoard(BoardFile.load(Paths.get(fileName)));
+    }
 
-                line = br.readLine();
+    // Places the mines of a board with the same size as this game.
+    void loadBoard(BoardLayout layout) {
+        if (layout.width != fieldWidth || layout.height != fieldHeight) {
+            throw new IllegalArgumentException("Board is " + layout.width + "x" + layout.height
+                    + ", game is " + fieldWidth + "x" + fieldHeight);
+        }
+        for (int i = layout.mines.nextSetBit(0); i >= 0; i = layout.mines.nextSetBit(i + 1)) {
+            int cell = (i % layout.width + 1) + (i / layout.width + 1) * stride;
+            if (field.get(cell) == HIDDEN) {
+                unknownTiles--;
             }
-        } finally {
-            br.close();
+            field.set(cell, MINE);
         }
     }
 
@@ -172,72 +584,180 @@ abstract class MineSweeper {
             int x,
             int y
     ) {
+        if (topology != null) {
+            int cell = x + y * stride;
+            if (field.get(cell) == HIDDEN) {
+                reveal(x, y);
+            }
+            int count = neighbours(cell, around);
+            for (int i = 0; i < count; i++) {
+                if (field.get(around[i]) == HIDDEN) {
+                    reveal(around[i] % stride, around[i] / stride);
+                }
+            }
+            return;
+        }
         for (int i = (x - 1); i <= (x + 1); i++) {
             for (int j = (y - 1); j <= (y + 1); j++) {
-                if (field[i][j].equals(unknown)){
-                    display[i][j] = empty;
-                    field[i][j] = empty;
+                if (field.get(i + j * stride) == HIDDEN){
+                    reveal(i, j);
                 }
             }
         }
     }
 
+    // The seed of this game, see reset.
+    int getSeed() {
+        return seed;
+    }
+
+    // Use this instead of Math.random() in strategies, so games can be replayed.
+    protected Random getRandom() {
+        return strategyRandom;
+    }
+
+    int getUnknownTiles() {
+        return unknownTiles;
+    }
+
+    // The mines as they are now, with the seed of this game.
+    BoardLayout layout() {
+        BitSet mines = new BitSet(fieldWidth * fieldHeight);
+        for (int y = 1; y <= fieldHeight; y++) {
+            for (int x = 1; x <= fieldWidth; x++) {
+                if (field.get(x + y * stride) == MINE) {
+                    mines.set((y - 1) * fieldWidth + x - 1);
+                }
+            }
+        }
+        return new BoardLayout(fieldWidth, fieldHeight, seed, mines);
+    }
+
     // Gets the value of a tile.
     String getTile(
             int x,
             int y
     ) {
-        return field[x][y];
+        switch (field.get(x + y * stride)) {
+            case HIDDEN:
+                return unknown;
+            case MINE:
+                return mine;
+            default:
+                return empty;
+        }
     }
 
-    // Detects number of mines around a selected tile.
+    // Detects number of mines around the tiles revealed since the last call.
     void detect() {
-        for (int x = 1; x < display.length - 1; x++) {
-            for (int y = 1; y < display.length - 1; y++) {
-                if (field[x][y].equals(empty)) {
-                    int nums = 0;
-                    for (int i = (x - 1); i <= (x + 1); i++) {
-                        for (int j = (y - 1); j <= (y + 1); j++) {
-                            if(field[i][j].equals(mine)) {
-                                nums++;
-                            }
-                        }
-                    }
-                    // Set the number which indicates how many mines are near
-                    display[x][y] = " " + nums + " ";
-                }
+        for (int i = 0; i < revealedCount; i++) {
+            int cell = revealed[i];
+            int nums = countMines(cell % stride, cell / stride);
+            // Set the number which indicates how many mines are near
+            setDisplay(cell, nums);
+            if (nums == 0) {
+                zeros = push(zeros, zeroCount++, cell);
             }
         }
+        revealedCount = 0;
     }
 
     // Takes user's selected coordinates and adjusts the board.
     void turn(int x, int y) {
-        if (field[x][y].equals(unknown)) {
+        if (field.get(x + y * stride) == HIDDEN) {
             isDone = false;
-            display[x][y] = empty;
-            field[x][y] = empty;
-        } else if (field[x][y].equals(mine)) {
+            reveal(x, y);
+        } else if (field.get(x + y * stride) == MINE) {
             // The player has selected a mine.
             isDone = true;
             isWin = false;
-            System.out.println("You've lost!");
-        } else if (display[x][y].equals(empty) && field[x][y].equals(empty)) {
+            if (verbose) {
+                System.out.println("You've lost!");
+            }
+        } else if (display.get(x + y * stride) >= 0 && field.get(x + y * stride) == CLEARED) {
             isDone = false;
-            System.out.println("This tile has already been cleared!");
+            if (verbose) {
+                System.out.println("This tile has already been cleared!");
+            }
         }
     }
 
-    // Determines if a player has cleared all safe tiles.
-    void isVictory() {
-        int tile = 0;
-        for (String[] strings : field) {
-            for (int j = 0; j < field[0].length; j++) {
-                if (strings[j].equals(unknown))
-                    tile++;
+    // Plays a move returned by pickSquare.
+    void move(int[] pick) {
+        if (tiled != null) {
+            if (pick.length > 2 && pick[2] == CHORD) {
+                tiled.chord(pick[0], pick[1]);
+            } else {
+                tiled.turn(pick[0], pick[1]);
+            }
+            return;
+        }
+        if (pick.length > 2 && pick[2] == CHORD) {
+            chord(pick[0], pick[1]);
+        } else {
+            turn(pick[0], pick[1]);
+        }
+    }
+
+    // Marks an unknown tile as a mine. This only changes the display, the game itself does not check flags.
+    void flag(int x, int y) {
+        if (tiled != null) {
+            tiled.flag(x, y);
+            return;
+        }
+        if (display.get(x + y * stride) == BoardView.UNKNOWN) {
+            setDisplay(x + y * stride, BoardView.FLAG);
+        }
+    }
+
+    void unflag(int x, int y) {
+        if (tiled != null) {
+            tiled.unflag(x, y);
+            return;
+        }
+        if (display.get(x + y * stride) == BoardView.FLAG) {
+            setDisplay(x + y * stride, BoardView.UNKNOWN);
+        }
+    }
+
+    boolean isFlagged(int x, int y) {
+        if (tiled != null) {
+            return tiled.state(x, y) == BoardView.FLAG;
+        }
+        return display.get(x + y * stride) == BoardView.FLAG;
+    }
+
+    // Reveals all unflagged neighbours of a number that has as many flags around it as its value.
+    // Like turn, the numbers and the zero cascade are only updated by the following detect.
+    void chord(int x, int y) {
+        int cell = x + y * stride;
+        int number = display.get(cell);
+        int count = neighbours(cell, around);
+        int flags = 0;
+        for (int i = 0; i < count; i++) {
+            if (display.get(around[i]) == BoardView.FLAG) {
+                flags++;
             }
         }
+        if (number < 0 || number > 8 || flags != number) {
+            if (verbose) {
+                System.out.println("This tile can not be chorded!");
+            }
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (display.get(around[i]) == BoardView.UNKNOWN) {
+                turn(around[i] % stride, around[i] / stride);
+                if (isDone) {
+                    return;
+                }
+            }
+        }
+    }
 
-        if (tile != 0) {
+    // Determines if a player has cleared all safe tiles.
+    void isVictory() {
+        if (unknownTiles != 0) {
             isWin = false;
         } else {
             // If the player has selected all the non-mine tiles. The player has won.
@@ -248,21 +768,30 @@ abstract class MineSweeper {
 
     // Determines if the game is finished.
     Boolean getDone() {
+        if (tiled != null) {
+            return tiled.isDone();
+        }
         return isDone;
     }
 
     // Determines if a player won.
     Boolean getWin() {
+        if (tiled != null) {
+            return tiled.isWin();
+        }
         return isWin;
     }
 
     // Displays location of mines at end of game.
     void onEnd() {
-        printGame(field);
+        if (verbose) {
+            printGame(fieldStrings());
+        }
     }
 
     // Do not call this method in your solution.
     void doNotCall_RemoveMine(int x, int y) {
-        field[x][y] = " ? ";
+        field.set(x + y * stride, HIDDEN);
+        unknownTiles++;
     }
 }
@@ -0,0 +1,209 @@
+package javagym;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates boards that can be solved from a given first click without guessing.
+ * <p>
+ * A candidate has no mines around the first click, so that opens up. A {@link DeductionSolver} then plays
+ * it with the single and the pair rule. When the solver gets stuck, a mine on the border is moved to
+ * an unknown cell away from it, and the solver goes on. Those moves change numbers it already used, so a
+ * board with moves is solved again from the start, until a round needs no moves. A candidate that needs too
+ * many rounds or moves is dropped for a new one.
+ * <p>
+ * Board i of a batch only depends on the seed and i, so any number of threads give the same boards.
+ * Boards can have any {@link Topology}; the layers of a cube come out below each other.
+ * <p>
+ * Usage: NoGuessGenerator [width] [height] [mines] [boards] [seed] [threads] [topology] [depth]
+ */
+final class NoGuessGenerator {
+
+	private static final int MAX_ROUNDS = 20;
+	// Mines moved in one round before the candidate is dropped. A candidate that needs more is usually
+	// stuck on cells no move helps with, like two last cells that share one mine.
+	private static final int MAX_MOVES = 16;
+
+	private final Topology topology;
+	private final int mineCount;
+	private final int first;
+
+	private final LongAdder candidates = new LongAdder();
+	private final LongAdder moves = new LongAdder();
+	private final LongAdder rounds = new LongAdder();
+
+	/**
+	 * @param firstX 0-based, like firstY
+	 */
+	NoGuessGenerator(int width, int height, int mineCount, int firstX, int firstY) {
+		this(Topology.grid(width, height), mineCount, firstY * width + firstX);
+	}
+
+	NoGuessGenerator(Topology topology, int mineCount, int first) {
+		if (mineCount > topology.cells() - 1 - topology.degree(first)) {
+			throw new IllegalArgumentException("Too many mines: " + mineCount);
+		}
+		this.topology = topology;
+		this.mineCount = mineCount;
+		this.first = first;
+	}
+
+	long candidates() {
+		return candidates.sum();
+	}
+
+	long moves() {
+		return moves.sum();
+	}
+
+	long rounds() {
+		return rounds.sum();
+	}
+
+	/**
+	 * The board for the seed, which is also stored as the seed of the layout.
+	 */
+	BoardLayout board(long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Solver solver = new Solver();
+		while (true) {
+			candidates.increment();
+			solver.place(random);
+			for (int round = 0; round < MAX_ROUNDS; round++) {
+				rounds.increment();
+				int moved = solver.solve(random);
+				if (moved == 0) {
+					return solver.layout(seed);
+				}
+				if (moved < 0) {
+					break;
+				}
+			}
+		}
+	}
+
+	// The boards seed, seed + 1, ... on the given number of threads.
+	BoardLayout[] boards(int count, long seed, int threads) throws InterruptedException {
+		BoardLayout[] boards = new BoardLayout[count];
+		AtomicInteger next = new AtomicInteger();
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				for (int board = next.getAndIncrement(); board < count; board = next.getAndIncrement()) {
+					boards[board] = board(seed + board);
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return boards;
+	}
+
+	// Plays candidates from the first click, and moves their mines.
+	private final class Solver extends DeductionSolver {
+
+		private final int[] cells = new int[mine.length];
+
+		Solver() {
+			super(NoGuessGenerator.this.topology);
+		}
+
+		// New mines, uniformly over the cells away from the first click.
+		void place(SplittableRandom random) {
+			int count = 0;
+			for (int cell = 0; cell < mine.length; cell++) {
+				if (cell != first && !topology.adjacent(first, cell)) {
+					cells[count++] = cell;
+				}
+			}
+			for (int m = 0; m < mineCount; m++) {
+				int pick = m + random.nextInt(count - m);
+				int cell = cells[pick];
+				cells[pick] = cells[m];
+				cells[m] = cell;
+			}
+			setMines(cells, mineCount);
+		}
+
+		/**
+		 * Solves from the first click, moving mines when stuck.
+		 *
+		 * @return the number of mines moved, or -1 if the candidate should be dropped
+		 */
+		int solve(SplittableRandom random) {
+			restart();
+			int moved = 0;
+			open(first);
+			while (true) {
+				deduce();
+				if (solved()) {
+					return moved;
+				}
+				if (moved == MAX_MOVES || !move(random)) {
+					return -1;
+				}
+				moved++;
+				moves.increment();
+			}
+		}
+
+		// Moves a random mine next to an open cell to a random unknown cell that is not. When there is no such
+		// mine or cell, any unknown one will do. False if there are no unknown mines or no unknown safe cells.
+		private boolean move(SplittableRandom random) {
+			int from = pick(random, true, true);
+			if (from == -1) {
+				from = pick(random, true, false);
+			}
+			int to = pick(random, false, false);
+			if (to == -1) {
+				to = pick(random, false, true);
+			}
+			if (from == -1 || to == -1) {
+				return false;
+			}
+			setMine(from, false);
+			setMine(to, true);
+			touch(from);
+			touch(to);
+			return true;
+		}
+
+		// A random unknown cell that is a mine or not, and next to an open cell or not; -1 if there is none.
+		private int pick(SplittableRandom random, boolean isMine, boolean nearOpen) {
+			int count = 0;
+			for (int cell = 0; cell < state.length; cell++) {
+				if (state[cell] == UNKNOWN && mine[cell] == isMine && nearOpen(cell) == nearOpen) {
+					cells[count++] = cell;
+				}
+			}
+			return count == 0 ? -1 : cells[random.nextInt(count)];
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int width = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int height = args.length > 1 ? Integer.parseInt(args[1]) : width;
+		int mines = args.length > 2 ? Integer.parseInt(args[2]) : width * height / 5;
+		int count = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+		int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+		Topology topology = Topology.of(args.length > 6 ? args[6] : "grid", width, height,
+				args.length > 7 ? Integer.parseInt(args[7]) : 1);
+
+		// The first click of YourStrategy.
+		NoGuessGenerator generator = new NoGuessGenerator(topology, mines, topology.cell(1, 1, 0));
+		long start = System.nanoTime();
+		generator.boards(count, seed, threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println("boards:       " + count + " (" + topology + ", " + mines + " mines, "
+				+ threads + " threads)");
+		System.out.printf("boards/s:     %.1f%n", count / seconds);
+		System.out.printf("candidates:   %.2f per board%n", (double) generator.candidates() / count);
+		System.out.printf("rounds:       %.2f per board%n", (double) generator.rounds() / count);
+		System.out.printf("moves:        %.1f per board%n", (double) generator.moves() / count);
+	}
+}
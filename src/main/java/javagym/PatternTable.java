@@ -0,0 +1,157 @@
+package javagym;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lookup table with the exact deductions for two neighbouring numbers.
+ * <p>
+ * The window is the 4x3 block around a horizontal pair of numbers A (at 0,0) and B (at 1,0).
+ * The 10 cells around the pair are numbered row by row:
+ * <pre>
+ *   0 1 2 3
+ *   4 A B 5
+ *   6 7 8 9
+ * </pre>
+ * A key packs which of those cells are unknown, together with the remaining mine count of A and B
+ * (the number minus the known mines around it). The entry holds the cells that are safe in every
+ * solution and the cells that are a mine in every solution. Vertical pairs use the same table by
+ * swapping the offsets.
+ * <p>
+ * The table is generated offline with {@link #main(String[])} into {@code patterns.bin} and loaded
+ * once per JVM. It is read-only, so all games share it.
+ */
+final class PatternTable {
+
+	static final int[] WINDOW_X = {-1, 0, 1, 2, -1, 2, -1, 0, 1, 2};
+	static final int[] WINDOW_Y = {-1, -1, -1, -1, 0, 0, 1, 1, 1, 1};
+	static final int CELLS = WINDOW_X.length;
+
+	// Cells in the window that touch A or B.
+	static final int MASK_A = 0b0111010111;
+	static final int MASK_B = 0b1110101110;
+
+	static final int MAX_REMAINING = 7;
+
+	private static final int MAGIC = 0x4A475054;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 8;
+	private static final int SIZE = 1 << (CELLS + 6);
+	private static final String RESOURCE = "patterns.bin";
+
+	private PatternTable() {
+	}
+
+	static int key(int unknownMask, int remainingA, int remainingB) {
+		return unknownMask | remainingA << CELLS | remainingB << (CELLS + 3);
+	}
+
+	static int lookup(int unknownMask, int remainingA, int remainingB) {
+		return Holder.TABLE.get(key(unknownMask, remainingA, remainingB));
+	}
+
+	static int safeMask(int entry) {
+		return entry & ((1 << CELLS) - 1);
+	}
+
+	static int mineMask(int entry) {
+		return entry >>> CELLS;
+	}
+
+	private static class Holder {
+		static final IntBuffer TABLE = load();
+	}
+
+	private static IntBuffer load() {
+		try {
+			URL url = PatternTable.class.getResource(RESOURCE);
+			if (url == null) {
+				return IntBuffer.wrap(generate());
+			}
+			ByteBuffer buffer;
+			if ("file".equals(url.getProtocol())) {
+				try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+					buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				}
+			} else {
+				try (InputStream in = url.openStream()) {
+					buffer = ByteBuffer.wrap(in.readAllBytes());
+				}
+			}
+			if (buffer.capacity() != HEADER_BYTES + 4 * SIZE
+					|| buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				return IntBuffer.wrap(generate());
+			}
+			buffer.position(HEADER_BYTES);
+			return buffer.slice().asIntBuffer();
+		} catch (Exception e) {
+			return IntBuffer.wrap(generate());
+		}
+	}
+
+	// Solves every window exactly by enumerating all mine layouts of its unknown cells.
+	static int[] generate() {
+		int[] table = new int[SIZE];
+		int[][] always = new int[MAX_REMAINING + 1][MAX_REMAINING + 1];
+		int[][] sometimes = new int[MAX_REMAINING + 1][MAX_REMAINING + 1];
+		boolean[][] seen = new boolean[MAX_REMAINING + 1][MAX_REMAINING + 1];
+
+		for (int unknownMask = 0; unknownMask < 1 << CELLS; unknownMask++) {
+			for (int a = 0; a <= MAX_REMAINING; a++) {
+				for (int b = 0; b <= MAX_REMAINING; b++) {
+					always[a][b] = unknownMask;
+					sometimes[a][b] = 0;
+					seen[a][b] = false;
+				}
+			}
+
+			// Walk all subsets of the unknown cells, including the empty one.
+			int layout = unknownMask;
+			while (true) {
+				int a = Integer.bitCount(layout & MASK_A);
+				int b = Integer.bitCount(layout & MASK_B);
+				always[a][b] &= layout;
+				sometimes[a][b] |= layout;
+				seen[a][b] = true;
+				if (layout == 0) {
+					break;
+				}
+				layout = (layout - 1) & unknownMask;
+			}
+
+			for (int a = 0; a <= MAX_REMAINING; a++) {
+				for (int b = 0; b <= MAX_REMAINING; b++) {
+					if (seen[a][b]) {
+						int safe = unknownMask & ~sometimes[a][b];
+						table[key(unknownMask, a, b)] = safe | always[a][b] << CELLS;
+					}
+				}
+			}
+		}
+		return table;
+	}
+
+	// Writes the table to the given file, e.g. src/main/resources/javagym/patterns.bin
+	public static void main(String[] args) throws IOException {
+		Path path = Paths.get(args.length > 0 ? args[0] : "src/main/resources/javagym/" + RESOURCE);
+		int[] table = generate();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile())))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			for (int entry : table) {
+				out.writeInt(entry);
+			}
+		}
+		System.out.println("wrote " + table.length + " patterns to " + path);
+	}
+}
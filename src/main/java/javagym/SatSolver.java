@@ -0,0 +1,660 @@
+package javagym;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A small CDCL SAT solver for constraints that say exactly k of a set of variables are true, like the
+ * numbers of a board say how many of their neighbours are mines.
+ * <p>
+ * The constraints propagate natively: each keeps a count of its true and false variables, and once k are
+ * true the rest is false, once all but k are false the rest is true. The clauses learned from conflicts use
+ * two watched literals. Everything added is a fact of the game, so learned clauses stay valid and are kept
+ * between queries, as are the variable activities and saved phases; only the least active learned clauses
+ * are dropped when there are too many.
+ * <p>
+ * {@link #solve} looks for an assignment with one literal assumed true. The assumption is the first
+ * decision, so a clause learned under it holds without it. When there is none, the literal is proven false.
+ * <p>
+ * A literal is {@code 2 * variable} for true, and {@code 2 * variable + 1} for false.
+ */
+final class SatSolver {
+
+	static final int UNSAT = 0;
+	static final int SAT = 1;
+	static final int UNKNOWN = 2;
+
+	private static final int RESTART_CONFLICTS = 64;
+	private static final double ACTIVITY_DECAY = 0.95;
+
+	private int variables;
+	// 1 true, -1 false, 0 not assigned.
+	private byte[] value;
+	private boolean[] phase;
+	private int[] level;
+	private int[] position;
+	// The clause that implied a variable, ~constraint for a constraint, or NONE for a decision or a fact.
+	private int[] reason;
+	private static final int NONE = Integer.MIN_VALUE;
+
+	private int[] trail;
+	private int trailSize = 0;
+	private int propagated = 0;
+	private int[] levelStart;
+	private int decisionLevel = 0;
+
+	private final List<int[]> clauses = new ArrayList<>();
+	private double[] clauseActivity = new double[16];
+	private double clauseIncrement = 1;
+	private int[][] watches;
+	private int[] watchCount;
+
+	private int[][] constraintVariables = new int[16][];
+	private int[] constraintK = new int[16];
+	private int[] constraintTrue = new int[16];
+	private int[] constraintFalse = new int[16];
+	private int constraints = 0;
+	private int[][] occurs;
+	private int[] occursCount;
+
+	private double[] activity;
+	private double activityIncrement = 1;
+	// Binary max heap of variables by activity, with the heap position of each variable or -1.
+	private int[] heap;
+	private int heapSize = 0;
+	private int[] heapIndex;
+	private boolean[] used;
+
+	private boolean[] seen;
+	private int[] learned;
+	private int[] buffer;
+	private boolean inconsistent = false;
+
+	private long conflicts = 0;
+	private long queries = 0;
+	private static final int MAX_LEARNED = 2000;
+	private int maxLearned = MAX_LEARNED;
+
+	SatSolver(int variables) {
+		reset(variables);
+	}
+
+	// Forgets all constraints and clauses, for a new game.
+	void reset(int variables) {
+		if (value == null || value.length < variables) {
+			value = new byte[variables];
+			phase = new boolean[variables];
+			level = new int[variables];
+			position = new int[variables];
+			reason = new int[variables];
+			trail = new int[variables];
+			levelStart = new int[variables + 2];
+			watches = new int[2 * variables][];
+			watchCount = new int[2 * variables];
+			occurs = new int[variables][];
+			occursCount = new int[variables];
+			activity = new double[variables];
+			heap = new int[variables];
+			heapIndex = new int[variables];
+			used = new boolean[variables];
+			seen = new boolean[variables];
+			learned = new int[variables];
+			buffer = new int[variables];
+		}
+		this.variables = variables;
+		Arrays.fill(value, 0, variables, (byte) 0);
+		Arrays.fill(phase, 0, variables, false);
+		Arrays.fill(watchCount, 0, 2 * variables, 0);
+		Arrays.fill(occursCount, 0, variables, 0);
+		Arrays.fill(activity, 0, variables, 0);
+		Arrays.fill(heapIndex, 0, variables, -1);
+		Arrays.fill(used, 0, variables, false);
+		heapSize = 0;
+		trailSize = 0;
+		propagated = 0;
+		decisionLevel = 0;
+		clauses.clear();
+		constraints = 0;
+		activityIncrement = 1;
+		clauseIncrement = 1;
+		inconsistent = false;
+		conflicts = 0;
+		queries = 0;
+		maxLearned = MAX_LEARNED;
+	}
+
+	static int literal(int variable, boolean isTrue) {
+		return 2 * variable + (isTrue ? 0 : 1);
+	}
+
+	// The value of a variable in the assignment found by the last solve that returned SAT.
+	boolean value(int variable) {
+		return value[variable] == 1;
+	}
+
+	// Whether the variable is decided by the facts and what follows from them alone.
+	boolean isFixed(int variable) {
+		return value[variable] != 0 && level[variable] == 0;
+	}
+
+	long conflicts() {
+		return conflicts;
+	}
+
+	long queries() {
+		return queries;
+	}
+
+	int learnedClauses() {
+		return clauses.size();
+	}
+
+	/**
+	 * Sets a variable for good. A value that contradicts what is known makes the solver inconsistent, after
+	 * which every query is UNKNOWN.
+	 */
+	void fix(int variable, boolean isTrue) {
+		backtrack(0);
+		if (value[variable] != 0) {
+			if (value[variable] != (isTrue ? 1 : -1)) {
+				inconsistent = true;
+			}
+			return;
+		}
+		assign(literal(variable, isTrue), NONE);
+		if (propagate() != null) {
+			inconsistent = true;
+		}
+	}
+
+	// Adds the constraint that exactly k of the variables are true.
+	void addExactly(int[] variables, int k) {
+		backtrack(0);
+		int constraint = constraints++;
+		if (constraint == constraintK.length) {
+			int capacity = 2 * constraint;
+			constraintVariables = Arrays.copyOf(constraintVariables, capacity);
+			constraintK = Arrays.copyOf(constraintK, capacity);
+			constraintTrue = Arrays.copyOf(constraintTrue, capacity);
+			constraintFalse = Arrays.copyOf(constraintFalse, capacity);
+		}
+		constraintVariables[constraint] = variables.clone();
+		constraintK[constraint] = k;
+		int trues = 0;
+		int falses = 0;
+		for (int variable : variables) {
+			occurs[variable] = push(occurs[variable], occursCount[variable]++, constraint);
+			if (value[variable] == 1) {
+				trues++;
+			} else if (value[variable] == -1) {
+				falses++;
+			} else if (!used[variable]) {
+				used[variable] = true;
+				heapInsert(variable);
+			}
+		}
+		constraintTrue[constraint] = trues;
+		constraintFalse[constraint] = falses;
+		if (check(constraint) != null || propagate() != null) {
+			inconsistent = true;
+		}
+	}
+
+	/**
+	 * Looks for an assignment that satisfies everything with the literal true.
+	 *
+	 * @param deadline a System.nanoTime() after which to give up, Long.MAX_VALUE for none
+	 * @return SAT, UNSAT when the literal is false in every assignment, or UNKNOWN when out of conflicts or time
+	 */
+	int solve(int assumption, int maxConflicts, long deadline) {
+		queries++;
+		if (inconsistent) {
+			return UNKNOWN;
+		}
+		backtrack(0);
+		if (clauses.size() > maxLearned) {
+			reduceLearned();
+		}
+		int restartAt = RESTART_CONFLICTS;
+		int queryConflicts = 0;
+		while (true) {
+			int[] conflict = propagate();
+			if (conflict != null) {
+				conflicts++;
+				queryConflicts++;
+				if (!learn(conflict)) {
+					inconsistent = true;
+					return UNKNOWN;
+				}
+				if (queryConflicts >= maxConflicts || deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+					return UNKNOWN;
+				}
+				if (queryConflicts >= restartAt) {
+					restartAt += RESTART_CONFLICTS + queryConflicts / 2;
+					backtrack(0);
+				}
+				continue;
+			}
+			if (decisionLevel == 0) {
+				int assumed = litValue(assumption);
+				if (assumed == -1) {
+					return UNSAT;
+				}
+				newLevel();
+				if (assumed == 0) {
+					assign(assumption, NONE);
+				}
+				continue;
+			}
+			int variable = nextDecision();
+			if (variable == -1) {
+				return SAT;
+			}
+			newLevel();
+			assign(literal(variable, phase[variable]), NONE);
+		}
+	}
+
+	private int litValue(int literal) {
+		int v = value[literal >> 1];
+		return (literal & 1) == 0 ? v : -v;
+	}
+
+	private void assign(int literal, int why) {
+		int variable = literal >> 1;
+		boolean isTrue = (literal & 1) == 0;
+		value[variable] = (byte) (isTrue ? 1 : -1);
+		level[variable] = decisionLevel;
+		position[variable] = trailSize;
+		reason[variable] = why;
+		trail[trailSize++] = literal;
+		for (int i = 0; i < occursCount[variable]; i++) {
+			int constraint = occurs[variable][i];
+			if (isTrue) {
+				constraintTrue[constraint]++;
+			} else {
+				constraintFalse[constraint]++;
+			}
+		}
+	}
+
+	private void newLevel() {
+		levelStart[++decisionLevel] = trailSize;
+	}
+
+	private void backtrack(int toLevel) {
+		if (decisionLevel <= toLevel) {
+			return;
+		}
+		for (int i = trailSize - 1; i >= levelStart[toLevel + 1]; i--) {
+			int variable = trail[i] >> 1;
+			boolean wasTrue = value[variable] == 1;
+			phase[variable] = wasTrue;
+			value[variable] = 0;
+			for (int j = 0; j < occursCount[variable]; j++) {
+				int constraint = occurs[variable][j];
+				if (wasTrue) {
+					constraintTrue[constraint]--;
+				} else {
+					constraintFalse[constraint]--;
+				}
+			}
+			if (heapIndex[variable] == -1 && used[variable]) {
+				heapInsert(variable);
+			}
+		}
+		trailSize = levelStart[toLevel + 1];
+		propagated = Math.min(propagated, trailSize);
+		decisionLevel = toLevel;
+	}
+
+	// Propagates the assigned literals, returning the literals of a conflict, all false, or null.
+	private int[] propagate() {
+		while (propagated < trailSize) {
+			int literal = trail[propagated++];
+			int[] conflict = propagateClauses(literal ^ 1);
+			if (conflict != null) {
+				return conflict;
+			}
+			int variable = literal >> 1;
+			for (int i = 0; i < occursCount[variable]; i++) {
+				conflict = check(occurs[variable][i]);
+				if (conflict != null) {
+					return conflict;
+				}
+			}
+		}
+		return null;
+	}
+
+	// The clauses watching a literal that just became false.
+	private int[] propagateClauses(int falseLiteral) {
+		int[] watching = watches[falseLiteral];
+		int count = watchCount[falseLiteral];
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int id = watching[i];
+			int[] clause = clauses.get(id);
+			if (clause[0] == falseLiteral) {
+				clause[0] = clause[1];
+				clause[1] = falseLiteral;
+			}
+			if (litValue(clause[0]) == 1) {
+				watching[kept++] = id;
+				continue;
+			}
+			boolean moved = false;
+			for (int j = 2; j < clause.length; j++) {
+				if (litValue(clause[j]) != -1) {
+					clause[1] = clause[j];
+					clause[j] = falseLiteral;
+					watch(clause[1], id);
+					moved = true;
+					break;
+				}
+			}
+			if (moved) {
+				continue;
+			}
+			watching[kept++] = id;
+			if (litValue(clause[0]) == -1) {
+				for (i++; i < count; i++) {
+					watching[kept++] = watching[i];
+				}
+				watchCount[falseLiteral] = kept;
+				return clause;
+			}
+			assign(clause[0], id);
+		}
+		watchCount[falseLiteral] = kept;
+		return null;
+	}
+
+	// Propagates a constraint, returning the literals of a conflict or null.
+	private int[] check(int constraint) {
+		int[] vars = constraintVariables[constraint];
+		int k = constraintK[constraint];
+		int trues = constraintTrue[constraint];
+		int falses = constraintFalse[constraint];
+		if (trues > k) {
+			return conflictLiterals(vars, 1);
+		}
+		if (vars.length - falses < k) {
+			return conflictLiterals(vars, -1);
+		}
+		if (trues + falses == vars.length) {
+			return null;
+		}
+		if (trues == k) {
+			for (int variable : vars) {
+				if (value[variable] == 0) {
+					assign(literal(variable, false), ~constraint);
+				}
+			}
+		} else if (vars.length - falses == k) {
+			for (int variable : vars) {
+				if (value[variable] == 0) {
+					assign(literal(variable, true), ~constraint);
+				}
+			}
+		}
+		return null;
+	}
+
+	// Too many variables with the value: the clause that at least one of them has the other value.
+	private int[] conflictLiterals(int[] vars, int withValue) {
+		int count = 0;
+		for (int variable : vars) {
+			if (value[variable] == withValue) {
+				buffer[count++] = literal(variable, withValue != 1);
+			}
+		}
+		return Arrays.copyOf(buffer, count);
+	}
+
+	// The literals of the reason of a variable, the variable's own literal first and then false ones.
+	private int reasonLiterals(int variable, int[] into) {
+		int why = reason[variable];
+		if (why >= 0) {
+			int[] clause = clauses.get(why);
+			System.arraycopy(clause, 0, into, 0, clause.length);
+			return clause.length;
+		}
+		// Implied by a constraint from the variables with the other value that were assigned before it.
+		int[] vars = constraintVariables[~why];
+		int other = -value[variable];
+		int count = 0;
+		into[count++] = literal(variable, value[variable] == 1);
+		for (int v : vars) {
+			if (value[v] == other && position[v] < position[variable]) {
+				into[count++] = literal(v, other != 1);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Learns the first UIP clause of a conflict, jumps back to where it asserts its literal and assigns that.
+	 *
+	 * @return false if the conflict follows from the facts alone
+	 */
+	private boolean learn(int[] conflict) {
+		int conflictLevel = 0;
+		for (int literal : conflict) {
+			conflictLevel = Math.max(conflictLevel, level[literal >> 1]);
+		}
+		if (conflictLevel == 0) {
+			return false;
+		}
+		backtrack(conflictLevel);
+
+		int size = 1;
+		int paths = 0;
+		int index = trailSize - 1;
+		int uip = -1;
+		int[] literals = conflict;
+		int count = conflict.length;
+		int[] reasonBuffer = new int[Math.max(8, count)];
+		while (true) {
+			for (int i = 0; i < count; i++) {
+				int literal = literals[i];
+				int variable = literal >> 1;
+				if (uip != -1 && variable == uip >> 1) {
+					continue;
+				}
+				if (seen[variable] || level[variable] == 0) {
+					continue;
+				}
+				seen[variable] = true;
+				bump(variable);
+				if (level[variable] == decisionLevel) {
+					paths++;
+				} else {
+					learned[size++] = literal;
+				}
+			}
+			while (!seen[trail[index] >> 1]) {
+				index--;
+			}
+			uip = trail[index--];
+			seen[uip >> 1] = false;
+			paths--;
+			if (paths == 0) {
+				break;
+			}
+			int variable = uip >> 1;
+			if (reason[variable] >= 0) {
+				literals = clauses.get(reason[variable]);
+				count = literals.length;
+				bumpClause(reason[variable]);
+			} else {
+				int needed = constraintVariables[~reason[variable]].length;
+				if (reasonBuffer.length < needed) {
+					reasonBuffer = new int[needed];
+				}
+				count = reasonLiterals(variable, reasonBuffer);
+				literals = reasonBuffer;
+			}
+		}
+		learned[0] = uip ^ 1;
+
+		int backLevel = 0;
+		for (int i = 1; i < size; i++) {
+			seen[learned[i] >> 1] = false;
+			if (level[learned[i] >> 1] > backLevel) {
+				backLevel = level[learned[i] >> 1];
+				int swap = learned[1];
+				learned[1] = learned[i];
+				learned[i] = swap;
+			}
+		}
+		decayActivities();
+		backtrack(backLevel);
+		if (size == 1) {
+			assign(learned[0], NONE);
+			return true;
+		}
+		int id = clauses.size();
+		clauses.add(Arrays.copyOf(learned, size));
+		if (id == clauseActivity.length) {
+			clauseActivity = Arrays.copyOf(clauseActivity, 2 * id);
+		}
+		clauseActivity[id] = 0;
+		bumpClause(id);
+		watch(learned[0], id);
+		watch(learned[1], id);
+		assign(learned[0], id);
+		return true;
+	}
+
+	private void watch(int literal, int id) {
+		watches[literal] = push(watches[literal], watchCount[literal]++, id);
+	}
+
+	// Keeps the more active half of the learned clauses. Only called at level 0, where no reason is needed.
+	private void reduceLearned() {
+		int count = clauses.size();
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(clauseActivity[b], clauseActivity[a]));
+		List<int[]> kept = new ArrayList<>();
+		double[] keptActivity = new double[clauseActivity.length];
+		for (int i = 0; i < count; i++) {
+			int[] clause = clauses.get(order[i]);
+			if (i < count / 2 || clause.length == 2) {
+				keptActivity[kept.size()] = clauseActivity[order[i]];
+				kept.add(clause);
+			}
+		}
+		clauses.clear();
+		clauses.addAll(kept);
+		clauseActivity = keptActivity;
+		Arrays.fill(watchCount, 0, 2 * variables, 0);
+		for (int id = 0; id < clauses.size(); id++) {
+			watch(clauses.get(id)[0], id);
+			watch(clauses.get(id)[1], id);
+		}
+		for (int i = 0; i < trailSize; i++) {
+			reason[trail[i] >> 1] = NONE;
+		}
+		maxLearned += maxLearned / 10;
+	}
+
+	private int nextDecision() {
+		while (heapSize > 0) {
+			int variable = heapPop();
+			if (value[variable] == 0) {
+				return variable;
+			}
+		}
+		return -1;
+	}
+
+	private void bump(int variable) {
+		activity[variable] += activityIncrement;
+		if (activity[variable] > 1e100) {
+			for (int v = 0; v < variables; v++) {
+				activity[v] *= 1e-100;
+			}
+			activityIncrement *= 1e-100;
+		}
+		if (heapIndex[variable] != -1) {
+			heapUp(heapIndex[variable]);
+		}
+	}
+
+	private void bumpClause(int id) {
+		clauseActivity[id] += clauseIncrement;
+		if (clauseActivity[id] > 1e100) {
+			for (int i = 0; i < clauses.size(); i++) {
+				clauseActivity[i] *= 1e-100;
+			}
+			clauseIncrement *= 1e-100;
+		}
+	}
+
+	private void decayActivities() {
+		activityIncrement /= ACTIVITY_DECAY;
+		clauseIncrement /= 0.999;
+	}
+
+	private void heapInsert(int variable) {
+		heapIndex[variable] = heapSize;
+		heap[heapSize++] = variable;
+		heapUp(heapSize - 1);
+	}
+
+	private int heapPop() {
+		int top = heap[0];
+		heapIndex[top] = -1;
+		int last = heap[--heapSize];
+		if (heapSize > 0) {
+			heap[0] = last;
+			heapIndex[last] = 0;
+			heapDown(0);
+		}
+		return top;
+	}
+
+	private void heapUp(int i) {
+		int variable = heap[i];
+		while (i > 0 && activity[heap[(i - 1) / 2]] < activity[variable]) {
+			heap[i] = heap[(i - 1) / 2];
+			heapIndex[heap[i]] = i;
+			i = (i - 1) / 2;
+		}
+		heap[i] = variable;
+		heapIndex[variable] = i;
+	}
+
+	private void heapDown(int i) {
+		int variable = heap[i];
+		while (2 * i + 1 < heapSize) {
+			int child = 2 * i + 1;
+			if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) {
+				child++;
+			}
+			if (activity[heap[child]] <= activity[variable]) {
+				break;
+			}
+			heap[i] = heap[child];
+			heapIndex[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = variable;
+		heapIndex[variable] = i;
+	}
+
+	private static int[] push(int[] list, int size, int value) {
+		if (list == null) {
+			list = new int[4];
+		} else if (size == list.length) {
+			list = Arrays.copyOf(list, 2 * size);
+		}
+		list[size] = value;
+		return list;
+	}
+}
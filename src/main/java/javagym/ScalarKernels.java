@@ -0,0 +1,106 @@
+package javagym;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// The kernels of BoardKernels as plain loops.
+final class ScalarKernels implements BoardKernels {
+
+	@Override
+	public int count(byte[] states, int from, int to, int state) {
+		int count = 0;
+		for (int cell = from; cell < to; cell++) {
+			if (states[cell] == state) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int frontier(byte[] states, int stride, int fromRow, int toRow, int[] out) {
+		int count = 0;
+		for (int y = fromRow; y < toRow; y++) {
+			for (int cell = y * stride + 1; cell < (y + 1) * stride - 1; cell++) {
+				if (states[cell] >= 0 && hasUnknownNeighbour(states, stride, cell)) {
+					out[count++] = cell;
+				}
+			}
+		}
+		return count;
+	}
+
+	static boolean hasUnknownNeighbour(byte[] states, int stride, int cell) {
+		return states[cell - stride - 1] == BoardView.UNKNOWN || states[cell - stride] == BoardView.UNKNOWN
+				|| states[cell - stride + 1] == BoardView.UNKNOWN || states[cell - 1] == BoardView.UNKNOWN
+				|| states[cell + 1] == BoardView.UNKNOWN || states[cell + stride - 1] == BoardView.UNKNOWN
+				|| states[cell + stride] == BoardView.UNKNOWN || states[cell + stride + 1] == BoardView.UNKNOWN;
+	}
+
+	@Override
+	public void neighbourCounts(byte[] values, int stride, int rows, int value, byte[] counts) {
+		for (int y = 1; y < rows - 1; y++) {
+			for (int cell = y * stride + 1; cell < (y + 1) * stride - 1; cell++) {
+				counts[cell] = (byte) neighbourCount(values, stride, cell, value);
+			}
+		}
+	}
+
+	static int neighbourCount(byte[] values, int stride, int cell, int value) {
+		int count = 0;
+		for (int row = cell - stride; row <= cell + stride; row += stride) {
+			for (int neighbour = row - 1; neighbour <= row + 1; neighbour++) {
+				if (neighbour != cell && values[neighbour] == value) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	// Times the kernels of get() against these loops on a random board: ScalarKernels [size] [rounds]
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int stride = size + 2;
+		int rows = size + 2;
+		byte[] states = new byte[stride * rows];
+		byte[] mines = new byte[stride * rows];
+		Random random = new Random(1);
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < stride; x++) {
+				boolean outside = x == 0 || y == 0 || x == stride - 1 || y == rows - 1;
+				int roll = random.nextInt(10);
+				states[x + y * stride] = (byte) (outside ? BoardView.OUTSIDE : roll < 4 ? BoardView.UNKNOWN : roll - 4);
+				mines[x + y * stride] = (byte) (!outside && roll < 2 ? 1 : 0);
+			}
+		}
+		BoardKernels[] kernels = {new ScalarKernels(), BoardKernels.get()};
+		int[][] frontiers = new int[2][stride * rows];
+		byte[][] counts = new byte[2][stride * rows];
+		int[] results = new int[4];
+		for (int k = 0; k < kernels.length; k++) {
+			long countNanos = Long.MAX_VALUE;
+			long frontierNanos = Long.MAX_VALUE;
+			long neighbourNanos = Long.MAX_VALUE;
+			for (int round = 0; round < rounds; round++) {
+				long start = System.nanoTime();
+				results[2 * k] = kernels[k].count(states, 0, states.length, BoardView.UNKNOWN);
+				long middle = System.nanoTime();
+				results[2 * k + 1] = kernels[k].frontier(states, stride, rows, frontiers[k]);
+				long end = System.nanoTime();
+				kernels[k].neighbourCounts(mines, stride, rows, 1, counts[k]);
+				countNanos = Math.min(countNanos, middle - start);
+				frontierNanos = Math.min(frontierNanos, end - middle);
+				neighbourNanos = Math.min(neighbourNanos, System.nanoTime() - end);
+			}
+			System.out.println(kernels[k].getClass().getSimpleName() + " on " + size + "x" + size
+					+ ": count " + countNanos / 1000 + " us, frontier " + frontierNanos / 1000
+					+ " us, neighbour counts " + neighbourNanos / 1000 + " us");
+		}
+		if (results[0] != results[2] || results[1] != results[3]
+				|| !Arrays.equals(frontiers[0], frontiers[1]) || !Arrays.equals(counts[0], counts[1])) {
+			System.out.println("kernels disagree");
+		}
+	}
+}
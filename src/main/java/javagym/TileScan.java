@@ -0,0 +1,130 @@
+package javagym;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * The frontier of a large board, see {@link BoardView#frontierCells}, kept per tile of {@link #TILE_ROWS}
+ * rows so a scan only looks at the tiles that changed since the last one.
+ * <p>
+ * The frontier of a row also depends on the rows above and below it, so a tile reads one row of each
+ * neighbouring tile, its halo, and a change on the first or last row of a tile makes the neighbouring tile
+ * scan again as well. Tiles only write their own part of the frontier, so the changed ones are scanned in
+ * parallel on the common fork/join pool, and the parts are joined in board order: the result is exactly that
+ * of one pass over the board. Boards below {@link #TILED_CELLS} cells, set with {@code -Djavagym.tiles},
+ * are scanned in one pass.
+ */
+final class TileScan {
+
+	static final int TILED_CELLS = Integer.getInteger("javagym.tiles", 1 << 16);
+	static final int TILE_ROWS = 64;
+
+	private final int stride;
+	private final int rows;
+	private final boolean[] dirty;
+	private final int[][] frontiers;
+	private final int[] counts;
+	private final int[] dirtyTiles;
+
+	TileScan(int stride, int rows) {
+		this.stride = stride;
+		this.rows = rows;
+		int tiles = (rows - 2 + TILE_ROWS - 1) / TILE_ROWS;
+		dirty = new boolean[tiles];
+		Arrays.fill(dirty, true);
+		frontiers = new int[tiles][];
+		counts = new int[tiles];
+		dirtyTiles = new int[tiles];
+	}
+
+	static boolean tiled(long cells) {
+		return cells >= TILED_CELLS;
+	}
+
+	// The cell changed state: its tile scans again, and so does a neighbouring tile that has it in its halo.
+	void changed(int cell) {
+		int row = cell / stride - 1;
+		if (row < 0 || row >= rows - 2) {
+			return;
+		}
+		int tile = row / TILE_ROWS;
+		dirty[tile] = true;
+		if (row % TILE_ROWS == 0 && tile > 0) {
+			dirty[tile - 1] = true;
+		}
+		if (row % TILE_ROWS == TILE_ROWS - 1 && tile + 1 < dirty.length) {
+			dirty[tile + 1] = true;
+		}
+	}
+
+	/**
+	 * Writes the frontier of the board to 'out' like {@link BoardKernels#frontier(byte[], int, int, int[])},
+	 * scanning the tiles that changed.
+	 */
+	int frontier(BoardKernels kernels, byte[] states, int[] out) {
+		int dirtyCount = 0;
+		for (int tile = 0; tile < dirty.length; tile++) {
+			if (dirty[tile]) {
+				dirty[tile] = false;
+				dirtyTiles[dirtyCount++] = tile;
+			}
+		}
+		forEachTile(dirtyCount, i -> {
+			int tile = dirtyTiles[i];
+			int fromRow = 1 + tile * TILE_ROWS;
+			int toRow = Math.min(fromRow + TILE_ROWS, rows - 1);
+			if (frontiers[tile] == null) {
+				frontiers[tile] = new int[(toRow - fromRow) * stride];
+			}
+			counts[tile] = kernels.frontier(states, stride, fromRow, toRow, frontiers[tile]);
+		});
+		int count = 0;
+		for (int tile = 0; tile < dirty.length; tile++) {
+			System.arraycopy(frontiers[tile], 0, out, count, counts[tile]);
+			count += counts[tile];
+		}
+		return count;
+	}
+
+	/**
+	 * Runs the tile numbers from 0 up to 'tiles' on the common pool, or on this thread when the pool has
+	 * only one, and returns when all are done.
+	 */
+	static void forEachTile(int tiles, IntConsumer tile) {
+		if (tiles <= 1 || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+			for (int i = 0; i < tiles; i++) {
+				tile.accept(i);
+			}
+			return;
+		}
+		ForkJoinPool.commonPool().invoke(new Tiles(0, tiles, tile));
+	}
+
+	// Splits its range of tiles in halves until one is left.
+	private static final class Tiles extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final IntConsumer tile;
+
+		Tiles(int from, int to, IntConsumer tile) {
+			this.from = from;
+			this.to = to;
+			this.tile = tile;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				tile.accept(from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Tiles(from, middle, tile), new Tiles(middle, to, tile));
+		}
+	}
+}
@@ -0,0 +1,449 @@
+package javagym;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+
+/**
+ * A game on a board that is too big, or endless, for the arrays of {@link MineSweeper}.
+ * <p>
+ * The board is cut in tiles of 64x64 cells that are only allocated when a cell in them changes, so memory
+ * grows with the explored area. Mines are never stored: whether a cell is a mine follows from a hash of a
+ * per-tile seed (derived from the board seed) and the cell, which also makes untouched tiles free.
+ * The 3x3 block around the first revealed cell never has mines.
+ * <p>
+ * States and coordinates are those of {@link BoardView}: a finite board runs from (1, 1) to (width, height).
+ * An endless board accepts any int coordinates, and since it has no flat index it only supports
+ * {@link #state(int, int)} of the BoardView methods.
+ * <p>
+ * One call reveals at most {@link #setCascadeLimit cascade limit} cells, so a zero on an endless board with
+ * few mines cannot run forever. The zeros that were not followed yet stay queued: {@link #cascading()} tells
+ * whether there are any, and {@link #continueCascade()} goes on with them. A finite board is won once every
+ * safe cell is revealed, so a cut-off cascade has to be continued to win it.
+ * <p>
+ * A strategy plays a finite board through {@link #play}: it is made with {@code MineSweeper(TiledBoard)}, so
+ * it reads this board as its {@link BoardView} and its picks and flags go here. {@link FrontierStrategy} is one
+ * whose memory grows with the explored area too.
+ */
+class TiledBoard implements BoardView {
+
+	private static final int TILE_SHIFT = 6;
+	private static final int TILE_SIZE = 1 << TILE_SHIFT;
+	private static final int TILE_MASK = TILE_SIZE - 1;
+	static final int CASCADE_LIMIT = 1 << 20;
+
+	private final int width;
+	private final int height;
+	private final boolean endless;
+	private final long seed;
+	// A cell is a mine when the top 53 bits of its hash are below this.
+	private final long mineThreshold;
+
+	private final Map<Long, byte[]> tiles = new HashMap<>();
+	private long lastTileKey = Long.MIN_VALUE;
+	private byte[] lastTile;
+
+	private boolean started = false;
+	private int firstX;
+	private int firstY;
+	private boolean isDone = false;
+	private boolean isWin = false;
+	private long revealedCells = 0;
+	private long mineCount = -1;
+	// Safe cells in the tiles allocated so far, once the game started. Cells are only revealed in those,
+	// so the board is won when all of these are revealed and no other tile has a safe cell.
+	private long safeInTiles = 0;
+
+	// Cascade queue of packed coordinates, kept between calls when the cascade hit its limit,
+	// and the changed cells for changedCells().
+	private long[] queue = new long[1024];
+	private int queueHead = 0;
+	private int queueTail = 0;
+	private int cascadeLimit = CASCADE_LIMIT;
+	private int[] changeLog = new int[1024];
+	private int changeCount = 0;
+
+	TiledBoard(int width, int height, double density, long seed) {
+		this(width, height, false, density, seed);
+	}
+
+	static TiledBoard endless(double density, long seed) {
+		return new TiledBoard(0, 0, true, density, seed);
+	}
+
+	private TiledBoard(int width, int height, boolean endless, double density, long seed) {
+		if (!endless && ((long) width + 2) * ((long) height + 2) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Board too big for a flat index: " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.endless = endless;
+		this.seed = seed;
+		this.mineThreshold = (long) (density * (1L << 53));
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static long tileKey(int x, int y) {
+		return (long) (x >> TILE_SHIFT) << 32 | ((y >> TILE_SHIFT) & 0xFFFFFFFFL);
+	}
+
+	private boolean onBoard(int x, int y) {
+		return endless || (x >= 1 && x <= width && y >= 1 && y <= height);
+	}
+
+	boolean isMine(int x, int y) {
+		if (!onBoard(x, y) || !started || (Math.abs(x - firstX) <= 1 && Math.abs(y - firstY) <= 1)) {
+			return false;
+		}
+		long tileSeed = mix(seed + tileKey(x, y) * 0x9E3779B97F4A7C15L);
+		long cell = (y & TILE_MASK) << TILE_SHIFT | (x & TILE_MASK);
+		return mix(tileSeed + cell) >>> 11 < mineThreshold;
+	}
+
+	private int countMines(int x, int y) {
+		int nums = 0;
+		for (int j = y - 1; j <= y + 1; j++) {
+			for (int i = x - 1; i <= x + 1; i++) {
+				if (isMine(i, j)) {
+					nums++;
+				}
+			}
+		}
+		return nums;
+	}
+
+	// The tile of a cell, allocated when 'create' is set, or null.
+	private byte[] tile(int x, int y, boolean create) {
+		long key = tileKey(x, y);
+		if (key == lastTileKey) {
+			return lastTile;
+		}
+		byte[] tile = tiles.get(key);
+		if (tile == null) {
+			if (!create) {
+				return null;
+			}
+			tile = new byte[TILE_SIZE * TILE_SIZE];
+			Arrays.fill(tile, (byte) UNKNOWN);
+			tiles.put(key, tile);
+			if (started) {
+				safeInTiles += safeCells(key);
+			}
+		}
+		lastTileKey = key;
+		lastTile = tile;
+		return tile;
+	}
+
+	// The safe cells of the board in a tile, which hashes each of its cells.
+	private long safeCells(long key) {
+		if (endless) {
+			return 0;
+		}
+		int tileX = (int) (key >> 32) << TILE_SHIFT;
+		int tileY = (int) key << TILE_SHIFT;
+		long safe = 0;
+		for (int y = Math.max(1, tileY); y < Math.min(height + 1, tileY + TILE_SIZE); y++) {
+			for (int x = Math.max(1, tileX); x < Math.min(width + 1, tileX + TILE_SIZE); x++) {
+				if (!isMine(x, y)) {
+					safe++;
+				}
+			}
+		}
+		return safe;
+	}
+
+	private void setState(int x, int y, int state) {
+		tile(x, y, true)[(y & TILE_MASK) << TILE_SHIFT | (x & TILE_MASK)] = (byte) state;
+		if (!endless) {
+			if (changeCount == changeLog.length) {
+				changeLog = Arrays.copyOf(changeLog, 2 * changeCount);
+			}
+			changeLog[changeCount++] = index(x, y);
+		}
+	}
+
+	@Override
+	public int state(int x, int y) {
+		if (!onBoard(x, y)) {
+			return OUTSIDE;
+		}
+		byte[] tile = tile(x, y, false);
+		return tile == null ? UNKNOWN : tile[(y & TILE_MASK) << TILE_SHIFT | (x & TILE_MASK)];
+	}
+
+	// Reveals a cell, and around zeros the cells next to it up to the cascade limit. Returns false when it
+	// was a mine.
+	boolean turn(int x, int y) {
+		if (isDone || !onBoard(x, y) || state(x, y) != UNKNOWN) {
+			return !isDone;
+		}
+		if (!started) {
+			started = true;
+			firstX = x;
+			firstY = y;
+			// Tiles allocated by flags before the first turn did not know where the mines are yet.
+			for (long key : tiles.keySet()) {
+				safeInTiles += safeCells(key);
+			}
+		}
+		if (isMine(x, y)) {
+			isDone = true;
+			isWin = false;
+			return false;
+		}
+		reveal(x, y);
+		enqueue(x, y);
+		continueCascade();
+		return true;
+	}
+
+	// Reveals at most the cascade limit of cells around the zeros that are still queued.
+	void continueCascade() {
+		long limit = revealedCells + cascadeLimit;
+		while (queueHead < queueTail && revealedCells < limit) {
+			long packed = queue[queueHead++];
+			int cx = (int) (packed >> 32);
+			int cy = (int) packed;
+			if (state(cx, cy) != 0) {
+				continue;
+			}
+			// A zero cut off in the middle is queued again, to reveal the rest of its neighbours later.
+			for (int j = cy - 1; j <= cy + 1; j++) {
+				for (int i = cx - 1; i <= cx + 1; i++) {
+					if (onBoard(i, j) && state(i, j) == UNKNOWN) {
+						if (revealedCells == limit) {
+							enqueue(cx, cy);
+							checkWin();
+							return;
+						}
+						reveal(i, j);
+						enqueue(i, j);
+					}
+				}
+			}
+		}
+		checkWin();
+	}
+
+	// Whether zeros from an earlier call still have neighbours to reveal, see continueCascade().
+	boolean cascading() {
+		return queueHead < queueTail;
+	}
+
+	// The most cells one call reveals.
+	void setCascadeLimit(int cascadeLimit) {
+		if (cascadeLimit <= 0) {
+			throw new IllegalArgumentException("Cascade limit must be positive: " + cascadeLimit);
+		}
+		this.cascadeLimit = cascadeLimit;
+	}
+
+	private void enqueue(int x, int y) {
+		if (queueTail == queue.length) {
+			// Compact the queue before growing it.
+			System.arraycopy(queue, queueHead, queue, 0, queueTail - queueHead);
+			queueTail -= queueHead;
+			queueHead = 0;
+			if (queueTail == queue.length) {
+				queue = Arrays.copyOf(queue, 2 * queue.length);
+			}
+		}
+		queue[queueTail++] = pack(x, y);
+	}
+
+	// Only when every allocated tile is revealed the other tiles are hashed, to see if they are all mines.
+	private void checkWin() {
+		if (!endless && revealedCells == safeInTiles && revealedCells == (long) width * height - mineCount()) {
+			isDone = true;
+			isWin = true;
+		}
+	}
+
+	private static long pack(int x, int y) {
+		return (long) x << 32 | (y & 0xFFFFFFFFL);
+	}
+
+	private void reveal(int x, int y) {
+		setState(x, y, countMines(x, y));
+		revealedCells++;
+	}
+
+	void flag(int x, int y) {
+		if (state(x, y) == UNKNOWN) {
+			setState(x, y, FLAG);
+		}
+	}
+
+	void unflag(int x, int y) {
+		if (state(x, y) == FLAG) {
+			setState(x, y, UNKNOWN);
+		}
+	}
+
+	// Reveals the unflagged neighbours of a number with as many flags around it. Returns false on a mine.
+	boolean chord(int x, int y) {
+		int number = state(x, y);
+		int flags = 0;
+		for (int j = y - 1; j <= y + 1; j++) {
+			for (int i = x - 1; i <= x + 1; i++) {
+				if (state(i, j) == FLAG) {
+					flags++;
+				}
+			}
+		}
+		if (number < 0 || number > 8 || flags != number) {
+			return !isDone;
+		}
+		for (int j = y - 1; j <= y + 1; j++) {
+			for (int i = x - 1; i <= x + 1; i++) {
+				if (state(i, j) == UNKNOWN && !turn(i, j)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// The number of mines on a finite board. This hashes every cell once, so it is only done when needed.
+	long mineCount() {
+		if (endless) {
+			throw new UnsupportedOperationException("An endless board has no mine count");
+		}
+		if (mineCount == -1 && started) {
+			long count = 0;
+			for (int y = 1; y <= height; y++) {
+				for (int x = 1; x <= width; x++) {
+					if (isMine(x, y)) {
+						count++;
+					}
+				}
+			}
+			mineCount = count;
+		}
+		return mineCount;
+	}
+
+	boolean isDone() {
+		return isDone;
+	}
+
+	long seed() {
+		return seed;
+	}
+
+	boolean isWin() {
+		return isWin;
+	}
+
+	long revealedCells() {
+		return revealedCells;
+	}
+
+	int tileCount() {
+		return tiles.size();
+	}
+
+	// Bytes used by the tiles, which is what grows with the explored area.
+	long tileBytes() {
+		return (long) tiles.size() * TILE_SIZE * TILE_SIZE;
+	}
+
+	private void requireFinite() {
+		if (endless) {
+			throw new UnsupportedOperationException("An endless board has no flat index, use state(x, y)");
+		}
+	}
+
+	@Override
+	public int width() {
+		requireFinite();
+		return width;
+	}
+
+	@Override
+	public int height() {
+		requireFinite();
+		return height;
+	}
+
+	@Override
+	public int stride() {
+		requireFinite();
+		return width + 2;
+	}
+
+	@Override
+	public int cellCount() {
+		requireFinite();
+		return (width + 2) * (height + 2);
+	}
+
+	@Override
+	public int state(int cell) {
+		requireFinite();
+		return state(cell % (width + 2), cell / (width + 2));
+	}
+
+	@Override
+	public int[] neighbourOffsets() {
+		int stride = stride();
+		return new int[]{-stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1};
+	}
+
+	// A cell that changes several times is listed once per change.
+	@Override
+	public PrimitiveIterator.OfInt changedCells() {
+		requireFinite();
+		int[] cells = Arrays.copyOf(changeLog, changeCount);
+		changeCount = 0;
+		return Arrays.stream(cells).iterator();
+	}
+
+	// Plays a strategy made with MineSweeper(TiledBoard) on this board, at most 'moves' batches of picks, and
+	// returns how many it played. A cascade cut off by the limit is finished before the strategy picks again.
+	int play(MineSweeper strategy, int moves) {
+		if (strategy.getBoard() != this) {
+			throw new IllegalArgumentException("The strategy plays on another board");
+		}
+		requireFinite();
+		int played = 0;
+		while (played < moves && !isDone) {
+			strategy.startMove();
+			for (int[] pick : strategy.pickSquares()) {
+				strategy.move(pick);
+				while (cascading()) {
+					continueCascade();
+				}
+				if (isDone) {
+					break;
+				}
+			}
+			played++;
+		}
+		return played;
+	}
+
+	// Stress run: opens a huge board in the middle and plays FrontierStrategy on it.
+	// Usage: TiledBoard [size] [moves] [density] [seed]
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		int moves = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+		double density = args.length > 2 ? Double.parseDouble(args[2]) : 0.15;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+		TiledBoard board = new TiledBoard(size, size, density, seed);
+		long start = System.nanoTime();
+		int played = board.play(new FrontierStrategy(board), moves);
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		System.out.println(size + "x" + size + " board: " + played + " moves, " + board.revealedCells()
+				+ " cells revealed, " + board.tileCount() + " tiles (" + board.tileBytes() / 1024 + " KB) in "
+				+ millis + " ms" + (board.isDone() ? (board.isWin() ? ", won" : ", lost") : ""));
+	}
+}
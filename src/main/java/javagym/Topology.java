@@ -0,0 +1,170 @@
+package javagym;
+
+import java.util.Arrays;
+
+/**
+ * Which cells of a board are neighbours, as a compressed table: the neighbours of a cell are
+ * {@code neighbours[start[cell]]} up to {@code neighbours[start[cell + 1]]}, in increasing order.
+ * Cells are numbered {@code x + width * (y + height * z)}, 0-based, so on a flat board like {@link BoardLayout}.
+ * <p>
+ * The table is built once per board size, so loops over neighbours need no bounds checks and work on any
+ * topology: the classic grid, a torus whose edges wrap around, a hexagonal board whose odd rows are shifted
+ * half a cell to the right, and a cube of stacked grids where cells also touch the layers above and below.
+ */
+final class Topology {
+
+	private static final int[][] SQUARE = steps(false);
+	private static final int[][] CUBE = steps(true);
+	// Hexagonal neighbours of cells on even and on odd rows.
+	private static final int[][] HEX_EVEN = {{-1, -1, 0}, {0, -1, 0}, {-1, 0, 0}, {1, 0, 0}, {-1, 1, 0}, {0, 1, 0}};
+	private static final int[][] HEX_ODD = {{0, -1, 0}, {1, -1, 0}, {-1, 0, 0}, {1, 0, 0}, {0, 1, 0}, {1, 1, 0}};
+
+	final String name;
+	final int width;
+	final int height;
+	final int depth;
+	final int[] start;
+	final int[] neighbours;
+	final int maxDegree;
+
+	private Topology(String name, int width, int height, int depth, boolean wraps, int[][] even, int[][] odd) {
+		if (width <= 0 || height <= 0 || depth <= 0) {
+			throw new IllegalArgumentException("Invalid board size " + width + "x" + height + "x" + depth);
+		}
+		this.name = name;
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		int cells = width * height * depth;
+		start = new int[cells + 1];
+		int[] table = new int[cells * even.length];
+		int[] around = new int[even.length];
+		int size = 0;
+		int maxDegree = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			int x = x(cell);
+			int y = y(cell);
+			int z = z(cell);
+			int count = 0;
+			for (int[] step : y % 2 == 0 ? even : odd) {
+				int nx = x + step[0];
+				int ny = y + step[1];
+				int nz = z + step[2];
+				if (wraps) {
+					nx = Math.floorMod(nx, width);
+					ny = Math.floorMod(ny, height);
+				} else if (nx < 0 || nx >= width || ny < 0 || ny >= height || nz < 0 || nz >= depth) {
+					continue;
+				}
+				around[count++] = cell(nx, ny, nz);
+			}
+			// A small torus reaches some cells, or the cell itself, more than once.
+			Arrays.sort(around, 0, count);
+			start[cell] = size;
+			for (int i = 0; i < count; i++) {
+				if (around[i] != cell && (i == 0 || around[i] != around[i - 1])) {
+					table[size++] = around[i];
+				}
+			}
+			maxDegree = Math.max(maxDegree, size - start[cell]);
+		}
+		start[cells] = size;
+		neighbours = Arrays.copyOf(table, size);
+		this.maxDegree = maxDegree;
+	}
+
+	static Topology grid(int width, int height) {
+		return new Topology("grid", width, height, 1, false, SQUARE, SQUARE);
+	}
+
+	static Topology torus(int width, int height) {
+		return new Topology("torus", width, height, 1, true, SQUARE, SQUARE);
+	}
+
+	static Topology hex(int width, int height) {
+		return new Topology("hex", width, height, 1, false, HEX_EVEN, HEX_ODD);
+	}
+
+	static Topology cube(int width, int height, int depth) {
+		return new Topology("cube", width, height, depth, false, CUBE, CUBE);
+	}
+
+	// By name, for command lines.
+	static Topology of(String name, int width, int height, int depth) {
+		switch (name) {
+			case "grid":
+				return grid(width, height);
+			case "torus":
+				return torus(width, height);
+			case "hex":
+				return hex(width, height);
+			case "cube":
+				return cube(width, height, depth);
+			default:
+				throw new IllegalArgumentException("Unknown topology: " + name);
+		}
+	}
+
+	// The 8 steps to the neighbours in a plane, or the 26 in space.
+	private static int[][] steps(boolean space) {
+		int[][] steps = new int[space ? 26 : 8][];
+		int i = 0;
+		for (int dz = space ? -1 : 0; dz <= (space ? 1 : 0); dz++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (dx != 0 || dy != 0 || dz != 0) {
+						steps[i++] = new int[]{dx, dy, dz};
+					}
+				}
+			}
+		}
+		return steps;
+	}
+
+	// Whether this is the classic grid, where islands can be looked up in IslandCache.
+	boolean isGrid() {
+		return name.equals("grid");
+	}
+
+	int cells() {
+		return start.length - 1;
+	}
+
+	int cell(int x, int y) {
+		return x + width * y;
+	}
+
+	int cell(int x, int y, int z) {
+		return x + width * (y + height * z);
+	}
+
+	int x(int cell) {
+		return cell % width;
+	}
+
+	int y(int cell) {
+		return cell / width % height;
+	}
+
+	int z(int cell) {
+		return cell / (width * height);
+	}
+
+	int degree(int cell) {
+		return start[cell + 1] - start[cell];
+	}
+
+	boolean adjacent(int a, int b) {
+		for (int i = start[a]; i < start[a + 1]; i++) {
+			if (neighbours[i] == b) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return name + " " + width + "x" + height + (depth > 1 ? "x" + depth : "");
+	}
+}
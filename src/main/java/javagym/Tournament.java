@@ -0,0 +1,143 @@
+package javagym;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Plays a series of pseudo random games with YourStrategy and reports the score.
+// Every worker thread plays its games on one pooled instance that is reset between games.
+// With a log file, every game is recorded for GameLog to replay.
+// With -Djavagym.noguess=true the boards come from NoGuessGenerator, so they can be won without guessing.
+// With -Djavagym.topology=torus or hex the games are played on that topology instead of the grid.
+// The results are also split by the BoardMetrics of the boards, to tell easy boards from hard ones.
+// Usage: Tournament [games] [size] [mines] [moveBudgetMicros] [seed] [threads] [log]
+public class Tournament {
+
+	public static void main(String[] args) throws InterruptedException, IOException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int size = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		int mineCount = args.length > 2 ? Integer.parseInt(args[2]) : size * size / 6;
+		long moveBudgetMicros = args.length > 3 ? Long.parseLong(args[3]) : 0;
+		int seed = args.length > 4 ? Integer.parseInt(args[4]) : 123_456_789;
+		int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+		Topology topology = Topology.of(System.getProperty("javagym.topology", "grid"), size, size, 1);
+		// A log only has the mines, it is replayed on the grid.
+		if (args.length > 6 && !topology.isGrid()) {
+			throw new IllegalArgumentException("Games on a " + topology.name + " can not be logged");
+		}
+		FileChannel log = args.length > 6 ? GameLog.open(Paths.get(args[6])) : null;
+
+		// YourStrategy starts at (2, 2).
+		NoGuessGenerator noGuess = Boolean.getBoolean("javagym.noguess")
+				? new NoGuessGenerator(topology, mineCount, topology.cell(1, 1)) : null;
+
+		AtomicInteger nextGame = new AtomicInteger();
+		AtomicInteger wins = new AtomicInteger();
+		AtomicLong deadlineHits = new AtomicLong();
+		boolean[] won = new boolean[games];
+		long[] nanos = new long[games];
+		int[][] metrics = new int[4][games];
+		long start = System.nanoTime();
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				GameRunner gameRunner = new GameRunner(new YourStrategy(size, size));
+				gameRunner.setVerbose(false);
+				gameRunner.setMoveBudgetMicros(moveBudgetMicros);
+				gameRunner.setTopology(topology.name);
+				Played played = new Played(log != null ? new GameLog.Recorder(log, false) : null);
+				gameRunner.setListener(played);
+				for (int game = nextGame.getAndIncrement(); game < games; game = nextGame.getAndIncrement()) {
+					if (noGuess != null) {
+						gameRunner.initBoard(noGuess.board(seed + game));
+					} else {
+						gameRunner.initRandom(mineCount, size, size, seed + game);
+					}
+					long startGame = System.nanoTime();
+					won[game] = gameRunner.run(false);
+					nanos[game] = System.nanoTime() - startGame;
+					if (won[game]) {
+						wins.incrementAndGet();
+					}
+					BoardMetrics boardMetrics = BoardMetrics.of(topology, played.layout,
+							topology.cell(played.firstX, played.firstY));
+					metrics[0][game] = boardMetrics.guesses;
+					metrics[1][game] = boardMetrics.threeBV;
+					metrics[2][game] = boardMetrics.openings;
+					metrics[3][game] = boardMetrics.isolated;
+					deadlineHits.addAndGet(gameRunner.getDeadlineHits());
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		if (log != null) {
+			log.close();
+		}
+		long millis = (System.nanoTime() - start) / 1_000_000;
+
+		System.out.println("games:         " + games + " (" + topology + ", " + mineCount + " mines, "
+				+ threads + " threads" + (noGuess != null ? ", no guessing needed" : "") + ")");
+		System.out.println("wins:          " + wins);
+		System.out.println("time:          " + millis + " ms");
+		System.out.println("move budget:   " + (moveBudgetMicros == 0 ? "unlimited" : moveBudgetMicros + " us"));
+		System.out.println("deadline hits: " + deadlineHits);
+		System.out.print(BoardMetrics.slices("guesses", metrics[0], won, nanos, new int[]{0, 1, 2, 3}));
+		System.out.print(BoardMetrics.slices("3BV", metrics[1], won, nanos, null));
+		System.out.print(BoardMetrics.slices("openings", metrics[2], won, nanos, null));
+		System.out.print(BoardMetrics.slices("isolated", metrics[3], won, nanos, null));
+		if (TranspositionTable.shared() != null) {
+			System.out.println("table:         " + TranspositionTable.shared().stats());
+		}
+		if (IslandCache.shared() != null) {
+			System.out.println("islands:       " + IslandCache.shared().stats());
+		}
+	}
+
+	// The board as it was played, after a mine under the first pick was moved away, and the first pick,
+	// 0-based. Passes the game on to the recorder, if there is one.
+	private static final class Played implements GameLog.Listener {
+
+		private final GameLog.Listener recorder;
+		BoardLayout layout;
+		int firstX;
+		int firstY;
+		private boolean first;
+
+		Played(GameLog.Listener recorder) {
+			this.recorder = recorder;
+		}
+
+		@Override
+		public void start(BoardLayout layout) {
+			this.layout = layout;
+			first = true;
+			if (recorder != null) {
+				recorder.start(layout);
+			}
+		}
+
+		@Override
+		public void batch(int[][] picks, long nanos, int unknownTiles) {
+			if (first) {
+				firstX = picks[0][0] - 1;
+				firstY = picks[0][1] - 1;
+				first = false;
+			}
+			if (recorder != null) {
+				recorder.batch(picks, nanos, unknownTiles);
+			}
+		}
+
+		@Override
+		public void end(boolean won) {
+			if (recorder != null) {
+				recorder.end(won);
+			}
+		}
+	}
+}
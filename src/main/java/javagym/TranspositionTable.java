@@ -0,0 +1,184 @@
+package javagym;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size cache from 64 bit position keys to 64 bit values, shared by all games and threads without
+ * locks.
+ * <p>
+ * Entries are three longs in an AtomicLongArray: a stamp, the key and the value. The stamp holds a version
+ * that is odd while the entry is written, the age and the depth. A writer claims an entry by a CAS of the
+ * stamp to an odd version, and a reader only takes an entry when the stamp was even and did not change while
+ * it read the key and the value. Neither waits for the other: a reader that runs into a write treats it as
+ * a miss, a writer that runs into another write drops its entry. Both are counted as contention.
+ * <p>
+ * A key goes to one bucket of {@link #BUCKET} entries. When the bucket is full, the entry that is oldest, and
+ * then shallowest, is replaced, but only when it is older or no deeper than the new one. The age goes up each
+ * time as many entries were stored as the table holds. Depth is whatever the caller uses as the cost of
+ * finding the value again.
+ * <p>
+ * Keys are not verified beyond their 64 bits, so the caller should hash everything its value depends on.
+ */
+final class TranspositionTable {
+
+	static final int BUCKET = 4;
+	// Entries of the shared table as a power of two, set with -Djavagym.table=<bits>; 0 turns it off.
+	private static final int SHARED_BITS = Integer.getInteger("javagym.table", 16);
+	private static final TranspositionTable SHARED = SHARED_BITS > 0 ? new TranspositionTable(SHARED_BITS) : null;
+
+	private static final int STAMP = 0;
+	private static final int KEY = 1;
+	private static final int VALUE = 2;
+	private static final long VERSION = 1L << 32;
+
+	private final int bits;
+	private final AtomicLongArray entries;
+	private final AtomicLong stores = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder contention = new LongAdder();
+
+	TranspositionTable(int bits) {
+		if (bits < 2 || bits > 28) {
+			throw new IllegalArgumentException("Table size 2^" + bits);
+		}
+		this.bits = bits;
+		entries = new AtomicLongArray(3 << bits);
+	}
+
+	// The table shared by all games in this JVM, or null when it is turned off.
+	static TranspositionTable shared() {
+		return SHARED;
+	}
+
+	int capacity() {
+		return 1 << bits;
+	}
+
+	/**
+	 * The value stored for the key, or 'absent' if there is none.
+	 */
+	long get(long key, long absent) {
+		int first = bucket(key);
+		for (int entry = first; entry < first + BUCKET; entry++) {
+			int base = 3 * entry;
+			long stamp = entries.get(base + STAMP);
+			if ((stamp & VERSION) != 0) {
+				contention.increment();
+				continue;
+			}
+			if (stamp == 0 || entries.get(base + KEY) != key) {
+				continue;
+			}
+			long value = entries.get(base + VALUE);
+			if (entries.get(base + STAMP) != stamp) {
+				contention.increment();
+				continue;
+			}
+			hits.increment();
+			return value;
+		}
+		misses.increment();
+		return absent;
+	}
+
+	/**
+	 * Stores the value for the key, unless the bucket only holds newer or deeper entries, or another thread
+	 * is writing the entry it would take.
+	 *
+	 * @param depth 0 to 65535, the entries with the lowest depth are replaced first
+	 */
+	void put(long key, long value, int depth) {
+		depth = Math.max(0, Math.min(depth, 0xFFFF));
+		int age = (int) (stores.get() >>> bits) & 0xFFFF;
+		int first = bucket(key);
+		int victim = -1;
+		long victimStamp = 0;
+		int victimScore = Integer.MAX_VALUE;
+		boolean free = false;
+		for (int entry = first; entry < first + BUCKET; entry++) {
+			int base = 3 * entry;
+			long stamp = entries.get(base + STAMP);
+			if ((stamp & VERSION) != 0) {
+				continue;
+			}
+			// A stamp of 0 is an entry that was never written.
+			if (stamp == 0 || entries.get(base + KEY) == key) {
+				victim = entry;
+				victimStamp = stamp;
+				free = true;
+				break;
+			}
+			// Other ages first, then the lowest depth.
+			int score = (ageOf(stamp) == age ? 0x10000 : 0) + depthOf(stamp);
+			if (score < victimScore) {
+				victim = entry;
+				victimStamp = stamp;
+				victimScore = score;
+			}
+		}
+		if (victim == -1) {
+			contention.increment();
+			return;
+		}
+		if (!free && ageOf(victimStamp) == age && depthOf(victimStamp) > depth) {
+			dropped.increment();
+			return;
+		}
+		int base = 3 * victim;
+		long version = (victimStamp >>> 32) + 1;
+		if (!entries.compareAndSet(base + STAMP, victimStamp, version << 32)) {
+			contention.increment();
+			return;
+		}
+		entries.set(base + KEY, key);
+		entries.set(base + VALUE, value);
+		entries.set(base + STAMP, (version + 1) << 32 | (long) age << 16 | depth);
+		stores.incrementAndGet();
+	}
+
+	long hits() {
+		return hits.sum();
+	}
+
+	long misses() {
+		return misses.sum();
+	}
+
+	long contention() {
+		return contention.sum();
+	}
+
+	double hitRate() {
+		long hits = hits();
+		long lookups = hits + misses();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	String stats() {
+		return String.format("%d entries, %.1f%% hits of %d lookups, %d stores, %d dropped, %d contended",
+				capacity(), 100 * hitRate(), hits() + misses(), stores.get(), dropped.sum(), contention());
+	}
+
+	private static int ageOf(long stamp) {
+		return (int) (stamp >>> 16) & 0xFFFF;
+	}
+
+	private static int depthOf(long stamp) {
+		return (int) stamp & 0xFFFF;
+	}
+
+	private int bucket(long key) {
+		return (int) (mix(key) >>> (64 - bits)) & -BUCKET;
+	}
+
+	// The 64 bit finalizer of MurmurHash3, also for callers that build keys.
+	static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+}
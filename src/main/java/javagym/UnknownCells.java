@@ -0,0 +1,164 @@
+package javagym;
+
+import java.util.Arrays;
+
+/**
+ * The set of unknown cells that are not known to be mines, for a board of the given size.
+ * <p>
+ * Cells are numbered {@code y * width + x}. The cells are kept in a dense array with the position
+ * of every cell next to it, so adding, removing and picking a random cell are constant time.
+ * Removing swaps the last cell into the gap.
+ * <p>
+ * A bit per cell, in words per row, finds the unknown cell nearest to a point by searching rings around it a
+ * word at a time.
+ */
+class UnknownCells {
+
+	private int width;
+	private int height;
+	private int[] cells;
+	private int[] positions;
+	private int size;
+	private int rowWords;
+	private long[] bits;
+
+	UnknownCells(int width, int height) {
+		reset(width, height);
+	}
+
+	// Resizes to the given board with every cell unknown, reusing the arrays when they are big enough.
+	void reset(int width, int height) {
+		this.width = width;
+		this.height = height;
+		if (cells == null || cells.length < width * height) {
+			cells = new int[width * height];
+			positions = new int[width * height];
+		}
+		rowWords = (width + 63) >>> 6;
+		if (bits == null || bits.length < rowWords * height) {
+			bits = new long[rowWords * height];
+		}
+		fill();
+	}
+
+	// Marks every cell of the board as unknown.
+	void fill() {
+		for (int cell = 0; cell < width * height; cell++) {
+			cells[cell] = cell;
+			positions[cell] = cell;
+		}
+		size = width * height;
+		Arrays.fill(bits, 0, rowWords * height, -1L);
+		if ((width & 63) != 0) {
+			for (int y = 0; y < height; y++) {
+				bits[y * rowWords + rowWords - 1] = (1L << width) - 1;
+			}
+		}
+	}
+
+	void clear() {
+		Arrays.fill(positions, -1);
+		Arrays.fill(bits, 0);
+		size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean contains(int cell) {
+		return positions[cell] != -1;
+	}
+
+	// Returns the cell at the given position, 0 <= position < size().
+	int get(int position) {
+		return cells[position];
+	}
+
+	void add(int cell) {
+		if (positions[cell] != -1) {
+			return;
+		}
+		positions[cell] = size;
+		cells[size++] = cell;
+		bits[word(cell)] |= 1L << cell % width;
+	}
+
+	void remove(int cell) {
+		int position = positions[cell];
+		if (position == -1) {
+			return;
+		}
+		int last = cells[--size];
+		cells[position] = last;
+		positions[last] = position;
+		positions[cell] = -1;
+		bits[word(cell)] &= ~(1L << cell % width);
+	}
+
+	// Picks a cell uniformly, for a random number 0 <= random < 1.
+	int random(double random) {
+		return cells[(int) (random * size)];
+	}
+
+	// Returns the unknown cell closest to (x, y) by Chebyshev distance, the lowest of them on a tie, or -1.
+	// Each ring around the point costs its two rows a word at a time and a bit per row in between.
+	int nearest(int x, int y) {
+		if (size == 0) {
+			return -1;
+		}
+		int maxDistance = Math.max(Math.max(x, width - 1 - x), Math.max(y, height - 1 - y));
+		for (int distance = 0; distance <= maxDistance; distance++) {
+			int from = Math.max(x - distance, 0);
+			int to = Math.min(x + distance, width - 1);
+			// In increasing rows and then columns, so the first cell found is the lowest.
+			if (y - distance >= 0) {
+				int found = firstInRow(y - distance, from, to);
+				if (found != -1) {
+					return (y - distance) * width + found;
+				}
+			}
+			for (int row = Math.max(y - distance + 1, 0); row <= Math.min(y + distance - 1, height - 1); row++) {
+				if (x - distance >= 0 && contains(row * width + x - distance)) {
+					return row * width + x - distance;
+				}
+				if (x + distance < width && contains(row * width + x + distance)) {
+					return row * width + x + distance;
+				}
+			}
+			if (distance > 0 && y + distance < height) {
+				int found = firstInRow(y + distance, from, to);
+				if (found != -1) {
+					return (y + distance) * width + found;
+				}
+			}
+		}
+		return -1;
+	}
+
+	// The lowest x from 'from' to 'to' in the row that is unknown, or -1.
+	private int firstInRow(int y, int from, int to) {
+		int base = y * rowWords;
+		for (int w = from >>> 6; w <= to >>> 6; w++) {
+			long word = bits[base + w];
+			if (w == from >>> 6) {
+				word &= -1L << from;
+			}
+			if (w == to >>> 6 && (to & 63) != 63) {
+				word &= (1L << to + 1) - 1;
+			}
+			if (word != 0) {
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+		}
+		return -1;
+	}
+
+	private int word(int cell) {
+		return cell / width * rowWords + (cell % width >>> 6);
+	}
+}
@@ -1,37 +1,145 @@
 package javagym;
 
-import org.apache.commons.lang3.tuple.MutablePair;
-
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.PrimitiveIterator;
 
 public class YourStrategy extends MineSweeper {
 
 	YourStrategy(int width, int height) {
 		super(width, height);
+		board = getBoard();
+		risk = new double[width * height];
+		Arrays.fill(risk, Double.NaN);
+		riskCells = new int[width * height];
+		unknownCells = new UnknownCells(width, height);
+		frontier = new int[board.cellCount()];
+		quiet = new boolean[board.cellCount()];
+		flaggedNear = new int[board.cellCount()];
+		sat = new SatSolver(width * height);
+		setTopology(width, height);
 	}
 
-	List<Point> mines = new ArrayList<>();
+	private final BoardView board;
+
 	List<Point> safePoints = new ArrayList<>();
+	// Numbers with all their mines flagged and unknown neighbours left, to be chorded.
+	List<Point> chordPoints = new ArrayList<>();
+
+	// Guessing risk per cell (y * fieldWidth + x), NaN when not set. Reused between moves.
+	private double[] risk;
+	private int[] riskCells;
+	private int riskCellCount = 0;
+
+	// Chains and sweeps per chain of the mine sampler used for guesses.
+	private static final int SAMPLER_CHAINS = 8;
+	private static final int SAMPLER_SWEEPS = 200;
+	// The lookahead may pick a guess up to this much riskier than the safest if it more likely leads on.
+	private static final double LOOKAHEAD_SLACK = 0.02;
+	private static final int LOOKAHEAD_DEPTH = 2;
+	private static final int LOOKAHEAD_NODES = 2000;
+	// Islands with up to this many unknowns are solved by counting their layouts, see IslandCache.
+	private static final int ISLAND_UNKNOWNS = 24;
+	// Islands with up to this many unknowns are kept in the shared TranspositionTable, so no entry is -1.
+	private static final int TABLE_UNKNOWNS = 31;
+	// Frontier cells per tile when looking for the ones checkPoints can pass by.
+	private static final int QUIET_TILE = 4096;
+	// Conflicts the SAT solver may spend on proving one cell.
+	private static final int SAT_CONFLICTS = 200;
 
+	// Unknown cells that are not flagged.
+	private final UnknownCells unknownCells;
+
+	// Board cells of the numbers with unknown neighbours, in board order, see BoardView.frontierCells.
+	private int[] frontier;
+	// On large boards, per frontier cell whether checkPoints can pass it by, worked out on tiles,
+	// and per board cell the pass in which a flag was set next to it, which makes it worth a look again.
+	private boolean[] quiet;
+	private int[] flaggedNear;
+	private int checkPass = 0;
+	// Board cells flagged by the current checkPoints pass, see checkTiles.
+	private int[] passFlags = new int[64];
+	private int passFlagCount = 0;
+	// Whether large grids walk the frontier in tiles, see checkTiles. Off it is one walk over the board.
+	private boolean tileDeductions = true;
+
+	// Neighbours of the cells y * fieldWidth + x, as the game has them, and the board cell of each.
+	private Topology topology;
+	private int[] boardCells;
+
+	// The numbers seen so far as constraints on the cells (y * fieldWidth + x) being mines, kept for the game.
+	private final SatSolver sat;
+
+	@Override
+	void reset(int width, int height, int seed) {
+		super.reset(width, height, seed);
+		if (risk.length < width * height) {
+			risk = new double[width * height];
+			Arrays.fill(risk, Double.NaN);
+			riskCells = new int[width * height];
+		} else {
+			clearRisk();
+		}
+		unknownCells.reset(width, height);
+		if (frontier.length < board.cellCount()) {
+			frontier = new int[board.cellCount()];
+			quiet = new boolean[board.cellCount()];
+			flaggedNear = new int[board.cellCount()];
+		}
+		sat.reset(width * height);
+		Topology played = getTopology();
+		if (played != null ? topology != played
+				: !topology.isGrid() || topology.width != width || topology.height != height) {
+			setTopology(width, height);
+		}
+		safePoints.clear();
+		chordPoints.clear();
+	}
+
+	// For checks that compare the tiled walk with the one walk.
+	void setTileDeductions(boolean tileDeductions) {
+		this.tileDeductions = tileDeductions;
+	}
+
+	private void setTopology(int width, int height) {
+		topology = getTopology() != null ? getTopology() : Topology.grid(width, height);
+		boardCells = new int[width * height];
+		for (int cell = 0; cell < boardCells.length; cell++) {
+			boardCells[cell] = board.index(topology.x(cell) + 1, topology.y(cell) + 1);
+		}
+	}
 
 	@Override
 	int[] pickSquare() {
 		// Implement your algorithm to select an x and an y. The first square will have coordinates (1, 1)
 		// The x and y will define which square you have selected.
-		// The minesweeper board you're playing with is the array "display". It is a 2d String array
+		// The minesweeper board you're playing with is 'board'. state(x, y) gives BoardView.UNKNOWN for
+		// undiscovered squares and otherwise the numbers indicating the standard minesweeper gameplay.
 		// It is not allowed to use the 2d array "field" since this is what the game uses to find the mines.
-		// '?' is undiscovered and otherwise it will have numbers indicating the standard minesweeper gameplay.
+		// Use flag(x, y) to mark mines; returning {x, y, CHORD} reveals all unflagged neighbours of a number at once.
 
 		// First turn
-		if (unknown.equals(display[2][2])) {
+		if (board.state(2, 2) == BoardView.UNKNOWN) {
 			return new int[]{2, 2};
 		}
 
+		// Forget the cells that got revealed since the last move, and tell the SAT solver what they show.
+		for (PrimitiveIterator.OfInt cells = board.changedCells(); cells.hasNext(); ) {
+			int cell = cells.nextInt();
+			if (board.state(cell) != BoardView.UNKNOWN) {
+				unknownCells.remove((board.y(cell) - 1) * fieldWidth + board.x(cell) - 1);
+				addToSat(cell);
+			}
+		}
+
 		// If previous calculations found safe points return those first.
 		while (!safePoints.isEmpty()) {
 			Point safePoint = safePoints.remove(safePoints.size() - 1);
-			if (!unknown.equals(node(safePoint))) {
+			if (node(safePoint) != BoardView.UNKNOWN) {
 				continue;
 			}
 			return safePoint.returnValue();
@@ -42,21 +150,39 @@ public class YourStrategy extends MineSweeper {
 			while (!allPointsChecked) {
 				while (!safePoints.isEmpty()) {
 					Point safePoint = safePoints.remove(safePoints.size() - 1);
-					if (!unknown.equals(node(safePoint))) {
+					if (node(safePoint) != BoardView.UNKNOWN) {
 						continue;
 					}
 					return safePoint.returnValue();
 				}
+				while (!chordPoints.isEmpty()) {
+					Point chordPoint = chordPoints.remove(chordPoints.size() - 1);
+					if (surroundingUnknownPoints(chordPoint).isEmpty()) {
+						continue;
+					}
+					return new int[]{chordPoint.x + 1, chordPoint.y + 1, CHORD};
+				}
 
-				allPointsChecked = checkPoints();
+				allPointsChecked = checkPoints() && checkPatterns() || pastDeadline();
 			}
 		}
 
+		// Islands start at the numbers next to an unknown cell. Going backwards through the unknown cells
+		// is safe while flagging mines removes them from it: only cells already visited get moved.
+		// Out of time the islands are skipped or cut short, and we guess with what we have.
 		Islands islands = new Islands();
-		for (int y = 0; y < fieldHeight; y++) {
-			for (int x = 0; x < fieldWidth; x++) {
-				Point point = new Point(x, y);
-				if (unknown.equals(node(point)) || determineMineNumber(point) == 0) {
+		for (int i = unknownCells.size() - 1; i >= 0; i = Math.min(i, unknownCells.size()) - 1) {
+			if (pastDeadline()) {
+				break;
+			}
+			int cell = unknownCells.get(i);
+			for (int n = topology.start[cell]; n < topology.start[cell + 1]; n++) {
+				int neighbour = topology.neighbours[n];
+				if (state(neighbour) < 0) {
+					continue;
+				}
+				Point point = pointOf(neighbour);
+				if (determineMineNumber(point) == 0) {
 					continue;
 				}
 				if (islands.containsKnown(point)) {
@@ -73,7 +199,7 @@ public class YourStrategy extends MineSweeper {
 
 				while (!safePoints.isEmpty()) {
 					Point safePoint = safePoints.remove(safePoints.size() - 1);
-					if (!unknown.equals(node(safePoint))) {
+					if (node(safePoint) != BoardView.UNKNOWN) {
 						continue;
 					}
 					return safePoint.returnValue();
@@ -85,97 +211,399 @@ public class YourStrategy extends MineSweeper {
 		for (Island island : islands) {
 			borderPoints.addAll(island.knowns);
 		}
+		if (borderPoints.size() != 0 && !pastDeadline()) {
+			int[] guess = sampleGuess(islands);
+			if (guess != null) {
+				return guess;
+			}
+		}
 		if (borderPoints.size() != 0) {
-			List<MutablePair<Point, Double>> guessPoints = new ArrayList<>();
 			for (Point point : borderPoints) {
-				processGuessing(point, guessPoints);
+				processGuessing(point);
 			}
-			MutablePair<Point, Double> smallestPair = guessPoints.get(0);
-			for (MutablePair<Point, Double> pair : guessPoints) {
-				if (pair.getRight() < smallestPair.getRight()) {
-					smallestPair = pair;
+			// Risks only go up while guessing, so the minimum is taken once all border points are done.
+			int safestCell = -1;
+			for (int i = 0; i < riskCellCount; i++) {
+				int cell = riskCells[i];
+				if (safestCell == -1 || risk[cell] < risk[safestCell]) {
+					safestCell = cell;
 				}
 			}
-			if (smallestPair.getRight() < 0.4) {
-				return smallestPair.getLeft().returnValue();
+			double smallestRisk = safestCell == -1 ? 1.0 : risk[safestCell];
+			clearRisk();
+			if (smallestRisk < 0.4) {
+				return new int[]{safestCell % fieldWidth + 1, safestCell / fieldWidth + 1};
 			}
 		}
 
-		List<Point> randomPoint = new ArrayList<>();
-		for (int y = 0; y < fieldHeight; y++) {
-			for (int x = 0; x < fieldWidth; x++) {
-				if (unknown.equals(node(x, y)) && !mines.contains(new Point(x, y))) {
-//					return (new Point(x,y)).returnValue();
-					randomPoint.add(new Point(x,y));
-				}
+		int randomCell = unknownCells.random(getRandom().nextDouble());
+		return new int[]{randomCell % fieldWidth + 1, randomCell / fieldWidth + 1};
+	}
+
+	// Plays the pick together with every other safe point and chord that is already known.
+	@Override
+	int[][] pickSquares() {
+		List<int[]> picks = new ArrayList<>();
+		int[] pick = pickSquare();
+		picks.add(pick);
+		if (pick.length > 2) {
+			// A chord reveals its neighbours, they may be safe points as well.
+			for (Point point : surroundingUnknownPoints(new Point(pick[0] - 1, pick[1] - 1))) {
+				unknownCells.remove(point.y * fieldWidth + point.x);
+			}
+		} else {
+			unknownCells.remove((pick[1] - 1) * fieldWidth + pick[0] - 1);
+		}
+		for (Point safePoint : safePoints) {
+			int cell = safePoint.y * fieldWidth + safePoint.x;
+			if (unknownCells.contains(cell)) {
+				unknownCells.remove(cell);
+				picks.add(safePoint.returnValue());
 			}
 		}
-		return randomPoint.get((int)Math.floor(Math.random() * randomPoint.size())).returnValue();
-//		throw new IllegalStateException();
+		safePoints.clear();
+		for (Point chordPoint : chordPoints) {
+			picks.add(new int[]{chordPoint.x + 1, chordPoint.y + 1, CHORD});
+		}
+		chordPoints.clear();
+		return picks.toArray(new int[0][]);
+	}
+
+	private void addMine(Point point) {
+		flag(point.x + 1, point.y + 1);
+		unknownCells.remove(point.y * fieldWidth + point.x);
+		sat.fix(point.y * fieldWidth + point.x, true);
+	}
+
+	// A flag is a mine, a revealed cell is not and its number is a constraint on its neighbours.
+	private void addToSat(int boardCell) {
+		int state = board.state(boardCell);
+		int cell = (board.y(boardCell) - 1) * fieldWidth + board.x(boardCell) - 1;
+		if (state == BoardView.FLAG) {
+			sat.fix(cell, true);
+			return;
+		}
+		sat.fix(cell, false);
+		if (state == 0 || state > 8) {
+			return;
+		}
+		sat.addExactly(Arrays.copyOfRange(topology.neighbours, topology.start[cell], topology.start[cell + 1]), state);
 	}
 
 	private boolean checkPoints() {
+		// Flags only take cells off the frontier, so the list stays valid while it is walked.
+		int frontierCount = board.frontierCells(frontier);
+		boolean tiled = TileScan.tiled(board.cellCount());
+		passFlagCount = 0;
+		if (tiled) {
+			findQuiet(frontierCount);
+		}
+		// The rows of the other topologies wrap around, so a tile there has more neighbours than the two in
+		// board order.
+		if (tiled && tileDeductions && topology.isGrid()) {
+			return checkTiles(frontierCount);
+		}
+		return checkPoints(frontierCount, 0, frontierCount, tiled);
+	}
 
-		for (int y = 0; y < fieldHeight; y++) {
-			for (int x = 0; x < fieldWidth; x++) {
-				if (unknown.equals(node(x, y))) {
-					continue;
-				}
-				Point point = new Point(x,y);
-				List<Point> surroundingPoints = surroundingUnknownPoints(point);
-				if (surroundingPoints.isEmpty()) {
-					continue;
-				}
-				int mineNumber = determineMineNumber(point);
-				int unknowns = 0;
+	// Walks the frontier from position 'from' until it gets to 'to'. A flag makes the walk go back a little,
+	// which can be to before 'from'. False when it found a number to chord.
+	private boolean checkPoints(int frontierCount, int from, int to, boolean tiled) {
+		for (int i = from; i < to; i++) {
+			if (tiled && quiet[i] && flaggedNear[frontier[i]] != checkPass) {
+				continue;
+			}
+			int x = board.x(frontier[i]) - 1;
+			int y = board.y(frontier[i]) - 1;
+			Point point = new Point(x,y);
+			List<Point> surroundingPoints = surroundingUnknownPoints(point);
+			if (surroundingPoints.isEmpty()) {
+				continue;
+			}
+			int mineNumber = determineMineNumber(point) - surroundingFlags(point);
+			int unknowns = surroundingPoints.size();
 
+			if (mineNumber < 0) {
+				throw new IllegalArgumentException();
+			} else if (mineNumber == 0) {
+				// All mines around it are flagged, so one chord reveals the rest.
+				chordPoints.add(point);
+				return false;
+			} else if (mineNumber != 0 && mineNumber == unknowns) {
 				for (Point surroundingPoint : surroundingPoints) {
-					if (mines.contains(surroundingPoint)) {
-						mineNumber--;
-					} else {
-						unknowns++;
-					}
+					flagMine(surroundingPoint.cell(), tiled);
 				}
-				surroundingPoints.removeAll(mines);
+				i = walkBack(frontierCount, x, y) - 1;
+			}
+		}
+
+		return true;
+	}
 
-				if (mineNumber < 0) {
-					throw new IllegalArgumentException();
-				} else if (mineNumber == 0 && unknowns > 0) {
-					safePoints.addAll(surroundingPoints);
+	// Continue after (x - 2, y - 2), so the numbers next to the new flags are checked again.
+	private int walkBack(int frontierCount, int x, int y) {
+		int from = board.index(Math.max(x - 2, 0) + 2, Math.max(y - 2, 0) + 1);
+		int position = Arrays.binarySearch(frontier, 0, frontierCount, from);
+		return position >= 0 ? position : -position - 1;
+	}
+
+	private void flagMine(int cell, boolean tiled) {
+		addMine(pointOf(cell));
+		if (tiled) {
+			for (int n = topology.start[cell]; n < topology.start[cell + 1]; n++) {
+				flaggedNear[boardCells[topology.neighbours[n]]] = checkPass;
+			}
+		}
+		if (passFlagCount == passFlags.length) {
+			passFlags = Arrays.copyOf(passFlags, 2 * passFlagCount);
+		}
+		passFlags[passFlagCount++] = boardCells[cell];
+	}
+
+	// The walk of checkPoints on a large grid. The frontier is cut in tiles of TileScan.TILE_ROWS rows, which
+	// are walked in parallel, each on the board as it was with its own flags kept aside. Then the tiles are
+	// taken in board order: a tile that no earlier flag touches, and whose own flags do not send the walk
+	// back into the tile before it, found what the one walk would find there, so its flags are set in the
+	// order it found them. The other tiles are walked again on the board. That gives the same flags, in the
+	// same order, and the same chord as checkPoints(frontierCount, 0, frontierCount, true).
+	private boolean checkTiles(int frontierCount) {
+		int[] starts = new int[(fieldHeight + TileScan.TILE_ROWS - 1) / TileScan.TILE_ROWS + 1];
+		int tiles = 0;
+		for (int i = 0, tile = -1; i < frontierCount; i++) {
+			int rowTile = (board.y(frontier[i]) - 1) / TileScan.TILE_ROWS;
+			if (rowTile != tile) {
+				tile = rowTile;
+				starts[tiles++] = i;
+			}
+		}
+		starts[tiles] = frontierCount;
+		TileDeductions[] deductions = new TileDeductions[tiles];
+		TileScan.forEachTile(tiles, tile -> deductions[tile] = deduce(frontierCount, starts[tile], starts[tile + 1]));
+
+		for (int tile = 0; tile < tiles; tile++) {
+			TileDeductions found = deductions[tile];
+			if (found.walkedBack || touched(starts[tile], starts[tile + 1])) {
+				if (!checkPoints(frontierCount, starts[tile], starts[tile + 1], true)) {
 					return false;
-				} else if (mineNumber != 0 && mineNumber == unknowns) {
-					mines.addAll(surroundingPoints);
-					x = Math.max(x - 2, 0);
-					y = Math.max(y - 2, 0);
 				}
+				continue;
+			}
+			for (int f = 0; f < found.flagCount; f++) {
+				flagMine(found.flags[f], true);
+			}
+			if (found.chord != -1) {
+				int cell = frontier[found.chord];
+				chordPoints.add(new Point(board.x(cell) - 1, board.y(cell) - 1));
+				return false;
 			}
 		}
-
 		return true;
 	}
 
-	private List<Point> surroundingUnknownPoints(Point point) {
-		List<Point> points = new ArrayList<>();
+	// Whether a flag set in this pass is next to one of the frontier cells from 'from' to 'to', the halo
+	// exchange of checkTiles. Only those cells read the flag, or are no longer passed by for it.
+	private boolean touched(int from, int to) {
+		int firstRow = board.y(frontier[from]);
+		int[] offsets = board.neighbourOffsets();
+		for (int f = 0; f < passFlagCount; f++) {
+			if (board.y(passFlags[f]) < firstRow - 1) {
+				continue;
+			}
+			for (int offset : offsets) {
+				if (Arrays.binarySearch(frontier, from, to, passFlags[f] + offset) >= 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
 
-		for (int yOffset = -1; yOffset <= 1; yOffset++) {
-			for (int xOffset = -1; xOffset <= 1; xOffset++) {
-				if (yOffset == 0 && xOffset == 0) {
-					continue;
+	// The walk of checkPoints from 'from' to 'to' for checkTiles, which only reads the board. Its flags are
+	// kept in a set, and in the order they were found. It stops at a chord, or when the walk would go back to
+	// before 'from' or would throw, which checkTiles leaves to the walk on the board.
+	private TileDeductions deduce(int frontierCount, int from, int to) {
+		TileDeductions found = new TileDeductions();
+		Set<Integer> flags = new HashSet<>();
+		Set<Integer> flaggedNearby = new HashSet<>();
+		int[] unknown = new int[topology.maxDegree];
+		for (int i = from; i < to; i++) {
+			int boardCell = frontier[i];
+			if (quiet[i] && flaggedNear[boardCell] != checkPass && !flaggedNearby.contains(boardCell)) {
+				continue;
+			}
+			int x = board.x(boardCell) - 1;
+			int y = board.y(boardCell) - 1;
+			int cell = y * fieldWidth + x;
+			int unknowns = 0;
+			int flagged = 0;
+			for (int n = topology.start[cell]; n < topology.start[cell + 1]; n++) {
+				int neighbour = topology.neighbours[n];
+				int state = flags.contains(boardCells[neighbour]) ? BoardView.FLAG : state(neighbour);
+				if (state == BoardView.UNKNOWN) {
+					unknown[unknowns++] = neighbour;
+				} else if (state == BoardView.FLAG) {
+					flagged++;
+				}
+			}
+			if (unknowns == 0) {
+				continue;
+			}
+			int number = board.state(boardCell);
+			if (number < 0 || number > 8 || number < flagged) {
+				found.walkedBack = true;
+				return found;
+			}
+			if (number == flagged) {
+				found.chord = i;
+				return found;
+			}
+			if (number - flagged == unknowns) {
+				for (int u = 0; u < unknowns; u++) {
+					found.add(unknown[u]);
+					flags.add(boardCells[unknown[u]]);
+					for (int n = topology.start[unknown[u]]; n < topology.start[unknown[u] + 1]; n++) {
+						flaggedNearby.add(boardCells[topology.neighbours[n]]);
+					}
 				}
+				int position = walkBack(frontierCount, x, y);
+				if (position < from) {
+					found.walkedBack = true;
+					return found;
+				}
+				i = position - 1;
+			}
+		}
+		return found;
+	}
 
-				int x = point.x + xOffset;
-				int y = point.y + yOffset;
+	// What deduce found in one tile: the cells y * fieldWidth + x to flag in order, and the frontier position
+	// of the number to chord, or -1.
+	private static final class TileDeductions {
 
-				if (x < 0 || x >= fieldWidth
-						|| y < 0 || y >= fieldHeight
-						|| !unknown.equals(node(x, y))) {
-					continue;
+		private int[] flags = new int[8];
+		private int flagCount = 0;
+		private int chord = -1;
+		private boolean walkedBack = false;
+
+		private void add(int cell) {
+			if (flagCount == flags.length) {
+				flags = Arrays.copyOf(flags, 2 * flagCount);
+			}
+			flags[flagCount++] = cell;
+		}
+	}
+
+	// Marks the frontier cells that checkPoints would pass by as the board is now: no unknown neighbours, or
+	// a number that neither has all its mines flagged nor needs all its unknown neighbours. Only reads the
+	// board, so the frontier is cut in tiles that run in parallel. A new pass makes earlier flags stale.
+	private void findQuiet(int frontierCount) {
+		checkPass++;
+		int tiles = (frontierCount + QUIET_TILE - 1) / QUIET_TILE;
+		TileScan.forEachTile(tiles, tile -> {
+			for (int i = tile * QUIET_TILE; i < Math.min(frontierCount, (tile + 1) * QUIET_TILE); i++) {
+				int cell = (board.y(frontier[i]) - 1) * fieldWidth + board.x(frontier[i]) - 1;
+				int number = board.state(frontier[i]);
+				int unknowns = 0;
+				int flags = 0;
+				for (int n = topology.start[cell]; n < topology.start[cell + 1]; n++) {
+					int state = state(topology.neighbours[n]);
+					if (state == BoardView.UNKNOWN) {
+						unknowns++;
+					} else if (state == BoardView.FLAG) {
+						flags++;
+					}
 				}
+				quiet[i] = unknowns == 0 || number <= 8 && number - flags > 0 && number - flags != unknowns;
+			}
+		});
+	}
+
+	// Looks up every horizontal and vertical pair of numbers on the border in the pattern table.
+	private boolean checkPatterns() {
+		// The patterns are rows of the grid.
+		if (!topology.isGrid()) {
+			return true;
+		}
+		boolean allPatternsChecked = true;
+		int frontierCount = board.frontierCells(frontier);
+		for (int i = 0; i < frontierCount; i++) {
+			int x = board.x(frontier[i]) - 1;
+			int y = board.y(frontier[i]) - 1;
+			if (surroundingUnknownPoints(new Point(x, y)).isEmpty()) {
+				continue;
+			}
+			if (x + 1 < fieldWidth && isRevealed(x + 1, y)) {
+				allPatternsChecked &= checkPattern(x, y, true);
+			}
+			if (y + 1 < fieldHeight && isRevealed(x, y + 1)) {
+				allPatternsChecked &= checkPattern(x, y, false);
+			}
+		}
+		return allPatternsChecked;
+	}
+
+	private boolean checkPattern(int x, int y, boolean horizontal) {
+		Point[] window = new Point[PatternTable.CELLS];
+		int unknownMask = 0;
+		int remainingA = determineMineNumber(new Point(x, y));
+		int remainingB = determineMineNumber(horizontal ? new Point(x + 1, y) : new Point(x, y + 1));
+		for (int i = 0; i < window.length; i++) {
+			int dx = horizontal ? PatternTable.WINDOW_X[i] : PatternTable.WINDOW_Y[i];
+			int dy = horizontal ? PatternTable.WINDOW_Y[i] : PatternTable.WINDOW_X[i];
+			Point point = new Point(x + dx, y + dy);
+			if (point.x < 0 || point.x >= fieldWidth
+					|| point.y < 0 || point.y >= fieldHeight) {
+				continue;
+			}
+			if (node(point) == BoardView.FLAG) {
+				remainingA -= (PatternTable.MASK_A >> i) & 1;
+				remainingB -= (PatternTable.MASK_B >> i) & 1;
+				continue;
+			}
+			if (node(point) != BoardView.UNKNOWN) {
+				continue;
+			}
+			window[i] = point;
+			unknownMask |= 1 << i;
+		}
+		if (unknownMask == 0
+				|| remainingA < 0 || remainingA > PatternTable.MAX_REMAINING
+				|| remainingB < 0 || remainingB > PatternTable.MAX_REMAINING) {
+			return true;
+		}
+
+		int entry = PatternTable.lookup(unknownMask, remainingA, remainingB);
+		int safeMask = PatternTable.safeMask(entry);
+		int mineMask = PatternTable.mineMask(entry);
+		for (int i = 0; i < window.length; i++) {
+			if ((safeMask >> i & 1) != 0) {
+				safePoints.add(window[i]);
+			} else if ((mineMask >> i & 1) != 0) {
+				addMine(window[i]);
+			}
+		}
+		return safeMask == 0 && mineMask == 0;
+	}
 
-				points.add(new Point(x, y));
+	private int surroundingFlags(Point point) {
+		int cell = point.cell();
+		int flags = 0;
+		for (int i = topology.start[cell]; i < topology.start[cell + 1]; i++) {
+			if (state(topology.neighbours[i]) == BoardView.FLAG) {
+				flags++;
 			}
 		}
+		return flags;
+	}
 
+	private List<Point> surroundingUnknownPoints(Point point) {
+		int cell = point.cell();
+		List<Point> points = new ArrayList<>();
+		for (int i = topology.start[cell]; i < topology.start[cell + 1]; i++) {
+			if (state(topology.neighbours[i]) == BoardView.UNKNOWN) {
+				points.add(pointOf(topology.neighbours[i]));
+			}
+		}
 		return points;
 	}
 
@@ -185,46 +613,275 @@ public class YourStrategy extends MineSweeper {
 
 		for (int i = 0; i < b.length; i++) {
 			Point point = island.knowns.get(i);
+			int cell = point.cell();
 			int mineNumber = determineMineNumber(point);
-			for (int yOffset = -1; yOffset <= 1; yOffset++) {
-				for (int xOffset = -1; xOffset <= 1; xOffset++) {
-					if (yOffset == 0 && xOffset == 0) {
-						continue;
-					}
-					int x = point.x + xOffset;
-					int y = point.y + yOffset;
-
-					Point checkPoint = new Point(x,y);
-					if (mines.contains(checkPoint)) {
-						mineNumber--;
-						continue;
-					}
+			for (int n = topology.start[cell]; n < topology.start[cell + 1]; n++) {
+				int neighbour = topology.neighbours[n];
+				if (state(neighbour) == BoardView.FLAG) {
+					mineNumber--;
+					continue;
+				}
 
-					if (unknown.equals(node(checkPoint))) {
-						int index = island.unknowns.indexOf(checkPoint);
-						if (index == -1) {
-							throw new IllegalArgumentException();
-						}
-						A[i][index] = 1;
+				if (state(neighbour) == BoardView.UNKNOWN) {
+					int index = island.unknowns.indexOf(pointOf(neighbour));
+					if (index == -1) {
+						throw new IllegalArgumentException();
 					}
+					A[i][index] = 1;
 				}
 			}
 			b[i] = mineNumber;
 		}
 
 
-		GaussianElimination gaussianElimination = new GaussianElimination(A, b);
-		Integer[] solution = gaussianElimination.getSolution();
+		// What the numbers decide only depends on A and b, so the table gives the same as solving, in any game.
+		// It is looked up before IslandCache, which needs the shape of the island, and before the SAT solver.
+		TranspositionTable table = TranspositionTable.shared();
+		boolean cacheable = table != null && island.unknowns.size() <= TABLE_UNKNOWNS;
+		long key = cacheable ? islandKey(A, b) : 0;
+		long entry = cacheable ? table.get(key, -1) : -1;
+		Integer[] solution;
+		if (entry != -1) {
+			solution = decodeSolution(entry, island.unknowns.size());
+		} else {
+			solution = solveFromIslandCache(island, b);
+			boolean complete = true;
+			if (solution == null) {
+				GaussianElimination gaussianElimination = new GaussianElimination(A, b, getMoveDeadline());
+				solution = gaussianElimination.getSolution();
+				complete = solveWithSat(island, solution);
+			}
+			// A solution cut short by the deadline is correct but may be missing values, keep it out.
+			if (cacheable && complete && !pastDeadline()) {
+				table.put(key, encodeSolution(solution), island.unknowns.size());
+			}
+		}
 
 		for (int i = 0; i < solution.length; i++) {
 			if (Integer.valueOf(0).equals(solution[i])) {
 				safePoints.add(island.unknowns.get(i));
 			} else if (Integer.valueOf(1).equals(solution[i])) {
-				mines.add(island.unknowns.get(i));
+				addMine(island.unknowns.get(i));
 			}
 		}
 	}
 
+	// Decides the cells elimination left open by asking the SAT solver for a layout with the cell a mine and
+	// one with it safe; a cell without one of them is decided. A layout found also shows values the other
+	// cells can take, which then need no question. False if a question ran out of conflicts or time.
+	private boolean solveWithSat(Island island, Integer[] solution) {
+		int n = island.unknowns.size();
+		int[] variables = new int[n];
+		for (int i = 0; i < n; i++) {
+			variables[i] = island.unknowns.get(i).y * fieldWidth + island.unknowns.get(i).x;
+		}
+		boolean[] canBeMine = new boolean[n];
+		boolean[] canBeSafe = new boolean[n];
+		boolean complete = true;
+		for (int i = 0; i < n; i++) {
+			for (int isMine = 1; isMine >= 0 && solution[i] == null; isMine--) {
+				if (isMine == 1 ? canBeMine[i] : canBeSafe[i]) {
+					continue;
+				}
+				int result = sat.solve(SatSolver.literal(variables[i], isMine == 1), SAT_CONFLICTS, getMoveDeadline());
+				if (result == SatSolver.UNSAT) {
+					solution[i] = 1 - isMine;
+				} else if (result == SatSolver.SAT) {
+					for (int j = 0; j < n; j++) {
+						if (sat.value(variables[j])) {
+							canBeMine[j] = true;
+						} else {
+							canBeSafe[j] = true;
+						}
+					}
+				} else {
+					complete = false;
+				}
+			}
+		}
+		return complete;
+	}
+
+	// A guess on the border chosen by Lookahead from the layouts of MineSampler, or an interior cell when
+	// those are safer. Returns null if the sampler found no layout.
+	private int[] sampleGuess(Islands islands) {
+		int[] variable = new int[fieldWidth * fieldHeight];
+		Arrays.fill(variable, -1);
+		List<Point> variables = new ArrayList<>();
+		for (Island island : islands) {
+			for (Point point : island.unknowns) {
+				int cell = point.y * fieldWidth + point.x;
+				if (variable[cell] == -1) {
+					variable[cell] = variables.size();
+					variables.add(point);
+				}
+			}
+		}
+		// Every unknown cell is a mine or one of the safe tiles the game still has to reveal,
+		// so this is the mine counter of the game minus the flags.
+		int minesLeft = unknownCells.size() - getUnknownTiles();
+		MineSampler sampler = new MineSampler(variables.size(), unknownCells.size() - variables.size(), minesLeft);
+		for (Island island : islands) {
+			for (Point known : island.knowns) {
+				int count = determineMineNumber(known) - surroundingFlags(known);
+				List<Point> unknowns = surroundingUnknownPoints(known);
+				int[] constraint = new int[unknowns.size()];
+				for (int i = 0; i < constraint.length; i++) {
+					constraint[i] = variable[unknowns.get(i).y * fieldWidth + unknowns.get(i).x];
+				}
+				sampler.addConstraint(constraint, count);
+			}
+		}
+		sampler.keepLayouts(true);
+		MineSampler.Result result = sampler.sample(getRandom().nextLong(), SAMPLER_CHAINS, SAMPLER_SWEEPS,
+				getMoveDeadline(), null);
+		if (result == null) {
+			return null;
+		}
+		int border = variables.size();
+		int safest = 0;
+		for (int v = 1; v < border; v++) {
+			if (result.probability[v] < result.probability[safest]) {
+				safest = v;
+			}
+		}
+		if (result.probability[safest] <= result.interiorProbability || unknownCells.size() == variables.size()) {
+			List<long[]> layouts = addSecondRing(result.layouts, variable, variables, minesLeft);
+			int[][] neighbours = new int[variables.size()][];
+			int[] flags = new int[variables.size()];
+			for (int v = 0; v < border; v++) {
+				List<Point> unknowns = surroundingUnknownPoints(variables.get(v));
+				neighbours[v] = new int[unknowns.size()];
+				for (int i = 0; i < unknowns.size(); i++) {
+					neighbours[v][i] = variable[unknowns.get(i).y * fieldWidth + unknowns.get(i).x];
+				}
+				flags[v] = surroundingFlags(variables.get(v));
+			}
+			Lookahead lookahead = new Lookahead(variables.size(), layouts, neighbours, flags,
+					LOOKAHEAD_NODES, getMoveDeadline());
+			int best = lookahead.best(LOOKAHEAD_SLACK, LOOKAHEAD_DEPTH);
+			return variables.get(best == -1 ? safest : best).returnValue();
+		}
+		// Any interior cell is as good as another, start looking at a random one.
+		int start = (int) (getRandom().nextDouble() * unknownCells.size());
+		for (int i = 0; i < unknownCells.size(); i++) {
+			int cell = unknownCells.get((start + i) % unknownCells.size());
+			if (variable[cell] == -1) {
+				return new int[]{cell % fieldWidth + 1, cell / fieldWidth + 1};
+			}
+		}
+		return variables.get(safest).returnValue();
+	}
+
+	// Adds the unknown cells next to the border to the layouts, as variables after the border ones, so the
+	// numbers the border can show are known. The interior mines of a layout are spread evenly over the
+	// interior, so each of these cells gets a mine with the chance of an interior cell in that layout.
+	private List<long[]> addSecondRing(List<long[]> layouts, int[] variable, List<Point> variables, int minesLeft) {
+		int border = variables.size();
+		for (int v = 0; v < border; v++) {
+			for (Point point : surroundingUnknownPoints(variables.get(v))) {
+				int cell = point.y * fieldWidth + point.x;
+				if (variable[cell] == -1) {
+					variable[cell] = variables.size();
+					variables.add(point);
+				}
+			}
+		}
+		int interior = unknownCells.size() - border;
+		SplittableRandom random = new SplittableRandom(getRandom().nextLong());
+		List<long[]> extended = new ArrayList<>(layouts.size());
+		for (long[] layout : layouts) {
+			long[] copy = Arrays.copyOf(layout, (variables.size() + 63) >>> 6);
+			int placed = 0;
+			for (long word : layout) {
+				placed += Long.bitCount(word);
+			}
+			double density = interior == 0 ? 0 : (double) (minesLeft - placed) / interior;
+			for (int v = border; v < variables.size(); v++) {
+				if (random.nextDouble() < density) {
+					copy[v >>> 6] |= 1L << v;
+				}
+			}
+			extended.add(copy);
+		}
+		return extended;
+	}
+
+	// Decides the cells of a small island from all its mine layouts, counted once per shape over all games,
+	// see IslandCache: per unknown 0 if safe, 1 if a mine, null if undecided. Null if the island is too large or
+	// the layouts could not be counted in time.
+	private Integer[] solveFromIslandCache(Island island, int[] mines) {
+		IslandCache cache = IslandCache.shared();
+		// The shapes are drawn on the grid.
+		if (cache == null || !topology.isGrid() || island.unknowns.size() > ISLAND_UNKNOWNS) {
+			return null;
+		}
+		int[] knownX = new int[island.knowns.size()];
+		int[] knownY = new int[knownX.length];
+		for (int i = 0; i < knownX.length; i++) {
+			knownX[i] = island.knowns.get(i).x;
+			knownY[i] = island.knowns.get(i).y;
+		}
+		int[] unknownX = new int[island.unknowns.size()];
+		int[] unknownY = new int[unknownX.length];
+		for (int i = 0; i < unknownX.length; i++) {
+			unknownX[i] = island.unknowns.get(i).x;
+			unknownY[i] = island.unknowns.get(i).y;
+		}
+		IslandCache.Shape shape = IslandCache.Shape.of(knownX, knownY, mines, unknownX, unknownY);
+		IslandCache.Entry entry = cache.get(shape);
+		if (entry == null) {
+			entry = IslandCache.solve(shape, getMoveDeadline());
+			if (entry == null) {
+				return null;
+			}
+			cache.put(shape, entry);
+		}
+		Integer[] solution = new Integer[unknownX.length];
+		for (int i = 0; i < unknownX.length; i++) {
+			int state = entry.state(shape.unknownIndex(i));
+			if (state == IslandCache.Entry.SAFE) {
+				solution[i] = 0;
+			} else if (state == IslandCache.Entry.MINE) {
+				solution[i] = 1;
+			}
+		}
+		return solution;
+	}
+
+	private static long islandKey(int[][] A, int[] b) {
+		long key = TranspositionTable.mix((long) A.length << 32 | A[0].length);
+		for (int i = 0; i < A.length; i++) {
+			long row = 0;
+			for (int j = 0; j < A[i].length; j++) {
+				row |= (long) A[i][j] << j;
+			}
+			key = TranspositionTable.mix(key ^ row ^ (long) b[i] << 32);
+		}
+		return key;
+	}
+
+	// Bit j + 32 is set when unknown j is solved, bit j when it is a mine.
+	private static long encodeSolution(Integer[] solution) {
+		long entry = 0;
+		for (int j = 0; j < solution.length; j++) {
+			if (solution[j] != null) {
+				entry |= 1L << (j + 32) | (long) (solution[j] & 1) << j;
+			}
+		}
+		return entry;
+	}
+
+	private static Integer[] decodeSolution(long entry, int unknowns) {
+		Integer[] solution = new Integer[unknowns];
+		for (int j = 0; j < unknowns; j++) {
+			if ((entry >>> (j + 32) & 1) != 0) {
+				solution[j] = (int) (entry >>> j & 1);
+			}
+		}
+		return solution;
+	}
+
 	private Island processIsland(Point startPoint) {
 		List<Point> unknowns = new ArrayList<>();
 		List<Point> knowns = new ArrayList<>();
@@ -234,30 +891,22 @@ public class YourStrategy extends MineSweeper {
 
 	private void processSurroundingBlocks(Point point, List<Point> knowns, List<Point> unknowns, boolean isForKnown) {
 		List<Point> newPoints = new ArrayList<>();
-		for (int yOffset = -1; yOffset <= 1; yOffset++) {
-			for (int xOffset = -1; xOffset <= 1; xOffset++) {
-
-				int x = point.x + xOffset;
-				int y = point.y + yOffset;
-				if (x < 0 || x >= fieldWidth
-						|| y < 0 || y >= fieldHeight) {
-					continue;
-				}
-
-				Point newPoint = new Point(point.x + xOffset,point.y + yOffset);
-
-
-				if (isForKnown && !unknown.equals(node(newPoint)) && determineMineNumber(newPoint) != 0) {
-					if (!knowns.contains(newPoint)) {
-						newPoints.add(newPoint);
-						knowns.add(newPoint);
-					}
+		int cell = point.cell();
+		for (int i = topology.start[cell]; i < topology.start[cell + 1]; i++) {
+			int neighbour = topology.neighbours[i];
+			int state = state(neighbour);
+			if (isForKnown && state > 0) {
+				Point newPoint = pointOf(neighbour);
+				if (!knowns.contains(newPoint)) {
+					newPoints.add(newPoint);
+					knowns.add(newPoint);
 				}
-				if (!isForKnown && unknown.equals(node(newPoint)) && !mines.contains(newPoint)) {
-					if (!unknowns.contains(newPoint)) {
-						newPoints.add(newPoint);
-						unknowns.add(newPoint);
-					}
+			}
+			if (!isForKnown && state == BoardView.UNKNOWN) {
+				Point newPoint = pointOf(neighbour);
+				if (!unknowns.contains(newPoint)) {
+					newPoints.add(newPoint);
+					unknowns.add(newPoint);
 				}
 			}
 		}
@@ -266,60 +915,70 @@ public class YourStrategy extends MineSweeper {
 		}
 	}
 
-	private String node(int x, int y) {
-		return display[x + 1][y + 1];
+	private int node(int x, int y) {
+		return board.state(x + 1, y + 1);
 	}
 
-	private String node(Point point) {
+	private int node(Point point) {
 		return node(point.x, point.y);
 	}
 
-	private int determineMineNumber(Point point) {
-		String neighbourCountString = node(point);
-		for (int i = 0; i < neighbourCount.length; i ++) {
-			if (neighbourCount[i].equals(neighbourCountString)) {
-				return i;
-			}
-		}
-		throw new IllegalArgumentException();
+	// The board state of a cell y * fieldWidth + x.
+	private int state(int cell) {
+		return board.state(boardCells[cell]);
 	}
 
-	private void processGuessing(Point point, List<MutablePair<Point, Double>> points) {
-		int mineNumber = determineMineNumber(point);
-		List<Point> newPoints = new ArrayList<>();
-		for (int yOffset = -1; yOffset <= 1; yOffset++) {
-			for (int xOffset = -1; xOffset <= 1; xOffset++) {
+	private Point pointOf(int cell) {
+		return new Point(topology.x(cell), topology.y(cell));
+	}
 
-				int x = point.x + xOffset;
-				int y = point.y + yOffset;
-				if (x < 0 || x >= fieldWidth
-						|| y < 0 || y >= fieldHeight) {
-					continue;
-				}
+	private boolean isRevealed(int x, int y) {
+		return node(x, y) >= 0;
+	}
 
-				Point checkPoint = new Point(x,y);
-				if (mines.contains(checkPoint)) {
-					mineNumber--;
-					continue;
-				}
+	private int determineMineNumber(Point point) {
+		int mineNumber = node(point);
+		if (mineNumber < 0 || mineNumber > 8) {
+			throw new IllegalArgumentException();
+		}
+		return mineNumber;
+	}
 
-				if (unknown.equals(node(checkPoint))) {
-					newPoints.add(checkPoint);
-				}
+	private void clearRisk() {
+		for (int i = 0; i < riskCellCount; i++) {
+			risk[riskCells[i]] = Double.NaN;
+		}
+		riskCellCount = 0;
+	}
+
+	private void processGuessing(Point point) {
+		int mineNumber = determineMineNumber(point);
+		int cell = point.cell();
+		int unknowns = 0;
+		for (int i = topology.start[cell]; i < topology.start[cell + 1]; i++) {
+			int state = state(topology.neighbours[i]);
+			if (state == BoardView.FLAG) {
+				mineNumber--;
+			} else if (state == BoardView.UNKNOWN) {
+				unknowns++;
 			}
 		}
-		Double fraction = 1.0 * mineNumber / newPoints.size();
-		TOP: for (Point newPoint : newPoints) {
-			for (MutablePair<Point, Double> pair : points) {
-				if (newPoint.equals(pair.getLeft())) {
-					pair.setValue(Math.max(pair.getRight(), fraction));
-					continue TOP;
-				}
+		double fraction = 1.0 * mineNumber / unknowns;
+		for (int i = topology.start[cell]; i < topology.start[cell + 1]; i++) {
+			int neighbour = topology.neighbours[i];
+			if (state(neighbour) != BoardView.UNKNOWN) {
+				continue;
+			}
+			if (Double.isNaN(risk[neighbour])) {
+				risk[neighbour] = fraction;
+				riskCells[riskCellCount++] = neighbour;
+			} else {
+				risk[neighbour] = Math.max(risk[neighbour], fraction);
 			}
-			points.add(MutablePair.of(newPoint, fraction));
 		}
 	}
 
+
 	private class Point {
 		int x;
 		int y;
@@ -344,6 +1003,10 @@ public class YourStrategy extends MineSweeper {
 			return new int[]{x + 1, y + 1};
 		}
 
+		int cell() {
+			return y * fieldWidth + x;
+		}
+
 		@Override
 		public String toString() {
 			return "(" + x +"," + y + ")";
@@ -395,11 +1058,7 @@ public class YourStrategy extends MineSweeper {
 			for(int x = 1; x < str.length ; x++) {
 				System.out.print("|");
 				// Prints out content of each tile.
-				if (mines.contains(new Point(x-1,y-1))) {
-					System.out.print(" * ");
-				} else {
-					System.out.print(str[x][y]);
-				}
+				System.out.print(str[x][y]);
 			}
 		}
 		System.out.println("");
@@ -0,0 +1,82 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BitBoardCrossCheck {
+
+	@Test
+	void testSameAsArrayEngine() {
+		int[][] sizes = {{9, 9}, {30, 16}, {64, 20}, {65, 7}, {130, 40}};
+		for (int[] size : sizes) {
+			for (int seed = 1; seed <= 20; seed++) {
+				playBoth(size[0], size[1], seed);
+			}
+		}
+	}
+
+	// Plays the same random moves on both engines and compares the boards after every move.
+	private static void playBoth(int width, int height, int seed) {
+		Random random = new Random(seed);
+		BoardLayout layout = BoardLayout.random(width, height, width * height * (8 + seed % 12) / 100, seed);
+		PlainGame plain = new PlainGame(width, height);
+		plain.reset(width, height, seed);
+		plain.loadBoard(layout);
+		BitBoard bitBoard = new BitBoard(width, height);
+		bitBoard.load(layout);
+
+		int x;
+		int y;
+		do {
+			x = random.nextInt(width) + 1;
+			y = random.nextInt(height) + 1;
+		} while (layout.isMine(x - 1, y - 1));
+		plain.clear(x, y);
+		plain.detect();
+		plain.revealNeighboursOfZeros();
+		plain.isVictory();
+		bitBoard.clear(x, y);
+		compare(plain, bitBoard, "seed " + seed + " first pick");
+
+		for (int move = 0; move < 4 * width * height && !plain.getDone(); move++) {
+			x = random.nextInt(width) + 1;
+			y = random.nextInt(height) + 1;
+			int state = bitBoard.state(x, y);
+			int choice = random.nextInt(10);
+			if (state >= 0) {
+				plain.chord(x, y);
+				bitBoard.chord(x, y);
+			} else if (choice < 3 && state == BoardView.UNKNOWN) {
+				plain.flag(x, y);
+				bitBoard.flag(x, y);
+			} else if (choice < 4 && state == BoardView.FLAG) {
+				plain.unflag(x, y);
+				bitBoard.unflag(x, y);
+			} else if (!layout.isMine(x - 1, y - 1) || choice == 9) {
+				plain.turn(x, y);
+				bitBoard.turn(x, y);
+			}
+			plain.detect();
+			plain.revealNeighboursOfZeros();
+			plain.isVictory();
+			compare(plain, bitBoard, "seed " + seed + " move " + move);
+		}
+	}
+
+	private static void compare(PlainGame plain, BitBoard bitBoard, String when) {
+		BoardView expected = plain.getBoard();
+		String game = bitBoard.width() + "x" + bitBoard.height() + " " + when;
+		assertEquals(plain.getDone(), bitBoard.getDone(), game);
+		assertEquals(plain.getWin(), bitBoard.getWin(), game);
+		if (plain.getDone()) {
+			return;
+		}
+		assertEquals(plain.getUnknownTiles(), bitBoard.getUnknownTiles(), game);
+		for (int cell = 0; cell < expected.cellCount(); cell++) {
+			assertEquals(expected.state(cell), bitBoard.state(cell), game + " cell " + cell);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// The vector kernels are only checked when built with -P vector and run with --add-modules jdk.incubator.vector.
+public class BoardKernelsCheck {
+
+	@Test
+	void testScalarKernels() {
+		assertAgrees(new ScalarKernels());
+	}
+
+	@Test
+	void testVectorKernels() throws ReflectiveOperationException {
+		assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(), "no jdk.incubator.vector");
+		Class<?> vector;
+		try {
+			vector = Class.forName("javagym.VectorKernels");
+		} catch (ClassNotFoundException e) {
+			assumeTrue(false, "built without the vector profile");
+			return;
+		}
+		assertAgrees((BoardKernels) vector.getDeclaredConstructor().newInstance());
+	}
+
+	// Widths around multiples of the vector lengths, all row ranges of the small boards, and count from every
+	// start on the small boards.
+	private static void assertAgrees(BoardKernels kernels) {
+		Random random = new Random(17);
+		for (int width = 1; width <= 70; width += random.nextInt(5) + 1) {
+			for (int height : new int[]{1, 2, 7, 40}) {
+				int stride = width + 2;
+				int rows = height + 2;
+				byte[] states = new byte[stride * rows];
+				for (int y = 0; y < rows; y++) {
+					for (int x = 0; x < stride; x++) {
+						int roll = random.nextInt(12);
+						boolean outside = x == 0 || y == 0 || x == stride - 1 || y == rows - 1;
+						states[x + y * stride] = (byte) (outside ? BoardView.OUTSIDE
+								: roll == 0 ? BoardView.UNKNOWN : roll == 1 ? BoardView.FLAG : roll - 2);
+					}
+				}
+				String board = width + "x" + height;
+				assertArrayEquals(frontier(states, stride, 1, rows - 1), frontier(kernels, states, stride, rows), board);
+				for (int from = 1; from < rows - 1 && height < 10; from++) {
+					for (int to = from; to < rows; to++) {
+						int[] out = new int[states.length];
+						int count = kernels.frontier(states, stride, from, to, out);
+						assertArrayEquals(frontier(states, stride, from, to), Arrays.copyOf(out, count), board);
+					}
+				}
+				for (int from = 0; from < states.length; from += height < 10 ? 1 : states.length / 7) {
+					for (int state = BoardView.OUTSIDE; state <= 2; state++) {
+						assertEquals(count(states, from, states.length, state),
+								kernels.count(states, from, states.length, state), board + " from " + from);
+					}
+				}
+				byte[] counts = new byte[states.length];
+				kernels.neighbourCounts(states, stride, rows, BoardView.UNKNOWN, counts);
+				assertArrayEquals(neighbourCounts(states, stride, rows, BoardView.UNKNOWN), counts, board);
+			}
+		}
+	}
+
+	private static int[] frontier(BoardKernels kernels, byte[] states, int stride, int rows) {
+		int[] out = new int[states.length];
+		int count = kernels.frontier(states, stride, rows, out);
+		assertTrue(count <= out.length);
+		return Arrays.copyOf(out, count);
+	}
+
+	// The frontier as defined: revealed cells with an unknown neighbour, in board order.
+	private static int[] frontier(byte[] states, int stride, int fromRow, int toRow) {
+		int[] out = new int[states.length];
+		int count = 0;
+		for (int cell = fromRow * stride; cell < toRow * stride; cell++) {
+			if (states[cell] < 0) {
+				continue;
+			}
+			boolean unknown = false;
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					unknown |= states[cell + dx + dy * stride] == BoardView.UNKNOWN;
+				}
+			}
+			if (unknown) {
+				out[count++] = cell;
+			}
+		}
+		assertEquals(count, Arrays.stream(out, 0, count).distinct().count());
+		return Arrays.copyOf(out, count);
+	}
+
+	private static int count(byte[] states, int from, int to, int state) {
+		int count = 0;
+		for (int cell = from; cell < to; cell++) {
+			count += states[cell] == state ? 1 : 0;
+		}
+		return count;
+	}
+
+	// Per cell inside the ring its neighbours with the value, 0 on the ring.
+	private static byte[] neighbourCounts(byte[] values, int stride, int rows, int value) {
+		byte[] counts = new byte[values.length];
+		for (int y = 1; y < rows - 1; y++) {
+			for (int x = 1; x < stride - 1; x++) {
+				int cell = x + y * stride;
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if ((dx != 0 || dy != 0) && values[cell + dx + dy * stride] == value) {
+							counts[cell]++;
+						}
+					}
+				}
+			}
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,71 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoardMetricsCheck {
+
+	@Test
+	void testSmallBoard() {
+		// 7x1 with mines at x = 2 and 4: 0 1 * 2 * 1 0. The 0s are two openings, the 2 is isolated.
+		BitSet mines = new BitSet();
+		mines.set(2);
+		mines.set(4);
+		BoardMetrics metrics = BoardMetrics.of(new BoardLayout(7, 1, 0, mines), 0, 0);
+		assertEquals(2, metrics.openings);
+		assertEquals(1, metrics.isolated);
+		assertEquals(3, metrics.threeBV);
+		// Starting on the left, nothing tells whether the cell after the first mine is safe.
+		assertEquals(1, metrics.guesses);
+	}
+
+	@Test
+	void testNoGuessBoardsNeedNoGuesses() throws InterruptedException {
+		NoGuessGenerator generator = new NoGuessGenerator(30, 16, 99, 1, 1);
+		for (BoardLayout layout : generator.boards(20, 3, 1)) {
+			assertEquals(0, BoardMetrics.of(layout, 1, 1).guesses, "board " + layout.seed);
+		}
+	}
+
+	// Whatever the solver decides is right, on boards that need many guesses.
+	@Test
+	void testDeductionsAreSound() {
+		for (int seed = 1; seed <= 50; seed++) {
+			BoardLayout layout = BoardLayout.random(30, 30, 180, seed);
+			DeductionSolver solver = new DeductionSolver(30, 30);
+			solver.setMines(layout);
+			solver.restart();
+			if (!solver.mine[solver.cell(1, 1)]) {
+				solver.open(solver.cell(1, 1));
+			}
+			while (true) {
+				solver.deduce();
+				if (solver.solved() || solver.deduceIslands(BoardMetrics.ISLAND_UNKNOWNS)) {
+					if (solver.solved()) {
+						break;
+					}
+					continue;
+				}
+				// Open the first safe unknown cell, like a lucky guess.
+				int cell = 0;
+				while (solver.state[cell] != DeductionSolver.UNKNOWN || solver.mine[cell]) {
+					cell++;
+				}
+				solver.open(cell);
+			}
+			for (int cell = 0; cell < solver.state.length; cell++) {
+				if (solver.state[cell] == DeductionSolver.FLAG) {
+					assertTrue(solver.mine[cell], "seed " + seed);
+				}
+				if (solver.state[cell] == DeductionSolver.OPEN) {
+					assertFalse(solver.mine[cell], "seed " + seed);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoardSnapshotCheck {
+
+	private static void assertSameBoard(BoardView expected, BoardView actual) {
+		assertEquals(expected.cellCount(), actual.cellCount());
+		for (int cell = 0; cell < expected.cellCount(); cell++) {
+			assertEquals(expected.state(cell), actual.state(cell), "cell " + cell);
+		}
+	}
+
+	private static void play(PlainGame game, int x, int y) {
+		game.turn(x, y);
+		game.detect();
+		game.revealNeighboursOfZeros();
+	}
+
+	@Test
+	void testSnapshotsAreIndependent() {
+		BoardLayout layout = BoardLayout.random(40, 30, 150, 7);
+		PlainGame game = new PlainGame(40, 30);
+		game.reset(40, 30, 7);
+		game.loadBoard(layout);
+		game.clear(20, 15);
+		game.detect();
+		game.revealNeighboursOfZeros();
+
+		BoardSnapshot first = game.getBoard().snapshot();
+		BoardSnapshot copy = BoardSnapshot.copyOf(game.getBoard());
+		assertSameBoard(game.getBoard(), first);
+
+		// Changing a fork leaves the snapshot and the game alone.
+		BoardSnapshot.Fork fork = first.fork();
+		fork.set(fork.index(1, 1), BoardView.FLAG);
+		fork.set(fork.index(40, 30), 3);
+		assertEquals(BoardView.FLAG, fork.state(1, 1));
+		assertSameBoard(copy, first);
+		assertSameBoard(copy, game.getBoard());
+
+		// Moves in the game leave the snapshot alone, and show up in the next one.
+		for (int cell = layout.mines.nextClearBit(0); cell < 40 * 30; cell = layout.mines.nextClearBit(cell + 1)) {
+			play(game, cell % 40 + 1, cell / 40 + 1);
+		}
+		assertSameBoard(copy, first);
+		assertSameBoard(game.getBoard(), game.getBoard().snapshot());
+		assertEquals(0, game.getUnknownTiles());
+	}
+
+	// A fork logs its changes for changedCells(), the mirror the engine keeps for snapshots does not.
+	@Test
+	void testOnlyForksLogChanges() {
+		BoardSnapshot snapshot = BoardSnapshot.copyOf(new PlainGame(9, 9).getBoard());
+		BoardSnapshot.Fork fork = snapshot.fork();
+		BoardSnapshot.Fork mirror = BoardSnapshot.Fork.mirrorOf(snapshot);
+		for (BoardSnapshot.Fork changed : new BoardSnapshot.Fork[]{fork, mirror}) {
+			changed.set(changed.index(2, 3), 1);
+			changed.set(changed.index(4, 5), BoardView.FLAG);
+			assertEquals(1, changed.state(2, 3));
+		}
+		assertEquals(2, count(fork.changedCells()));
+		assertEquals(0, count(fork.changedCells()));
+		assertEquals(0, count(mirror.changedCells()));
+		assertEquals(BoardView.FLAG, mirror.snapshot().state(4, 5));
+	}
+
+	private static int count(PrimitiveIterator.OfInt cells) {
+		int count = 0;
+		while (cells.hasNext()) {
+			cells.nextInt();
+			count++;
+		}
+		return count;
+	}
+
+	@Test
+	void testForksOnManyThreads() throws Exception {
+		BoardLayout layout = BoardLayout.random(100, 100, 1500, 11);
+		PlainGame game = new PlainGame(100, 100);
+		game.reset(100, 100, 11);
+		game.loadBoard(layout);
+		game.clear(50, 50);
+		game.detect();
+		game.revealNeighboursOfZeros();
+		BoardSnapshot snapshot = game.getBoard().snapshot();
+		BoardSnapshot copy = BoardSnapshot.copyOf(snapshot);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int task = 0; task < 32; task++) {
+				final int flagged = task;
+				results.add(executor.submit(() -> {
+					BoardSnapshot.Fork fork = snapshot.fork();
+					for (int y = 1; y <= 100; y++) {
+						fork.set(fork.index(flagged + 1, y), BoardView.FLAG);
+					}
+					for (int y = 1; y <= 100; y++) {
+						for (int x = 1; x <= 100; x++) {
+							int expected = x == flagged + 1 ? BoardView.FLAG : snapshot.state(x, y);
+							if (fork.state(x, y) != expected) {
+								return false;
+							}
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertSameBoard(copy, snapshot);
+	}
+}
@@ -0,0 +1,87 @@
+package javagym;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CorpusCheck {
+
+	private Path directory;
+
+	@BeforeEach
+	void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("corpus");
+	}
+
+	@AfterEach
+	void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	// Generating in two runs, the second after an interrupted write, gives the same files as one run.
+	@Test
+	void testGenerateResumes() throws IOException {
+		String once = generate("once", 150);
+		String twice = generate("twice", 100);
+		Files.write(Corpus.boardsPath(twice), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+		Files.write(Corpus.indexPath(twice), new byte[]{4, 5}, StandardOpenOption.APPEND);
+		generate("twice", 150);
+		assertArrayEquals(Files.readAllBytes(Corpus.boardsPath(once)), Files.readAllBytes(Corpus.boardsPath(twice)));
+		assertArrayEquals(Files.readAllBytes(Corpus.indexPath(once)), Files.readAllBytes(Corpus.indexPath(twice)));
+		assertThrows(IllegalArgumentException.class, () -> generate("once", Corpus.MAX_BOARDS + 1));
+	}
+
+	// A run cut off in the middle of a record plays only the boards without a result.
+	@Test
+	void testPlayResumes() throws IOException, InterruptedException {
+		String name = generate("play", 150);
+		Path results = directory.resolve("play.results");
+		assertEquals(150, Corpus.play(name, results, 2)[0]);
+		assertEquals(0, Corpus.play(name, results, 2)[0]);
+
+		try (FileChannel channel = FileChannel.open(results, StandardOpenOption.WRITE)) {
+			channel.truncate(40 * Corpus.RESULT_BYTES + 5);
+		}
+		assertEquals(110, Corpus.play(name, results, 2)[0]);
+		assertEquals(150, Corpus.playedBoards(results).cardinality());
+		assertEquals(150 * Corpus.RESULT_BYTES, Files.size(results));
+	}
+
+	// A strategy or board that throws fails the run, and the next run plays the boards it left.
+	@Test
+	void testFailingWorkerFailsTheRun() throws IOException, InterruptedException {
+		String name = generate("failing", 100);
+		// A negative seed, which GameRunner refuses, in the first board.
+		try (FileChannel channel = FileChannel.open(Corpus.boardsPath(name), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(8).putLong(0, -1), 16);
+		}
+		Path results = directory.resolve("failing.results");
+		IOException failure = assertThrows(IOException.class, () -> Corpus.play(name, results, 2));
+		assertTrue(failure.getCause() instanceof IllegalArgumentException, failure.toString());
+		assertEquals(64, 100 - Corpus.playedBoards(results).cardinality());
+	}
+
+	private String generate(String name, long count) throws IOException {
+		String path = directory.resolve(name).toString();
+		Corpus.generate(path, count, 42, 5, 12, 0.1, 0.2);
+		return path;
+	}
+}
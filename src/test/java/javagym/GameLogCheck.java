@@ -0,0 +1,82 @@
+package javagym;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class GameLogCheck {
+
+	private static final int GAMES = 5;
+	private static final int SIZE = 12;
+
+	private Path log;
+
+	// A few seeded games, all of them written.
+	@BeforeEach
+	void record() throws IOException {
+		log = Files.createTempFile("games", ".log");
+		Files.delete(log);
+		try (FileChannel channel = GameLog.open(log)) {
+			GameRunner gameRunner = new GameRunner(new YourStrategy(SIZE, SIZE));
+			gameRunner.setVerbose(false);
+			gameRunner.setListener(new GameLog.Recorder(channel, false));
+			for (int seed = 1; seed <= GAMES; seed++) {
+				gameRunner.initRandom(20, SIZE, SIZE, seed);
+				gameRunner.run(false);
+			}
+		}
+	}
+
+	@AfterEach
+	void delete() throws IOException {
+		Files.delete(log);
+	}
+
+	@Test
+	void testReplaysTheSame() throws IOException {
+		assertArrayEquals(new int[]{GAMES, 0}, GameLog.replay(log));
+	}
+
+	// The first game starts with a batch of the first pick: long nanos, int unknownTiles, int count, int x.
+	@Test
+	void testChangedUnknownTilesDiverge() throws IOException {
+		int unknownTiles = firstBatch() + 1 + 8;
+		write(unknownTiles, read(unknownTiles) + 1);
+		assertArrayEquals(new int[]{GAMES, 1}, GameLog.replay(log));
+	}
+
+	@Test
+	void testChangedPickDiverges() throws IOException {
+		int x = firstBatch() + 1 + 8 + 4 + 4;
+		write(x, read(x) % SIZE + 1);
+		assertArrayEquals(new int[]{GAMES, 1}, GameLog.replay(log));
+	}
+
+	// After the log header, the game byte and the board of the first game.
+	private static int firstBatch() {
+		return 8 + 1 + BoardFile.HEADER_BYTES + (SIZE * SIZE + 7) / 8;
+	}
+
+	private int read(int offset) throws IOException {
+		try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(4);
+			channel.read(buffer, offset);
+			return buffer.getInt(0);
+		}
+	}
+
+	private void write(int offset, int value) throws IOException {
+		try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(4).putInt(0, value), offset);
+		}
+	}
+}
@@ -1,11 +1,57 @@
 package javagym;
 
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-class Helper {
+// Test classes with @ExtendWith(Helper.class) record their lost games in one log for the whole run.
+class Helper implements BeforeAllCallback {
+
+	// Lost games are recorded here, replay them with GameLog. Open from the first class until all tests ran.
+	private static volatile FileChannel lostGames;
+
+	// One strategy per thread, reset for every game.
+	private static final ThreadLocal<YourStrategy> POOL = ThreadLocal.withInitial(() -> new YourStrategy(10, 10));
+
+	@Override
+	public void beforeAll(ExtensionContext context) {
+		context.getRoot().getStore(ExtensionContext.Namespace.create(Helper.class))
+				.getOrComputeIfAbsent(LostGames.class, key -> new LostGames(), LostGames.class);
+	}
+
+	// Lives in the store of the whole run, which closes it when the run is done.
+	private static final class LostGames implements ExtensionContext.Store.CloseableResource {
+
+		LostGames() {
+			try {
+				Files.createDirectories(Paths.get("target"));
+				lostGames = GameLog.open(Paths.get("target/lost-games.log"));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			FileChannel channel = lostGames;
+			lostGames = null;
+			channel.close();
+		}
+	}
 
 	static void testPseudoRandomGame(int length, int mineCount) {
-		GameRunner gameRunner = new GameRunner();
+		GameRunner gameRunner = new GameRunner(POOL.get());
+		FileChannel channel = lostGames;
+		if (channel != null) {
+			gameRunner.setListener(new GameLog.Recorder(channel, true));
+		}
 		gameRunner.initRandom(mineCount, length, length, 123_456_789 + 1000 * length + mineCount);
 		assertTrue(gameRunner.run(false));
 	}
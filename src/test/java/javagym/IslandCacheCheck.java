@@ -0,0 +1,75 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class IslandCacheCheck {
+
+	// A 1-2-1 along a row with the unknown cells above it: the outer two are mines, the middle one is safe.
+	private static IslandCache.Shape row(int x, int y) {
+		return IslandCache.Shape.of(new int[]{x, x + 1, x + 2}, new int[]{y, y, y}, new int[]{1, 2, 1},
+				new int[]{x + 2, x + 1, x}, new int[]{y - 1, y - 1, y - 1});
+	}
+
+	// The same, turned a quarter: a column with the unknown cells to the right of it.
+	private static IslandCache.Shape column(int x, int y) {
+		return IslandCache.Shape.of(new int[]{x, x, x}, new int[]{y, y + 1, y + 2}, new int[]{1, 2, 1},
+				new int[]{x + 1, x + 1, x + 1}, new int[]{y, y + 1, y + 2});
+	}
+
+	@Test
+	void testSymmetriesShareAnEntry() {
+		IslandCache cache = new IslandCache(16);
+		IslandCache.Shape row = row(5, 9);
+		cache.put(row, IslandCache.solve(row, Long.MAX_VALUE));
+		IslandCache.Shape column = column(20, 3);
+		assertEquals(row, column);
+		IslandCache.Entry entry = cache.get(column);
+		assertNotNull(entry);
+
+		int[] expected = {IslandCache.Entry.MINE, IslandCache.Entry.SAFE, IslandCache.Entry.MINE};
+		for (int i = 0; i < 3; i++) {
+			assertEquals(expected[i], entry.state(row.unknownIndex(i)));
+			assertEquals(expected[i], entry.state(column.unknownIndex(i)));
+		}
+		assertEquals(2, entry.fewest);
+		assertArrayEquals(new long[]{1}, entry.solutions);
+		assertEquals(1.0, cache.hitRate(), 1e-9);
+	}
+
+	@Test
+	void testCountsLayouts() {
+		// A 1 with three unknown cells above it.
+		IslandCache.Shape shape = IslandCache.Shape.of(new int[]{1}, new int[]{1}, new int[]{1},
+				new int[]{0, 1, 2}, new int[]{0, 0, 0});
+		IslandCache.Entry entry = IslandCache.solve(shape, Long.MAX_VALUE);
+		assertEquals(1, entry.fewest);
+		assertArrayEquals(new long[]{3}, entry.solutions);
+		for (int u = 0; u < 3; u++) {
+			assertEquals(1, entry.mines[0][u]);
+			assertEquals(IslandCache.Entry.OPEN, entry.state(u));
+		}
+	}
+
+	@Test
+	void testClockKeepsUsedEntries() {
+		IslandCache cache = new IslandCache(2);
+		IslandCache.Shape[] shapes = new IslandCache.Shape[3];
+		for (int mines = 0; mines < 3; mines++) {
+			shapes[mines] = IslandCache.Shape.of(new int[]{1}, new int[]{1}, new int[]{mines},
+					new int[]{0, 1, 2}, new int[]{0, 0, 0});
+			if (mines == 2) {
+				cache.get(shapes[0]);
+			}
+			cache.put(shapes[mines], IslandCache.solve(shapes[mines], Long.MAX_VALUE));
+		}
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get(shapes[0]));
+		assertNull(cache.get(shapes[1]));
+		assertNotNull(cache.get(shapes[2]));
+	}
+}
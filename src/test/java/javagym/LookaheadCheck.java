@@ -0,0 +1,52 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LookaheadCheck {
+
+	private static List<long[]> layouts(long... layouts) {
+		List<long[]> list = new ArrayList<>();
+		for (long layout : layouts) {
+			// Each one a few times, so the positions it leads to have enough layouts to count.
+			for (int i = 0; i < 5; i++) {
+				list.add(new long[]{layout});
+			}
+		}
+		return list;
+	}
+
+	// Cells 0 and 1 are each a mine half the time. The number on 0 shows nothing new, the one on 1 tells
+	// whether 2 or 3 is the safe one, so 1 is the better guess although 0 is tried first.
+	@Test
+	void testPrefersTheGuessThatShowsMore() {
+		List<long[]> layouts = layouts(0b1001, 0b0101, 0b1010, 0b0110);
+		int[][] neighbours = {{}, {2}, null, null};
+		Lookahead lookahead = new Lookahead(4, layouts, neighbours, new int[4], 100, Long.MAX_VALUE);
+		assertEquals(1, lookahead.best(0.0, 2));
+	}
+
+	// Guessing 0 then 1 leads to the same positions as 1 then 0, which are looked up instead of expanded.
+	@Test
+	void testTranspositionsAreLookedUp() {
+		List<long[]> layouts = layouts(0b1001, 0b0101, 0b1010, 0b0110, 0b0011, 0b1100);
+		int[][] neighbours = {{2}, {3}, {0, 3}, {1, 2}};
+		Lookahead lookahead = new Lookahead(4, layouts, neighbours, new int[4], 1000, Long.MAX_VALUE);
+		lookahead.best(1.0, 3);
+		assertTrue(lookahead.hits() > 0, "no position was looked up");
+		assertTrue(lookahead.nodes() < 1000, "the node budget ran out");
+	}
+
+	@Test
+	void testNoCandidate() {
+		List<long[]> layouts = layouts(0b01, 0b11);
+		int[][] neighbours = {{1}, null};
+		Lookahead lookahead = new Lookahead(2, layouts, neighbours, new int[2], 100, Long.MAX_VALUE);
+		assertEquals(-1, lookahead.best(0.0, 2));
+	}
+}
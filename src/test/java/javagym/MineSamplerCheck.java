@@ -0,0 +1,54 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MineSamplerCheck {
+
+	// Cells a, b and c in a row with a 1 above a-b and one above b-c, 2 mines and 5 other unknown cells.
+	// Either b is a mine with 1 of the 5 others (5 layouts), or a and c are (1 layout).
+	private static MineSampler sampler() {
+		MineSampler sampler = new MineSampler(3, 5, 2);
+		sampler.addConstraint(new int[]{0, 1}, 1);
+		sampler.addConstraint(new int[]{1, 2}, 1);
+		return sampler;
+	}
+
+	@Test
+	void testProbabilities() {
+		MineSampler.Result result = sampler().sample(1, 8, 2000, Long.MAX_VALUE, null);
+		double[] exact = {1.0 / 6, 5.0 / 6, 1.0 / 6};
+		for (int v = 0; v < exact.length; v++) {
+			assertEquals(exact[v], result.probability[v], 0.03);
+			assertTrue(result.halfWidth[v] < 0.05);
+		}
+		assertEquals(1.0 / 6, result.interiorProbability, 0.03);
+	}
+
+	@Test
+	void testSameResultOnAnyNumberOfThreads() {
+		MineSampler.Result inline = sampler().sample(42, 8, 500, Long.MAX_VALUE, null);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			MineSampler.Result parallel = sampler().sample(42, 8, 500, Long.MAX_VALUE, executor);
+			assertArrayEquals(inline.probability, parallel.probability);
+			assertArrayEquals(inline.halfWidth, parallel.halfWidth);
+			assertEquals(inline.samples, parallel.samples);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testNoLayout() {
+		MineSampler sampler = new MineSampler(2, 0, 1);
+		sampler.addConstraint(new int[]{0, 1}, 2);
+		assertEquals(null, sampler.sample(1, 4, 100, Long.MAX_VALUE, null));
+	}
+}
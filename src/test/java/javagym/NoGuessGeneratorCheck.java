@@ -0,0 +1,37 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NoGuessGeneratorCheck {
+
+	@Test
+	void testSameBoardsOnAnyNumberOfThreads() throws InterruptedException {
+		NoGuessGenerator generator = new NoGuessGenerator(30, 16, 99, 1, 1);
+		BoardLayout[] single = generator.boards(12, 5, 1);
+		BoardLayout[] parallel = generator.boards(12, 5, 3);
+		for (int board = 0; board < single.length; board++) {
+			assertEquals(single[board].mines, parallel[board].mines);
+			assertEquals(99, single[board].mineCount());
+			for (int y = 0; y <= 2; y++) {
+				for (int x = 0; x <= 2; x++) {
+					assertFalse(single[board].isMine(x, y));
+				}
+			}
+		}
+	}
+
+	@Test
+	void testStrategyWinsWithoutLuck() throws InterruptedException {
+		NoGuessGenerator generator = new NoGuessGenerator(16, 16, 40, 1, 1);
+		GameRunner gameRunner = new GameRunner(new YourStrategy(16, 16));
+		gameRunner.setVerbose(false);
+		for (BoardLayout layout : generator.boards(20, 11, 2)) {
+			gameRunner.initBoard(layout);
+			assertTrue(gameRunner.run(false), "board " + layout.seed);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class PatternTableCheck {
+
+	// The shipped table must be what generate() makes today, see PatternTable.main to write it again.
+	@Test
+	void testResourceMatchesGenerate() throws IOException {
+		int[] table = PatternTable.generate();
+		try (InputStream resource = PatternTable.class.getResourceAsStream("patterns.bin")) {
+			assertNotNull(resource, "patterns.bin is missing");
+			DataInputStream in = new DataInputStream(resource);
+			assertEquals(0x4A475054, in.readInt());
+			assertEquals(1, in.readInt());
+			for (int key = 0; key < table.length; key++) {
+				assertEquals(table[key], in.readInt(), "entry " + key);
+			}
+			assertEquals(-1, in.read());
+		}
+	}
+
+	// The 1-2-1 along a wall: each 1-2 pair puts a mine beyond the 2 and clears the cell beyond the 1.
+	@Test
+	void testOneTwoOne() {
+		// Only the top row of the window is unknown: cells 0 1 2 3.
+		int topRow = 0b1111;
+		int oneTwo = PatternTable.lookup(topRow, 1, 2);
+		assertEquals(1 << 0, PatternTable.safeMask(oneTwo));
+		assertEquals(1 << 3, PatternTable.mineMask(oneTwo));
+		int twoOne = PatternTable.lookup(topRow, 2, 1);
+		assertEquals(1 << 3, PatternTable.safeMask(twoOne));
+		assertEquals(1 << 0, PatternTable.mineMask(twoOne));
+		// 1-1 along a wall proves nothing.
+		int oneOne = PatternTable.lookup(topRow, 1, 1);
+		assertEquals(0, PatternTable.safeMask(oneOne));
+		assertEquals(0, PatternTable.mineMask(oneOne));
+	}
+}
@@ -0,0 +1,15 @@
+package javagym;
+
+// The engine without a strategy, for tests that make the moves themselves.
+final class PlainGame extends MineSweeper {
+
+	PlainGame(int width, int height) {
+		super(width, height);
+		verbose = false;
+	}
+
+	@Override
+	int[] pickSquare() {
+		throw new UnsupportedOperationException("The test makes the moves");
+	}
+}
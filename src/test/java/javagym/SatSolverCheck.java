@@ -0,0 +1,113 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SatSolverCheck {
+
+	@Test
+	void testProvesForcedCells() {
+		// 0 and 1 hold one mine, 1 and 2 hold two: 1 and 2 are mines, 0 is safe.
+		SatSolver sat = new SatSolver(3);
+		sat.addExactly(new int[]{0, 1}, 1);
+		sat.addExactly(new int[]{1, 2}, 2);
+		assertEquals(SatSolver.UNSAT, sat.solve(SatSolver.literal(0, true), 100, Long.MAX_VALUE));
+		assertEquals(SatSolver.SAT, sat.solve(SatSolver.literal(0, false), 100, Long.MAX_VALUE));
+		assertTrue(sat.value(1) && sat.value(2));
+	}
+
+	// The deadline is compared by difference, so one that overflowed past Long.MAX_VALUE still lies ahead.
+	@Test
+	void testDeadline() {
+		assertEquals(SatSolver.UNKNOWN, conflicting().solve(SatSolver.literal(0, true), 100, System.nanoTime() - 1));
+		long ahead = System.nanoTime() + Long.MAX_VALUE / 2;
+		assertEquals(SatSolver.UNSAT, conflicting().solve(SatSolver.literal(0, true), 100, ahead));
+	}
+
+	// A mine on 0 puts one on 2 and then two on 0, 2 and 3, which takes a conflict to find out.
+	private static SatSolver conflicting() {
+		SatSolver sat = new SatSolver(4);
+		sat.addExactly(new int[]{0, 1}, 1);
+		sat.addExactly(new int[]{1, 2}, 1);
+		sat.addExactly(new int[]{0, 2, 3}, 1);
+		return sat;
+	}
+
+	// Random constraints added a few at a time, with every query checked against all assignments.
+	@Test
+	void testAgreesWithEnumeration() {
+		SplittableRandom random = new SplittableRandom(3);
+		for (int instance = 0; instance < 200; instance++) {
+			int variables = 6 + random.nextInt(9);
+			int[] hidden = new int[variables];
+			for (int v = 0; v < variables; v++) {
+				hidden[v] = random.nextInt(3) == 0 ? 1 : 0;
+			}
+			SatSolver sat = new SatSolver(variables);
+			List<int[]> constraints = new ArrayList<>();
+			for (int round = 0; round < 4; round++) {
+				for (int c = 0; c < 3; c++) {
+					int size = 2 + random.nextInt(4);
+					int[] vars = random.ints(0, variables).distinct().limit(size).toArray();
+					int k = 0;
+					for (int v : vars) {
+						k += hidden[v];
+					}
+					sat.addExactly(vars, k);
+					constraints.add(vars);
+					constraints.add(new int[]{k});
+				}
+				for (int v = 0; v < variables; v++) {
+					for (int value = 0; value <= 1; value++) {
+						boolean possible = possible(variables, constraints, v, value);
+						int result = sat.solve(SatSolver.literal(v, value == 1), 10_000, Long.MAX_VALUE);
+						assertEquals(possible ? SatSolver.SAT : SatSolver.UNSAT, result, "instance " + instance);
+						if (result == SatSolver.SAT) {
+							assertEquals(value == 1, sat.value(v));
+							assertTrue(satisfies(sat, constraints));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static boolean possible(int variables, List<int[]> constraints, int variable, int value) {
+		for (int assignment = 0; assignment < 1 << variables; assignment++) {
+			if ((assignment >> variable & 1) != value) {
+				continue;
+			}
+			boolean ok = true;
+			for (int c = 0; c < constraints.size() && ok; c += 2) {
+				int count = 0;
+				for (int v : constraints.get(c)) {
+					count += assignment >> v & 1;
+				}
+				ok = count == constraints.get(c + 1)[0];
+			}
+			if (ok) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean satisfies(SatSolver sat, List<int[]> constraints) {
+		for (int c = 0; c < constraints.size(); c += 2) {
+			int count = 0;
+			for (int v : constraints.get(c)) {
+				count += sat.value(v) ? 1 : 0;
+			}
+			if (count != constraints.get(c + 1)[0]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
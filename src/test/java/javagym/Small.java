@@ -1,9 +1,11 @@
 package javagym;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 
 import static javagym.Helper.testPseudoRandomGame;
 
+@ExtendWith(Helper.class)
 class Small {
 
 	@Test
@@ -2,6 +2,17 @@ package javagym;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class StaticField {
@@ -15,4 +26,69 @@ public class StaticField {
 		boolean isWin = gameRunner.run(false);
 		assertTrue(isWin);
 	}
+
+	// The binary file holds the same board, so the strategy plays the same game on it.
+	@Test
+	void testStaticFieldBinary() throws IOException {
+		Path binary = Files.createTempFile("mineField", ".board");
+		try {
+			BoardLayout layout = BoardFile.fromText(Paths.get("mineField.txt"));
+			BoardFile.write(binary, layout);
+			assertEquals(layout.mines, BoardFile.read(binary).mines);
+
+			GameRunner text = new GameRunner();
+			text.initInput("mineField.txt");
+			GameRunner gameRunner = new GameRunner();
+			gameRunner.initInput(binary.toString());
+			assertEquals(moves(text), moves(gameRunner));
+		} finally {
+			Files.delete(binary);
+		}
+	}
+
+	// Off-heap the board plays exactly like on the heap.
+	@Test
+	void testStaticFieldOffHeap() {
+		GameRunner onHeap = new GameRunner();
+		onHeap.initInput("mineField.txt");
+		GameRunner gameRunner = new GameRunner();
+		gameRunner.setOffHeap(true);
+		try {
+			gameRunner.initInput("mineField.txt");
+			assertEquals(moves(onHeap), moves(gameRunner));
+		} finally {
+			gameRunner.close();
+		}
+	}
+
+	@Test
+	void testSeedMustFitAnInt() {
+		BoardLayout layout = new BoardLayout(10, 10, 1L << 32, new BitSet());
+		assertThrows(IllegalArgumentException.class, () -> new GameRunner().initBoard(layout));
+	}
+
+	// Plays the game and returns its picks and result.
+	private static List<String> moves(GameRunner gameRunner) {
+		List<String> moves = new ArrayList<>();
+		gameRunner.setListener(new GameLog.Listener() {
+			@Override
+			public void start(BoardLayout layout) {
+				moves.add("start " + layout.seed);
+			}
+
+			@Override
+			public void batch(int[][] picks, long nanos, int unknownTiles) {
+				for (int[] pick : picks) {
+					moves.add(Arrays.toString(pick));
+				}
+			}
+
+			@Override
+			public void end(boolean won) {
+				moves.add(won ? "won" : "lost");
+			}
+		});
+		gameRunner.run(false);
+		return moves;
+	}
 }
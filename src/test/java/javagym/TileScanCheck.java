@@ -0,0 +1,105 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TileScanCheck {
+
+	// Random changes, many on the edges of tiles, after which the tiles must agree with one pass over the board.
+	@Test
+	void testSameAsOnePass() {
+		SplittableRandom random = new SplittableRandom(7);
+		BoardKernels kernels = new ScalarKernels();
+		int[][] sizes = {{5, 3}, {33, TileScan.TILE_ROWS}, {70, TileScan.TILE_ROWS + 1}, {41, 3 * TileScan.TILE_ROWS - 1}};
+		for (int[] size : sizes) {
+			int stride = size[0] + 2;
+			int rows = size[1] + 2;
+			byte[] states = new byte[stride * rows];
+			Arrays.fill(states, (byte) BoardView.OUTSIDE);
+			TileScan tiles = new TileScan(stride, rows);
+			for (int y = 1; y < rows - 1; y++) {
+				for (int x = 1; x < stride - 1; x++) {
+					states[x + y * stride] = randomState(random);
+				}
+			}
+			int[] expected = new int[states.length];
+			int[] actual = new int[states.length];
+			for (int round = 0; round < 500; round++) {
+				for (int change = random.nextInt(3); change > 0; change--) {
+					// Either side of the line between two tiles, or anywhere.
+					int y = random.nextBoolean() ? 1 + random.nextInt(rows - 2)
+							: Math.max(1, Math.min(rows - 2, random.nextInt(4) * TileScan.TILE_ROWS + random.nextInt(2)));
+					int cell = 1 + random.nextInt(stride - 2) + y * stride;
+					states[cell] = states[cell] == BoardView.UNKNOWN ? randomState(random) : (byte) BoardView.UNKNOWN;
+					tiles.changed(cell);
+				}
+				int count = kernels.frontier(states, stride, rows, expected);
+				assertEquals(count, tiles.frontier(kernels, states, actual), size[0] + "x" + size[1] + " round " + round);
+				assertArrayEquals(Arrays.copyOf(expected, count), Arrays.copyOf(actual, count));
+			}
+		}
+	}
+
+	// Mostly numbers, so whether a cell is on the frontier often hangs on one unknown neighbour.
+	private static byte randomState(SplittableRandom random) {
+		int state = random.nextInt(12);
+		return (byte) (state == 0 ? BoardView.UNKNOWN : state == 1 ? BoardView.FLAG : state - 2);
+	}
+
+	// The deductions walked per tile set the same flags and make the same picks as the one walk over the board.
+	@Test
+	void testTileDeductionsPickTheSame() {
+		int size = 260;
+		assertTrue(TileScan.tiled((size + 2) * (size + 2)));
+		for (int seed = 1; seed <= 2; seed++) {
+			assertEquals(play(size, seed, false), play(size, seed, true), "seed " + seed);
+		}
+	}
+
+	// The picks and the unknown tiles after each batch of a game.
+	private static List<String> play(int size, int seed, boolean tileDeductions) {
+		YourStrategy strategy = new YourStrategy(size, size);
+		strategy.setTileDeductions(tileDeductions);
+		GameRunner gameRunner = new GameRunner(strategy);
+		gameRunner.setVerbose(false);
+		List<String> batches = new ArrayList<>();
+		gameRunner.setListener(new GameLog.Listener() {
+			@Override
+			public void start(BoardLayout layout) {
+			}
+
+			@Override
+			public void batch(int[][] picks, long nanos, int unknownTiles) {
+				batches.add(Arrays.deepToString(picks) + " " + unknownTiles);
+			}
+
+			@Override
+			public void end(boolean won) {
+				batches.add(won ? "won" : "lost");
+			}
+		});
+		gameRunner.initRandom(size * size * 16 / 100, size, size, seed);
+		gameRunner.run(false);
+		return batches;
+	}
+
+	@Test
+	void testEveryTileRunsOnce() {
+		for (int tiles : new int[]{0, 1, 2, 7, 100}) {
+			AtomicIntegerArray runs = new AtomicIntegerArray(tiles);
+			TileScan.forEachTile(tiles, runs::incrementAndGet);
+			for (int tile = 0; tile < tiles; tile++) {
+				assertEquals(1, runs.get(tile));
+			}
+		}
+	}
+}
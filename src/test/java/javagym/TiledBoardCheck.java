@@ -0,0 +1,182 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TiledBoardCheck {
+
+	@Test
+	void testTilesAreAllocatedOnChange() {
+		TiledBoard board = new TiledBoard(1000, 1000, 0.2, 3);
+		assertEquals(BoardView.UNKNOWN, board.state(500, 500));
+		assertEquals(BoardView.OUTSIDE, board.state(0, 500));
+		assertEquals(0, board.tileCount());
+		board.flag(1, 1);
+		board.flag(64, 64);
+		assertEquals(2, board.tileCount());
+		assertEquals(BoardView.FLAG, board.state(64, 64));
+		board.unflag(64, 64);
+		assertEquals(BoardView.UNKNOWN, board.state(64, 64));
+		assertEquals(2 * 64 * 64, board.tileBytes());
+	}
+
+	// A cascade over several tiles reveals what a flood fill over isMine reveals, with the right numbers.
+	@Test
+	void testCascadeAcrossTiles() {
+		for (long seed = 1; seed <= 5; seed++) {
+			TiledBoard board = new TiledBoard(150, 140, 0.08, seed);
+			assertTrue(board.turn(70, 64));
+			assertTrue(board.tileCount() > 1, "seed " + seed);
+			boolean[][] revealed = floodFill(board, 150, 140, 70, 64);
+			for (int y = 1; y <= 140; y++) {
+				for (int x = 1; x <= 150; x++) {
+					int expected = revealed[y][x] ? mines(board, x, y) : BoardView.UNKNOWN;
+					assertEquals(expected, board.state(x, y), "seed " + seed + " at " + x + "," + y);
+				}
+			}
+		}
+	}
+
+	// Revealing every safe cell wins, also with a flag placed before the first turn, and not a cell earlier.
+	@Test
+	void testWinsWhenAllSafeCellsAreRevealed() {
+		TiledBoard board = new TiledBoard(130, 70, 0.2, 9);
+		board.flag(100, 60);
+		board.unflag(100, 60);
+		assertTrue(board.turn(5, 5));
+		long safe = 0;
+		for (int y = 1; y <= 70; y++) {
+			for (int x = 1; x <= 130; x++) {
+				safe += board.isMine(x, y) ? 0 : 1;
+			}
+		}
+		assertEquals(130 * 70 - safe, board.mineCount());
+		for (int y = 1; y <= 70; y++) {
+			for (int x = 1; x <= 130; x++) {
+				if (!board.isMine(x, y) && board.state(x, y) == BoardView.UNKNOWN) {
+					assertFalse(board.isDone());
+					assertTrue(board.turn(x, y));
+				}
+			}
+		}
+		assertEquals(safe, board.revealedCells());
+		assertTrue(board.isDone());
+		assertTrue(board.isWin());
+	}
+
+	// Without mines an endless board opens without end, so every call stops at the limit and can go on.
+	@Test
+	void testEndlessCascadeIsBounded() {
+		TiledBoard board = TiledBoard.endless(0, 5);
+		board.setCascadeLimit(10_000);
+		assertTrue(board.turn(-1_000_000, 2_000_000_000));
+		assertEquals(10_001, board.revealedCells());
+		assertTrue(board.cascading());
+		board.continueCascade();
+		assertEquals(20_001, board.revealedCells());
+		assertTrue(board.cascading());
+		assertFalse(board.isDone());
+		assertEquals(0, board.state(-1_000_000, 2_000_000_000));
+
+		assertThrows(UnsupportedOperationException.class, board::mineCount);
+		assertThrows(UnsupportedOperationException.class, board::width);
+		assertThrows(UnsupportedOperationException.class, () -> board.state(0));
+	}
+
+	// A cut-off cascade on a finite board opens the same cells once it is continued to the end.
+	@Test
+	void testContinuedCascadeIsComplete() {
+		TiledBoard whole = new TiledBoard(200, 200, 0.05, 4);
+		whole.turn(100, 100);
+		TiledBoard parts = new TiledBoard(200, 200, 0.05, 4);
+		parts.setCascadeLimit(100);
+		parts.turn(100, 100);
+		int calls = 1;
+		while (parts.cascading()) {
+			parts.continueCascade();
+			calls++;
+		}
+		assertTrue(calls > 10);
+		assertEquals(whole.revealedCells(), parts.revealedCells());
+		for (int y = 1; y <= 200; y++) {
+			for (int x = 1; x <= 200; x++) {
+				assertEquals(whole.state(x, y), parts.state(x, y));
+			}
+		}
+	}
+
+	// A strategy plays through the board as its BoardView: its flags are mines, and the same seed plays the same.
+	@Test
+	void testStrategyPlaysOnTheBoard() {
+		TiledBoard board = new TiledBoard(400, 300, 0.12, 6);
+		FrontierStrategy strategy = new FrontierStrategy(board);
+		assertSame(board, strategy.getBoard());
+		assertTrue(board.play(strategy, 50) > 1);
+		TiledBoard again = new TiledBoard(400, 300, 0.12, 6);
+		again.play(new FrontierStrategy(again), 50);
+		assertEquals(board.revealedCells(), again.revealedCells());
+		int flags = 0;
+		for (int y = 1; y <= 300; y++) {
+			for (int x = 1; x <= 400; x++) {
+				assertEquals(board.state(x, y), again.state(x, y));
+				if (board.state(x, y) == BoardView.FLAG) {
+					assertTrue(board.isMine(x, y), x + "," + y);
+					flags++;
+				}
+			}
+		}
+		assertTrue(flags > 0);
+
+		assertThrows(UnsupportedOperationException.class, () -> strategy.reset(10, 10, 1));
+		assertThrows(IllegalArgumentException.class, () -> again.play(strategy, 1));
+	}
+
+	// On a board of 400 million cells the strategy and the board only take memory for what was opened.
+	@Test
+	void testStrategyMemoryFollowsTheExploredArea() {
+		TiledBoard board = new TiledBoard(20_000, 20_000, 0.2, 1);
+		assertEquals(20, board.play(new FrontierStrategy(board), 20));
+		assertFalse(board.isDone());
+		assertTrue(board.revealedCells() > 0);
+		assertTrue(board.tileBytes() < 1 << 20, board.tileBytes() + " bytes");
+	}
+
+	private static boolean[][] floodFill(TiledBoard board, int width, int height, int x, int y) {
+		boolean[][] revealed = new boolean[height + 2][width + 2];
+		ArrayDeque<int[]> queue = new ArrayDeque<>();
+		revealed[y][x] = true;
+		queue.add(new int[]{x, y});
+		while (!queue.isEmpty()) {
+			int[] cell = queue.poll();
+			if (mines(board, cell[0], cell[1]) != 0) {
+				continue;
+			}
+			for (int j = cell[1] - 1; j <= cell[1] + 1; j++) {
+				for (int i = cell[0] - 1; i <= cell[0] + 1; i++) {
+					if (i >= 1 && i <= width && j >= 1 && j <= height && !revealed[j][i]) {
+						revealed[j][i] = true;
+						queue.add(new int[]{i, j});
+					}
+				}
+			}
+		}
+		return revealed;
+	}
+
+	private static int mines(TiledBoard board, int x, int y) {
+		int mines = 0;
+		for (int j = y - 1; j <= y + 1; j++) {
+			for (int i = x - 1; i <= x + 1; i++) {
+				mines += board.isMine(i, j) ? 1 : 0;
+			}
+		}
+		return mines;
+	}
+}
@@ -0,0 +1,195 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TopologyCheck {
+
+	@Test
+	void testDegrees() {
+		Topology grid = Topology.grid(5, 4);
+		assertEquals(3, grid.degree(grid.cell(0, 0)));
+		assertEquals(5, grid.degree(grid.cell(2, 0)));
+		assertEquals(8, grid.degree(grid.cell(2, 2)));
+
+		Topology torus = Topology.torus(5, 4);
+		for (int cell = 0; cell < torus.cells(); cell++) {
+			assertEquals(8, torus.degree(cell));
+		}
+		assertTrue(torus.adjacent(torus.cell(0, 0), torus.cell(4, 3)));
+		// On 2 rows the rows above and below are the same row.
+		assertEquals(5, Topology.torus(5, 2).degree(0));
+
+		Topology hex = Topology.hex(5, 4);
+		assertEquals(6, hex.degree(hex.cell(2, 1)));
+		assertEquals(6, hex.degree(hex.cell(2, 2)));
+		assertTrue(hex.adjacent(hex.cell(2, 1), hex.cell(3, 0)));
+		assertFalse(hex.adjacent(hex.cell(2, 2), hex.cell(3, 1)));
+
+		Topology cube = Topology.cube(3, 3, 3);
+		assertEquals(26, cube.degree(cube.cell(1, 1, 1)));
+		assertEquals(7, cube.degree(cube.cell(0, 0, 0)));
+		assertEquals(1, cube.z(cube.cell(2, 1, 1)));
+	}
+
+	@Test
+	void testNeighboursAreSymmetricAndSorted() {
+		for (Topology topology : new Topology[]{Topology.grid(7, 5), Topology.torus(7, 5), Topology.torus(2, 3),
+				Topology.hex(7, 5), Topology.cube(4, 3, 2)}) {
+			for (int cell = 0; cell < topology.cells(); cell++) {
+				for (int i = topology.start[cell]; i < topology.start[cell + 1]; i++) {
+					int neighbour = topology.neighbours[i];
+					assertTrue(topology.adjacent(neighbour, cell), topology + " " + cell + " " + neighbour);
+					assertTrue(neighbour != cell);
+					assertTrue(i == topology.start[cell] || topology.neighbours[i - 1] < neighbour);
+				}
+			}
+		}
+	}
+
+	// What the solver decides is right on every topology, and it finishes every board with lucky guesses.
+	@Test
+	void testDeductionsAreSound() {
+		SplittableRandom random = new SplittableRandom(5);
+		for (Topology topology : new Topology[]{Topology.torus(16, 16), Topology.hex(16, 16), Topology.cube(8, 8, 4)}) {
+			for (int board = 0; board < 10; board++) {
+				BitSet mines = new BitSet();
+				while (mines.cardinality() < topology.cells() / 6) {
+					mines.set(random.nextInt(topology.cells()));
+				}
+				DeductionSolver solver = new DeductionSolver(topology);
+				solver.setMines(new BoardLayout(topology.width, topology.cells() / topology.width, 0, mines));
+				solver.restart();
+				while (!solver.solved()) {
+					solver.deduce();
+					if (solver.solved() || solver.deduceIslands(BoardMetrics.ISLAND_UNKNOWNS)) {
+						continue;
+					}
+					int cell = 0;
+					while (solver.state[cell] != DeductionSolver.UNKNOWN || solver.mine[cell]) {
+						cell++;
+					}
+					solver.open(cell);
+				}
+				for (int cell = 0; cell < topology.cells(); cell++) {
+					if (solver.state[cell] == DeductionSolver.FLAG) {
+						assertTrue(solver.mine[cell], topology.toString());
+					}
+					if (solver.state[cell] == DeductionSolver.OPEN) {
+						assertFalse(solver.mine[cell], topology.toString());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void testNoGuessBoardsOnATorus() throws InterruptedException {
+		Topology torus = Topology.torus(20, 12);
+		int first = torus.cell(1, 1);
+		NoGuessGenerator generator = new NoGuessGenerator(torus, 50, first);
+		for (BoardLayout layout : generator.boards(10, 1, 2)) {
+			assertEquals(50, layout.mineCount());
+			assertEquals(0, BoardMetrics.of(torus, layout, first).guesses, "board " + layout.seed);
+		}
+	}
+
+	// The game counts, opens and chords along the topology: the first pick opens what a flood fill over the
+	// neighbours of the topology opens, and the frontier is the one of the topology.
+	@Test
+	void testGameFollowsTheTopology() {
+		SplittableRandom random = new SplittableRandom(8);
+		for (Topology topology : new Topology[]{Topology.torus(9, 7), Topology.hex(9, 7)}) {
+			for (int board = 0; board < 10; board++) {
+				BitSet mines = new BitSet();
+				while (mines.cardinality() < 6) {
+					mines.set(random.nextInt(topology.cells()));
+				}
+				int first = 0;
+				while (mines.get(first) || mines(topology, mines, first) != 0) {
+					first++;
+				}
+				PlainGame game = new PlainGame(9, 7);
+				game.setTopology(topology);
+				game.reset(9, 7, 1);
+				game.loadBoard(new BoardLayout(9, 7, 1, mines));
+				game.clear(topology.x(first) + 1, topology.y(first) + 1);
+				game.detect();
+				game.revealNeighboursOfZeros();
+
+				BoardView view = game.getBoard();
+				BitSet open = floodFill(topology, mines, first);
+				BitSet frontier = new BitSet();
+				for (int cell = 0; cell < topology.cells(); cell++) {
+					int state = view.state(topology.x(cell) + 1, topology.y(cell) + 1);
+					assertEquals(open.get(cell) ? mines(topology, mines, cell) : BoardView.UNKNOWN, state,
+							topology + " board " + board + " cell " + cell);
+					for (int i = topology.start[cell]; i < topology.start[cell + 1] && open.get(cell); i++) {
+						if (!open.get(topology.neighbours[i])) {
+							frontier.set(cell);
+						}
+					}
+				}
+				int[] cells = new int[view.cellCount()];
+				int count = view.frontierCells(cells);
+				assertEquals(frontier.cardinality(), count);
+				for (int i = 0; i < count; i++) {
+					assertTrue(frontier.get((view.y(cells[i]) - 1) * 9 + view.x(cells[i]) - 1));
+				}
+			}
+		}
+		assertThrows(IllegalArgumentException.class, () -> new PlainGame(4, 4).setTopology(Topology.cube(4, 4, 2)));
+	}
+
+	@Test
+	void testStrategyPlaysTorusAndHex() {
+		for (String topology : new String[]{"torus", "hex"}) {
+			GameRunner gameRunner = new GameRunner(new YourStrategy(16, 16));
+			gameRunner.setVerbose(false);
+			gameRunner.setTopology(topology);
+			int wins = 0;
+			for (int seed = 1; seed <= 20; seed++) {
+				gameRunner.initRandom(40, 16, 16, seed);
+				wins += gameRunner.run(false) ? 1 : 0;
+			}
+			assertTrue(wins >= 14, topology + " won " + wins + " of 20");
+		}
+	}
+
+	private static int mines(Topology topology, BitSet mines, int cell) {
+		int count = 0;
+		for (int i = topology.start[cell]; i < topology.start[cell + 1]; i++) {
+			count += mines.get(topology.neighbours[i]) ? 1 : 0;
+		}
+		return count;
+	}
+
+	private static BitSet floodFill(Topology topology, BitSet mines, int first) {
+		BitSet open = new BitSet();
+		int[] queue = new int[topology.cells()];
+		int tail = 0;
+		open.set(first);
+		queue[tail++] = first;
+		for (int head = 0; head < tail; head++) {
+			int cell = queue[head];
+			if (mines(topology, mines, cell) != 0) {
+				continue;
+			}
+			for (int i = topology.start[cell]; i < topology.start[cell + 1]; i++) {
+				int neighbour = topology.neighbours[i];
+				if (!open.get(neighbour)) {
+					open.set(neighbour);
+					queue[tail++] = neighbour;
+				}
+			}
+		}
+		return open;
+	}
+}
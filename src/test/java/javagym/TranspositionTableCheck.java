@@ -0,0 +1,89 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TranspositionTableCheck {
+
+	private static long valueOf(long key) {
+		return TranspositionTable.mix(key + 12345);
+	}
+
+	@Test
+	void testGetAfterPut() {
+		TranspositionTable table = new TranspositionTable(8);
+		assertEquals(-1, table.get(42, -1));
+		table.put(42, 7, 1);
+		assertEquals(7, table.get(42, -1));
+		table.put(42, 8, 1);
+		assertEquals(8, table.get(42, -1));
+		assertEquals(2.0 / 3, table.hitRate(), 1e-9, table.stats());
+	}
+
+	private static int kept(TranspositionTable table, int keys) {
+		int kept = 0;
+		for (long key = 0; key < keys; key++) {
+			long value = table.get(key, -1);
+			assertTrue(value == -1 || value == valueOf(key));
+			if (value != -1) {
+				kept++;
+			}
+		}
+		return kept;
+	}
+
+	// Within one age the deep entries stay, once the table turned over they are replaced as well.
+	@Test
+	void testReplacesByDepthThenAge() {
+		TranspositionTable table = new TranspositionTable(6);
+		for (long key = 0; key < 8; key++) {
+			table.put(key, valueOf(key), 100);
+		}
+		for (long key = 8; key < 48; key++) {
+			table.put(key, valueOf(key), 0);
+		}
+		assertEquals(8, kept(table, 8));
+		for (long key = 48; key < 1000; key++) {
+			table.put(key, valueOf(key), 0);
+		}
+		assertTrue(kept(table, 8) < 8);
+	}
+
+	// Threads that write and read the same keys only ever see the value that belongs to a key.
+	@Test
+	void testConcurrentGetsSeeWholeEntries() throws Exception {
+		TranspositionTable table = new TranspositionTable(6);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int task = 0; task < 4; task++) {
+				final int offset = task;
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < 200_000; i++) {
+						long key = (i * 7 + offset) % 500;
+						table.put(key, valueOf(key), i & 3);
+						long found = table.get((key * 13) % 500, -1);
+						if (found != -1 && found != valueOf((key * 13) % 500)) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(table.hits() > 0);
+	}
+}
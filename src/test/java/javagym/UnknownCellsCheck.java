@@ -0,0 +1,122 @@
+package javagym;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UnknownCellsCheck {
+
+	// Random removes and adds against a BitSet, with the dense array and the positions checked after each.
+	@Test
+	void testSameAsBitSet() {
+		SplittableRandom random = new SplittableRandom(11);
+		UnknownCells cells = new UnknownCells(7, 5);
+		BitSet expected = new BitSet();
+		expected.set(0, 35);
+		for (int step = 0; step < 2000; step++) {
+			int cell = random.nextInt(35);
+			if (random.nextInt(3) == 0) {
+				cells.add(cell);
+				expected.set(cell);
+			} else {
+				cells.remove(cell);
+				expected.clear(cell);
+			}
+			assertSame(expected, cells, 35);
+		}
+	}
+
+	@Test
+	void testReset() {
+		UnknownCells cells = new UnknownCells(4, 4);
+		cells.remove(3);
+		cells.remove(15);
+		// Smaller boards reuse the arrays, larger ones grow them; both start with every cell unknown.
+		cells.reset(3, 2);
+		BitSet all = new BitSet();
+		all.set(0, 6);
+		assertSame(all, cells, 6);
+		cells.reset(10, 10);
+		all.set(0, 100);
+		assertSame(all, cells, 100);
+
+		cells.clear();
+		assertTrue(cells.isEmpty());
+		cells.add(42);
+		cells.add(42);
+		assertEquals(1, cells.size());
+		assertEquals(42, cells.random(0.99));
+	}
+
+	@Test
+	void testRandomReachesEveryCell() {
+		UnknownCells cells = new UnknownCells(3, 3);
+		cells.remove(4);
+		BitSet picked = new BitSet();
+		for (int i = 0; i < cells.size(); i++) {
+			picked.set(cells.random((i + 0.5) / cells.size()));
+		}
+		assertEquals(8, picked.cardinality());
+		assertFalse(picked.get(4));
+	}
+
+	// Against the lowest of the closest cells in a BitSet, on boards narrower and wider than a word.
+	@Test
+	void testNearest() {
+		SplittableRandom random = new SplittableRandom(29);
+		for (int[] size : new int[][]{{1, 1}, {7, 5}, {64, 3}, {150, 40}}) {
+			int width = size[0];
+			int height = size[1];
+			UnknownCells cells = new UnknownCells(width, height);
+			BitSet expected = new BitSet();
+			expected.set(0, width * height);
+			for (int step = 0; step < 3000 && !expected.isEmpty(); step++) {
+				int cell = random.nextInt(width * height);
+				if (random.nextInt(8) == 0) {
+					cells.add(cell);
+					expected.set(cell);
+				} else {
+					cells.remove(cell);
+					expected.clear(cell);
+				}
+				int x = random.nextInt(width);
+				int y = random.nextInt(height);
+				assertEquals(nearest(expected, width, x, y), cells.nearest(x, y),
+						width + "x" + height + " at " + x + "," + y);
+			}
+			cells.clear();
+			assertEquals(-1, cells.nearest(0, 0));
+		}
+	}
+
+	private static int nearest(BitSet cells, int width, int x, int y) {
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int cell = cells.nextSetBit(0); cell >= 0; cell = cells.nextSetBit(cell + 1)) {
+			int distance = Math.max(Math.abs(cell % width - x), Math.abs(cell / width - y));
+			if (distance < bestDistance) {
+				best = cell;
+				bestDistance = distance;
+			}
+		}
+		return best;
+	}
+
+	private static void assertSame(BitSet expected, UnknownCells cells, int boardCells) {
+		assertEquals(expected.cardinality(), cells.size());
+		BitSet listed = new BitSet();
+		for (int position = 0; position < cells.size(); position++) {
+			assertFalse(listed.get(cells.get(position)), "listed twice: " + cells.get(position));
+			listed.set(cells.get(position));
+		}
+		assertEquals(expected, listed);
+		for (int cell = 0; cell < boardCells; cell++) {
+			assertEquals(expected.get(cell), cells.contains(cell), "cell " + cell);
+		}
+	}
+}
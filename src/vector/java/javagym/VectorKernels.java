@@ -0,0 +1,91 @@
+package javagym;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// The kernels of BoardKernels on the Vector API, a full vector of cells of one row at a time.
+// Built by the vector profile only, and loaded by BoardKernels when the module is available.
+final class VectorKernels implements BoardKernels {
+
+	private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+
+	@Override
+	public int count(byte[] states, int from, int to, int state) {
+		int count = 0;
+		int cell = from;
+		for (; cell + LANES <= to; cell += LANES) {
+			count += ByteVector.fromArray(SPECIES, states, cell).eq((byte) state).trueCount();
+		}
+		for (; cell < to; cell++) {
+			if (states[cell] == state) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static VectorMask<Byte> unknown(byte[] states, int cell) {
+		return ByteVector.fromArray(SPECIES, states, cell).eq((byte) BoardView.UNKNOWN);
+	}
+
+	@Override
+	public int frontier(byte[] states, int stride, int fromRow, int toRow, int[] out) {
+		int count = 0;
+		for (int y = fromRow; y < toRow; y++) {
+			int cell = y * stride + 1;
+			int end = (y + 1) * stride - 1;
+			for (; cell + LANES <= end; cell += LANES) {
+				VectorMask<Byte> revealed = ByteVector.fromArray(SPECIES, states, cell)
+						.compare(VectorOperators.GE, (byte) 0);
+				if (!revealed.anyTrue()) {
+					continue;
+				}
+				VectorMask<Byte> unknown = unknown(states, cell - stride - 1)
+						.or(unknown(states, cell - stride))
+						.or(unknown(states, cell - stride + 1))
+						.or(unknown(states, cell - 1))
+						.or(unknown(states, cell + 1))
+						.or(unknown(states, cell + stride - 1))
+						.or(unknown(states, cell + stride))
+						.or(unknown(states, cell + stride + 1));
+				long bits = revealed.and(unknown).toLong();
+				while (bits != 0) {
+					out[count++] = cell + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+				}
+			}
+			for (; cell < end; cell++) {
+				if (states[cell] >= 0 && ScalarKernels.hasUnknownNeighbour(states, stride, cell)) {
+					out[count++] = cell;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public void neighbourCounts(byte[] values, int stride, int rows, int value, byte[] counts) {
+		ByteVector one = ByteVector.broadcast(SPECIES, (byte) 1);
+		for (int y = 1; y < rows - 1; y++) {
+			int cell = y * stride + 1;
+			int end = (y + 1) * stride - 1;
+			for (; cell + LANES <= end; cell += LANES) {
+				ByteVector sum = ByteVector.zero(SPECIES);
+				for (int row = cell - stride; row <= cell + stride; row += stride) {
+					for (int neighbour = row - 1; neighbour <= row + 1; neighbour++) {
+						if (neighbour != cell) {
+							sum = sum.add(one, ByteVector.fromArray(SPECIES, values, neighbour).eq((byte) value));
+						}
+					}
+				}
+				sum.intoArray(counts, cell);
+			}
+			for (; cell < end; cell++) {
+				counts[cell] = (byte) ScalarKernels.neighbourCount(values, stride, cell, value);
+			}
+		}
+	}
+}